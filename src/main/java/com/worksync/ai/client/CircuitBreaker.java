@@ -0,0 +1,87 @@
+package com.worksync.ai.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * Stops sending requests to a backend after a run of consecutive failures. Once the open
+ * duration has passed, a single trial request is let through: its success closes the circuit
+ * again and its failure keeps it open for another period.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Whether a request may be sent now. Every admitted request must be reported with
+     * {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                log.info("Circuit of {} half-open, sending a trial request", name);
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            log.info("Circuit of {} closed", name);
+            state = State.CLOSED;
+        }
+    }
+
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("Circuit of {} opened after {} consecutive failures, retrying in {}", name, consecutiveFailures, openDuration);
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Reports a request that ended without telling whether the backend is healthy, such as a
+     * hedged request cancelled because the other backend answered first
+     */
+    public synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,46 @@
+package com.worksync.ai.client;
+
+import java.time.Duration;
+
+/**
+ * Failure of a request to a model provider. Carries the HTTP status, or -1 when no response was
+ * received, and the delay the provider asked for before retrying, if any.
+ */
+public class LlmClientException extends RuntimeException {
+
+    private final int statusCode;
+    private final Duration retryAfter;
+
+    public LlmClientException(String message, int statusCode, Duration retryAfter) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    public LlmClientException(String message, Throwable cause, int statusCode) {
+        super(message, cause);
+        this.statusCode = statusCode;
+        this.retryAfter = null;
+    }
+
+    public LlmClientException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = -1;
+        this.retryAfter = null;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Rate limiting, server errors and failed connections are worth retrying; other client errors are not
+     */
+    public boolean isRetryable() {
+        return statusCode == 429 || statusCode >= 500 || (statusCode < 0 && !(getCause() instanceof InterruptedException));
+    }
+}
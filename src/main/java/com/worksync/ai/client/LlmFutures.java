@@ -0,0 +1,50 @@
+package com.worksync.ai.client;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers for the futures returned by the asynchronous LLM client methods
+ */
+public final class LlmFutures {
+
+    private LlmFutures() {
+    }
+
+    /**
+     * Waits for a request, cancelling it if the waiting thread is interrupted
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LlmClientException("Interrupted while waiting for the model", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LlmClientException llmClientException) {
+                throw llmClientException;
+            }
+            throw new LlmClientException("Model request failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (CancellationException e) {
+            throw new LlmClientException("Model request was cancelled", e);
+        }
+    }
+
+    /**
+     * Dependent stages do not cancel the stage they were derived from, so cancelling a future built
+     * with thenApply and friends would leave the HTTP exchange running. This cancels the source
+     * when the dependent future is cancelled.
+     *
+     * @return The dependent future
+     */
+    public static <T> CompletableFuture<T> cancelling(CompletableFuture<T> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((result, error) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+}
@@ -0,0 +1,231 @@
+package com.worksync.ai.client;
+
+import com.worksync.ai.config.LlmRateLimitConfig.LlmRateLimitProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Paces the requests to one model provider. A token bucket caps the request rate and an AIMD
+ * limit caps the requests in flight: the limit grows by one per limit's worth of fast successes
+ * and is cut by a ratio when the provider answers 429 or responses get slower than the latency
+ * threshold. A 429 also holds every queued request back for the Retry-After the provider sent.
+ * Requests failing with a retryable error are queued again, ahead of new ones, so that callers
+ * only see a failure once the retries are used up.
+ *
+ * <p>Requests wait in a FIFO queue without holding a thread; cancelling the returned future
+ * removes a queued request or cancels the attempt in flight.
+ */
+@Slf4j
+public class LlmRateLimiter {
+
+    private final String name;
+    private final LlmRateLimitProperties properties;
+    private final ScheduledExecutorService scheduler;
+
+    private final Deque<Call<?>> queue = new ArrayDeque<>();
+    private double tokens;
+    private long refilledAt;
+    private double limit;
+    private int inFlight;
+    private long pausedUntil;
+    private long lastDecreaseAt;
+    private boolean drainScheduled;
+
+    public LlmRateLimiter(String name, LlmRateLimitProperties properties, ScheduledExecutorService scheduler,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.properties = properties;
+        this.scheduler = scheduler;
+        this.tokens = properties.getBurst();
+        this.refilledAt = System.nanoTime();
+        this.lastDecreaseAt = refilledAt;
+        this.limit = Math.max(properties.getMinConcurrency(), properties.getInitialConcurrency());
+
+        Gauge.builder("llm.rate_limit.concurrency_limit", this, limiter -> limiter.snapshot()[0])
+            .tag("provider", name).register(meterRegistry);
+        Gauge.builder("llm.rate_limit.in_flight", this, limiter -> limiter.snapshot()[1])
+            .tag("provider", name).register(meterRegistry);
+        Gauge.builder("llm.rate_limit.queued", this, limiter -> limiter.snapshot()[2])
+            .tag("provider", name).register(meterRegistry);
+    }
+
+    /**
+     * Runs the request once the rate and concurrency limits admit it
+     *
+     * @param request Starts one attempt of the request; called again for each retry
+     * @return The result of the last attempt
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+        if (!properties.isEnabled()) {
+            return request.get();
+        }
+        Call<T> call = new Call<>(request);
+        call.result.whenComplete((value, error) -> {
+            if (call.result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        synchronized (this) {
+            queue.addLast(call);
+        }
+        drain();
+        return call.result;
+    }
+
+    private void drain() {
+        List<Call<?>> admitted = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            while (!queue.isEmpty()) {
+                if (queue.peekFirst().result.isDone()) {
+                    queue.pollFirst();
+                } else if (now - pausedUntil < 0) {
+                    scheduleDrain(pausedUntil - now);
+                    break;
+                } else if (inFlight >= (int) limit) {
+                    // The next release drains again
+                    break;
+                } else if (tokens < 1) {
+                    scheduleDrain((long) ((1 - tokens) / properties.getRequestsPerSecond() * TimeUnit.SECONDS.toNanos(1)));
+                    break;
+                } else {
+                    tokens--;
+                    inFlight++;
+                    admitted.add(queue.pollFirst());
+                }
+            }
+        }
+        admitted.forEach(this::start);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(properties.getBurst(), tokens + (now - refilledAt) / 1e9 * properties.getRequestsPerSecond());
+        refilledAt = now;
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                drainScheduled = false;
+            }
+            drain();
+        }, Math.max(1, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private <T> void start(Call<T> call) {
+        long startedAt = System.nanoTime();
+        CompletableFuture<T> attempt;
+        try {
+            attempt = call.request.get();
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        call.attempt = attempt;
+        if (call.result.isCancelled()) {
+            attempt.cancel(true);
+        }
+
+        attempt.whenComplete((value, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            release(startedAt, cause);
+            if (cause == null) {
+                call.result.complete(value);
+            } else if (cause instanceof LlmClientException llmClientException && llmClientException.isRetryable()
+                    && call.attempts < properties.getMaxRetries() && !call.result.isDone()) {
+                retry(call, llmClientException);
+            } else {
+                call.result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    private synchronized void release(long startedAt, Throwable error) {
+        inFlight--;
+        long now = System.nanoTime();
+        if (error instanceof LlmClientException llmClientException && llmClientException.getStatusCode() == 429) {
+            Duration retryAfter = llmClientException.getRetryAfter();
+            if (retryAfter != null && now + retryAfter.toNanos() - pausedUntil > 0) {
+                pausedUntil = now + retryAfter.toNanos();
+                log.info("{} asked to slow down, holding requests back for {}", name, retryAfter);
+            }
+            decrease(startedAt, now, "rate limited");
+        } else if (error == null) {
+            if (now - startedAt > properties.getLatencyThreshold().toNanos()) {
+                decrease(startedAt, now, "slow response");
+            } else if (inFlight + 1 >= (int) limit) {
+                // Only grow a limit that is actually being used
+                limit = Math.min(properties.getMaxConcurrency(), limit + 1 / limit);
+            }
+        }
+        scheduler.execute(this::drain);
+    }
+
+    /**
+     * Requests started before the last decrease were sent at the old limit, so their overload
+     * signals do not cut the limit again
+     */
+    private void decrease(long startedAt, long now, String reason) {
+        if (startedAt - lastDecreaseAt < 0) {
+            return;
+        }
+        double previous = limit;
+        limit = Math.max(properties.getMinConcurrency(), limit * properties.getBackoffRatio());
+        lastDecreaseAt = now;
+        log.debug("{} concurrency limit lowered from {} to {} after {}", name, (int) previous, (int) limit, reason);
+    }
+
+    private void retry(Call<?> call, LlmClientException error) {
+        call.attempts++;
+        Duration delay = error.getRetryAfter() != null
+            ? error.getRetryAfter()
+            : properties.getRetryBackoff().multipliedBy(1L << Math.min(call.attempts - 1, 16));
+        log.warn("{} request failed ({}), retry {} of {} in {}", name, error.getMessage(), call.attempts,
+            properties.getMaxRetries(), delay);
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                queue.addFirst(call);
+            }
+            drain();
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized double[] snapshot() {
+        return new double[] {limit, inFlight, queue.size()};
+    }
+
+    private static final class Call<T> {
+
+        private final Supplier<CompletableFuture<T>> request;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile CompletableFuture<T> attempt;
+        private int attempts;
+
+        private Call(Supplier<CompletableFuture<T>> request) {
+            this.request = request;
+        }
+
+        private void cancel() {
+            CompletableFuture<T> current = attempt;
+            if (current != null) {
+                current.cancel(true);
+            }
+        }
+    }
+}
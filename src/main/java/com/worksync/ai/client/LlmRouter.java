@@ -0,0 +1,259 @@
+package com.worksync.ai.client;
+
+import com.worksync.ai.config.LlmRouterConfig.LlmRouterProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes chat completions between the OpenRouter and Ollama backends. Requests go to the primary
+ * backend; if it has not answered within its recent p95 latency, the same request is also sent
+ * to the secondary and whichever answers first wins, the other being cancelled. A failed request
+ * fails over to the other backend at once. Each backend has a circuit breaker, so a backend that
+ * keeps failing is skipped until a trial request succeeds again.
+ *
+ * <p>OpenRouter is called with the requested model; Ollama always uses its configured model.
+ */
+@Slf4j
+@Component
+public class LlmRouter {
+
+    private final LlmRouterProperties properties;
+    private final ScheduledExecutorService scheduler;
+    private final MeterRegistry meterRegistry;
+    private final Backend primary;
+    private final Backend secondary;
+
+    public LlmRouter(OpenRouterClient openRouterClient, OllamaClient ollamaClient, LlmRouterProperties properties,
+                     @Qualifier("llmRateLimitScheduler") ScheduledExecutorService scheduler, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.scheduler = scheduler;
+        this.meterRegistry = meterRegistry;
+
+        Map<String, BackendCall> calls = Map.of(
+            "openrouter", openRouterClient::chatCompletionAsync,
+            "ollama", (model, systemPrompt, userPrompt, temperature, maxTokens) ->
+                ollamaClient.generateCompletionAsync(systemPrompt, userPrompt, temperature, maxTokens)
+        );
+        this.primary = backend(properties.getPrimary(), calls);
+        this.secondary = properties.getSecondary() == null || properties.getSecondary().isBlank()
+            ? null
+            : backend(properties.getSecondary(), calls);
+        if (secondary != null && secondary.name().equals(primary.name())) {
+            throw new IllegalArgumentException("The secondary LLM backend must differ from the primary one");
+        }
+    }
+
+    private Backend backend(String name, Map<String, BackendCall> calls) {
+        BackendCall call = calls.get(name);
+        if (call == null) {
+            throw new IllegalArgumentException("Unknown LLM backend " + name + ", expected one of " + calls.keySet());
+        }
+        CircuitBreaker circuitBreaker = new CircuitBreaker(name,
+            properties.getCircuitBreaker().getFailureThreshold(), properties.getCircuitBreaker().getOpenDuration());
+        Gauge.builder("llm.router.circuit_open", circuitBreaker, breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+            .tag("backend", name).register(meterRegistry);
+        return new Backend(name, call, circuitBreaker, new LatencyWindow(properties.getHedging().getWindowSize()));
+    }
+
+    /**
+     * A completion and the backend that produced it
+     *
+     * @param primary Whether the primary backend answered, rather than the fallback
+     */
+    public record Completion(String content, String backend, boolean primary) {}
+
+    /**
+     * Routes a chat completion request. The future completes with the first successful answer, or
+     * exceptionally with an {@link LlmClientException} once every backend tried has failed or has
+     * an open circuit. Cancelling it cancels the requests in flight.
+     */
+    public CompletableFuture<Completion> completeAsync(String model, String systemPrompt, String userPrompt,
+                                                       double temperature, int maxTokens) {
+        Exchange exchange = new Exchange(model, systemPrompt, userPrompt, temperature, maxTokens);
+        if (exchange.start(primary)) {
+            if (secondary != null && properties.getHedging().isEnabled()) {
+                ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+                    if (!exchange.result.isDone() && exchange.start(secondary)) {
+                        meterRegistry.counter("llm.router.hedged").increment();
+                        log.debug("{} slower than {}, hedging to {}", primary.name(), hedgeDelay(), secondary.name());
+                    }
+                }, hedgeDelay().toNanos(), TimeUnit.NANOSECONDS);
+                exchange.result.whenComplete((completion, error) -> hedge.cancel(false));
+            }
+        } else if (secondary == null || !exchange.start(secondary)) {
+            exchange.result.completeExceptionally(new LlmClientException("No LLM backend is available, all circuits are open", -1, null));
+        }
+        exchange.result.whenComplete((completion, error) -> {
+            if (exchange.result.isCancelled()) {
+                exchange.attempts.forEach(attempt -> attempt.cancel(true));
+            }
+        });
+        return exchange.result;
+    }
+
+    /**
+     * {@link #completeAsync} for callers that only need the text
+     */
+    public CompletableFuture<String> chatCompletionAsync(String model, String systemPrompt, String userPrompt,
+                                                         double temperature, int maxTokens) {
+        CompletableFuture<Completion> completion = completeAsync(model, systemPrompt, userPrompt, temperature, maxTokens);
+        return LlmFutures.cancelling(completion.thenApply(Completion::content), completion);
+    }
+
+    /**
+     * The primary's recent p95 latency, or the initial delay until enough requests have been timed
+     */
+    private Duration hedgeDelay() {
+        LlmRouterProperties.Hedging hedging = properties.getHedging();
+        long nanos = primary.latencies().percentile(hedging.getPercentile(), hedging.getMinSamples());
+        Duration delay = nanos < 0 ? hedging.getInitialDelay() : Duration.ofNanos(nanos);
+        return delay.compareTo(hedging.getMinDelay()) < 0 ? hedging.getMinDelay() : delay;
+    }
+
+    /**
+     * One routed request and the backend attempts made for it
+     */
+    private final class Exchange {
+
+        private final String model;
+        private final String systemPrompt;
+        private final String userPrompt;
+        private final double temperature;
+        private final int maxTokens;
+        private final CompletableFuture<Completion> result = new CompletableFuture<>();
+        private final List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        private boolean primaryStarted;
+        private boolean secondaryStarted;
+        private int running;
+
+        private Exchange(String model, String systemPrompt, String userPrompt, double temperature, int maxTokens) {
+            this.model = model;
+            this.systemPrompt = systemPrompt;
+            this.userPrompt = userPrompt;
+            this.temperature = temperature;
+            this.maxTokens = maxTokens;
+        }
+
+        /**
+         * Sends the request to a backend unless it was already tried or its circuit is open
+         */
+        private boolean start(Backend backend) {
+            synchronized (this) {
+                boolean isPrimary = backend == primary;
+                if ((isPrimary ? primaryStarted : secondaryStarted) || result.isDone() || !backend.circuitBreaker().tryAcquire()) {
+                    return false;
+                }
+                if (isPrimary) {
+                    primaryStarted = true;
+                } else {
+                    secondaryStarted = true;
+                }
+                running++;
+            }
+
+            long startedAt = System.nanoTime();
+            CompletableFuture<String> attempt;
+            try {
+                attempt = backend.call().complete(model, systemPrompt, userPrompt, temperature, maxTokens);
+            } catch (RuntimeException e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            attempts.add(attempt);
+            if (result.isDone()) {
+                attempt.cancel(true);
+            }
+            attempt.whenComplete((content, error) -> finish(backend, startedAt, content, error));
+            return true;
+        }
+
+        private void finish(Backend backend, long startedAt, String content, Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause == null) {
+                backend.circuitBreaker().onSuccess();
+                backend.latencies().record(System.nanoTime() - startedAt);
+                if (result.complete(new Completion(content, backend.name(), backend == primary))) {
+                    meterRegistry.counter("llm.router.completions", "backend", backend.name()).increment();
+                    attempts.forEach(attempt -> attempt.cancel(true));
+                }
+            } else if (cause instanceof CancellationException) {
+                backend.circuitBreaker().onIgnored();
+            } else {
+                backend.circuitBreaker().onFailure();
+                log.warn("{} request failed: {}", backend.name(), cause.getMessage());
+            }
+
+            if (cause != null && !result.isDone()) {
+                Backend other = backend == primary ? secondary : primary;
+                if (other != null && start(other)) {
+                    log.debug("Failing over from {} to {}", backend.name(), other.name());
+                }
+            }
+            // Counted down after the failover so that a started fallback keeps the request open
+            boolean exhausted;
+            synchronized (this) {
+                running--;
+                exhausted = running == 0;
+            }
+            if (cause != null && exhausted) {
+                result.completeExceptionally(cause instanceof LlmClientException
+                    ? cause
+                    : new LlmClientException("LLM request failed: " + cause.getMessage(), cause));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface BackendCall {
+        CompletableFuture<String> complete(String model, String systemPrompt, String userPrompt, double temperature, int maxTokens);
+    }
+
+    private record Backend(String name, BackendCall call, CircuitBreaker circuitBreaker, LatencyWindow latencies) {}
+
+    /**
+     * Latencies of the most recent successful requests of a backend
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        private LatencyWindow(int capacity) {
+            this.samples = new long[Math.max(1, capacity)];
+        }
+
+        private synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        /**
+         * @return The percentile in nanoseconds, or -1 with fewer than minSamples samples
+         */
+        private synchronized long percentile(double percentile, int minSamples) {
+            if (size == 0 || size < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.worksync.ai.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.worksync.ai.config.HttpClientConfig.HttpClientProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @Component
@@ -20,10 +28,15 @@ public class OllamaClient {
     private String defaultModel;
 
     private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final HttpClientProperties httpClientProperties;
     private final ObjectMapper objectMapper;
 
-    public OllamaClient() {
-        this.restTemplate = new RestTemplate();
+    public OllamaClient(@Qualifier("llmRestTemplate") RestTemplate restTemplate,
+                        @Qualifier("llmHttpClient") HttpClient httpClient, HttpClientProperties httpClientProperties) {
+        this.restTemplate = restTemplate;
+        this.httpClient = httpClient;
+        this.httpClientProperties = httpClientProperties;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -70,6 +83,70 @@ public class OllamaClient {
         }
     }
 
+    /**
+     * Generates a completion with the default model without blocking the caller. The future
+     * completes exceptionally with an {@link LlmClientException} if the request fails, and
+     * cancelling it aborts the HTTP exchange.
+     */
+    public CompletableFuture<String> generateCompletionAsync(String systemPrompt, String userPrompt,
+                                                             double temperature, int maxTokens) {
+        HttpRequest request;
+        try {
+            // Combine system and user prompts
+            String fullPrompt = String.format("System: %s\n\nUser: %s", systemPrompt, userPrompt);
+
+            Map<String, Object> requestBody = Map.of(
+                "model", defaultModel,
+                "prompt", fullPrompt,
+                "stream", false,
+                "options", Map.of(
+                    "temperature", temperature,
+                    "num_predict", maxTokens
+                )
+            );
+            String body = objectMapper.writeValueAsString(requestBody);
+            log.debug("Request body for Ollama: {}", body);
+
+            request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/generate"))
+                .timeout(httpClientProperties.getReadTimeout())
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new LlmClientException("Could not build Ollama request: " + e.getMessage(), e));
+        }
+
+        log.debug("Sending request to Ollama API with model {}: {}", defaultModel, request.uri());
+        CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        return LlmFutures.cancelling(exchange.handle((response, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                throw new LlmClientException("Ollama request failed: " + cause.getMessage(), cause);
+            }
+            return parseGenerateResponse(response);
+        }), exchange);
+    }
+
+    private String parseGenerateResponse(HttpResponse<String> response) {
+        if (response.statusCode() != HttpStatus.OK.value()) {
+            throw new LlmClientException(
+                "Ollama API returned " + response.statusCode() + ": " + response.body(),
+                response.statusCode(),
+                null
+            );
+        }
+        try {
+            Map<?, ?> responseMap = objectMapper.readValue(response.body(), Map.class);
+            if (responseMap.get("response") instanceof String generatedResponse) {
+                log.debug("Generated response: {}", generatedResponse);
+                return generatedResponse;
+            }
+        } catch (Exception e) {
+            throw new LlmClientException("Could not parse Ollama response: " + e.getMessage(), e);
+        }
+        throw new LlmClientException("Ollama response contained no text: " + response.body(), response.statusCode(), null);
+    }
+
     public float[] generateEmbedding(String text) {
         try {
             String url = baseUrl + "/api/embeddings";
@@ -1,20 +1,34 @@
 package com.worksync.ai.client;
 
+import com.worksync.ai.config.HttpClientConfig.HttpClientProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Slf4j
 @Component
@@ -34,11 +48,16 @@ public class OpenRouterClient {
     @Value("${spring.ai.openai.base-url}")
     private String baseUrl;
 
-    private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final HttpClientProperties httpClientProperties;
+    private final LlmRateLimiter rateLimiter;
     private final ObjectMapper objectMapper;
 
-    public OpenRouterClient() {
-        this.restTemplate = new RestTemplate();
+    public OpenRouterClient(@Qualifier("llmHttpClient") HttpClient httpClient, HttpClientProperties httpClientProperties,
+                            @Qualifier("openRouterRateLimiter") LlmRateLimiter rateLimiter) {
+        this.httpClient = httpClient;
+        this.httpClientProperties = httpClientProperties;
+        this.rateLimiter = rateLimiter;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -52,65 +71,248 @@ public class OpenRouterClient {
         );
     }
 
+    /**
+     * Blocking variant of {@link #chatCompletionAsync}, returning null if the request fails
+     */
     public String chatCompletionWithModel(String model, String systemPrompt, String userPrompt, double temperature, int maxTokens) {
         try {
-            String url = baseUrl + "/chat/completions";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey.replace("Bearer ", ""));
-            headers.set("HTTP-Referer", "http://localhost:9091");
-            headers.set("X-Title", "WorkSync AI");
-
-            // Log the API key being used (first 10 chars)
-            String apiKeyPrefix = apiKey.length() > 10 ? apiKey.substring(0, 10) : apiKey;
-            log.debug("Using API key prefix: {}...", apiKeyPrefix);
-
-            Map<String, Object> requestBody = Map.of(
-                "model", model,
-                "messages", List.of(
-                    Map.of(
-                        "role", "system",
-                        "content", systemPrompt
-                    ),
-                    Map.of(
-                        "role", "user",
-                        "content", userPrompt
-                    )
+            return LlmFutures.await(chatCompletionAsync(model, systemPrompt, userPrompt, temperature, maxTokens));
+        } catch (LlmClientException e) {
+            log.error("Error calling OpenRouter API with model {}: {}", model, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Sends a chat completion request without blocking the caller. The request is paced by the
+     * rate limiter, which retries it on 429s and server errors. The future completes with the
+     * content of the first choice, or exceptionally with an {@link LlmClientException} once the
+     * retries are used up. Cancelling the future aborts the HTTP exchange.
+     */
+    public CompletableFuture<String> chatCompletionAsync(String model, String systemPrompt, String userPrompt,
+                                                         double temperature, int maxTokens) {
+        return send(model, chatRequestBody(model, systemPrompt, userPrompt, temperature, maxTokens, false),
+            HttpResponse.BodyHandlers.ofString(), this::parseChatResponse, () -> false);
+    }
+
+    /**
+     * Sends a chat completion request with {@code stream: true} and passes each content delta to
+     * {@code onToken} as the server-sent events arrive, on an HTTP client thread. The future
+     * completes with the full content once the stream ends, with the same errors and cancellation
+     * as {@link #chatCompletionAsync}. Once a token has been relayed the request is no longer
+     * retried, as a second attempt would pass the answer to {@code onToken} again from the start.
+     */
+    public CompletableFuture<String> chatCompletionStream(String model, String systemPrompt, String userPrompt,
+                                                          double temperature, int maxTokens, Consumer<String> onToken) {
+        AtomicBoolean relayed = new AtomicBoolean();
+        Consumer<String> relay = token -> {
+            relayed.set(true);
+            onToken.accept(token);
+        };
+        // Only successful responses are event streams; errors are read whole to report them
+        HttpResponse.BodyHandler<String> bodyHandler = responseInfo -> responseInfo.statusCode() == HttpStatus.OK.value()
+            ? HttpResponse.BodySubscribers.fromLineSubscriber(new ChatStreamSubscriber(relay), ChatStreamSubscriber::content,
+                StandardCharsets.UTF_8, null)
+            : HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+
+        return send(model, chatRequestBody(model, systemPrompt, userPrompt, temperature, maxTokens, true),
+            bodyHandler, response -> {
+                if (response.statusCode() != HttpStatus.OK.value()) {
+                    throw new LlmClientException(
+                        "OpenRouter API returned " + response.statusCode() + ": " + response.body(),
+                        response.statusCode(),
+                        retryAfter(response)
+                    );
+                }
+                return response.body();
+            }, relayed::get);
+    }
+
+    private Map<String, Object> chatRequestBody(String model, String systemPrompt, String userPrompt,
+                                                double temperature, int maxTokens, boolean stream) {
+        return Map.of(
+            "model", model,
+            "messages", List.of(
+                Map.of(
+                    "role", "system",
+                    "content", systemPrompt
                 ),
-                "max_tokens", maxTokens,
-                "temperature", temperature
-            );
+                Map.of(
+                    "role", "user",
+                    "content", userPrompt
+                )
+            ),
+            "max_tokens", maxTokens,
+            "temperature", temperature,
+            "stream", stream
+        );
+    }
 
+    private CompletableFuture<String> send(String model, Map<String, Object> requestBody,
+                                           HttpResponse.BodyHandler<String> bodyHandler,
+                                           Function<HttpResponse<String>, String> parser,
+                                           BooleanSupplier relayed) {
+        HttpRequest request;
+        try {
             // Log the request body for debugging
-            log.debug("Request body: {}", objectMapper.writeValueAsString(requestBody));
+            String body = objectMapper.writeValueAsString(requestBody);
+            log.debug("Request body: {}", body);
+            request = chatRequest(body);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new LlmClientException("Could not build OpenRouter request: " + e.getMessage(), e));
+        }
+
+        return rateLimiter.submit(() -> exchange(model, request, bodyHandler, parser, relayed));
+    }
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+    private CompletableFuture<String> exchange(String model, HttpRequest request,
+                                               HttpResponse.BodyHandler<String> bodyHandler,
+                                               Function<HttpResponse<String>, String> parser,
+                                               BooleanSupplier relayed) {
+        log.debug("Sending request to OpenRouter API with model {}: {}", model, request.uri());
+        CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(request, bodyHandler);
+        CompletableFuture<String> content = exchange
+            .handle((response, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof LlmClientException llmClientException
+                        && !(relayed.getAsBoolean() && llmClientException.isRetryable())) {
+                        throw llmClientException;
+                    }
+                    if (relayed.getAsBoolean()) {
+                        // Part of the answer is already out, so this failure must not be retried
+                        throw new LlmClientException("OpenRouter stream broke off: " + cause.getMessage(), cause, HttpStatus.OK.value());
+                    }
+                    throw new LlmClientException("OpenRouter request failed: " + cause.getMessage(), cause);
+                }
+                return parser.apply(response);
+            });
+        return LlmFutures.cancelling(content, exchange);
+    }
 
-            log.debug("Sending request to OpenRouter API with model {}: {}", model, url);
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                url, entity, String.class);
+    /**
+     * Reads the server-sent events of a streamed completion line by line. Each event is a
+     * {@code data:} line holding a chunk whose first choice carries a content delta; the stream
+     * ends with {@code data: [DONE]}. Lines starting with a colon are keep-alive comments.
+     */
+    private final class ChatStreamSubscriber implements Flow.Subscriber<String> {
 
-            log.debug("Response status: {}", response.getStatusCode());
-            log.debug("Response body: {}", response.getBody());
+        private final Consumer<String> onToken;
+        private final StringBuilder content = new StringBuilder();
+        private String error;
 
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseMap = objectMapper.readValue(response.getBody(), Map.class);
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) responseMap.get("choices");
-                if (choices != null && !choices.isEmpty()) {
-                    Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                    return (String) message.get("content");
+        private ChatStreamSubscriber(Consumer<String> onToken) {
+            this.onToken = onToken;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onNext(String line) {
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            String data = line.substring("data:".length()).trim();
+            if (data.isEmpty() || data.equals("[DONE]")) {
+                return;
+            }
+            try {
+                Map<String, Object> chunk = objectMapper.readValue(data, Map.class);
+                if (chunk.get("error") != null) {
+                    error = String.valueOf(chunk.get("error"));
+                    return;
                 }
+                List<Map<String, Object>> choices = (List<Map<String, Object>>) chunk.get("choices");
+                if (choices == null || choices.isEmpty()) {
+                    return;
+                }
+                Map<String, Object> delta = (Map<String, Object>) choices.get(0).get("delta");
+                if (delta != null && delta.get("content") instanceof String token && !token.isEmpty()) {
+                    content.append(token);
+                    onToken.accept(token);
+                }
+            } catch (Exception e) {
+                log.warn("Skipping unreadable OpenRouter stream event: {}", e.getMessage());
             }
+        }
 
-            log.error("Unexpected response from OpenRouter API: {} with body: {}", 
-                response.getStatusCode(), response.getBody());
-            return null;
+        @Override
+        public void onError(Throwable throwable) {
+            // Reported through the response future
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        private String content() {
+            if (error != null) {
+                throw new LlmClientException("OpenRouter stream failed: " + error, HttpStatus.OK.value(), null);
+            }
+            return content.toString();
+        }
+    }
 
+    private HttpRequest chatRequest(String body) {
+        // Log the API key being used (first 10 chars)
+        String apiKeyPrefix = apiKey.length() > 10 ? apiKey.substring(0, 10) : apiKey;
+        log.debug("Using API key prefix: {}...", apiKeyPrefix);
+
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/chat/completions"))
+            .timeout(httpClientProperties.getReadTimeout())
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey.replace("Bearer ", ""))
+            .header("HTTP-Referer", "http://localhost:9091")
+            .header("X-Title", "WorkSync AI")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private String parseChatResponse(HttpResponse<String> response) {
+        log.debug("Response status: {}", response.statusCode());
+        log.debug("Response body: {}", response.body());
+
+        if (response.statusCode() != HttpStatus.OK.value()) {
+            throw new LlmClientException(
+                "OpenRouter API returned " + response.statusCode() + ": " + response.body(),
+                response.statusCode(),
+                retryAfter(response)
+            );
+        }
+
+        try {
+            Map<String, Object> responseMap = objectMapper.readValue(response.body(), Map.class);
+            List<Map<String, Object>> choices = (List<Map<String, Object>>) responseMap.get("choices");
+            if (choices != null && !choices.isEmpty()) {
+                Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
+                if (message != null && message.get("content") != null) {
+                    return (String) message.get("content");
+                }
+            }
         } catch (Exception e) {
-            log.error("Error calling OpenRouter API with model {}: {}", model, e.getMessage(), e);
-            return null;
+            throw new LlmClientException("Could not parse OpenRouter response: " + e.getMessage(), e);
         }
+        throw new LlmClientException("OpenRouter response contained no choices: " + response.body(), response.statusCode(), null);
+    }
+
+    /**
+     * Retry-After in seconds; the HTTP-date form is not used by the providers we call
+     */
+    private Duration retryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue(HttpHeaders.RETRY_AFTER)
+            .map(value -> {
+                try {
+                    return Duration.ofSeconds(Long.parseLong(value.trim()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            })
+            .orElse(null);
     }
 
     public float[] generateEmbedding(String text) {
@@ -0,0 +1,28 @@
+package com.worksync.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AggregationConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "streaming-aggregation")
+    public StreamingAggregationProperties streamingAggregationProperties() {
+        return new StreamingAggregationProperties();
+    }
+
+    @Data
+    public static class StreamingAggregationProperties {
+        // Aggregate events as they are consumed instead of re-reading them every hour
+        private boolean enabled = false;
+        // Length of the tumbling windows; must divide a day evenly
+        private int windowMinutes = 60;
+        // How long a window stays open after its end for events that arrive late
+        private long allowedLatenessSeconds = 120;
+        // How often closed windows are written to the aggregation index
+        private long flushIntervalMs = 30_000;
+    }
+}
@@ -1,12 +1,12 @@
 package com.worksync.ai.config;
 
 import org.springframework.context.annotation.Configuration;
-import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
 @EnableScheduling
-@EnableRetry
+@EnableAsync
 public class ApplicationConfig {
     // Configuration beans can be added here if needed
 } 
\ No newline at end of file
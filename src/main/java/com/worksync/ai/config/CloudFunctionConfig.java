@@ -5,6 +5,8 @@ import com.worksync.ai.model.AppUsageEvent;
 import com.worksync.ai.model.SecurityEvent;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.messaging.Message;
+import java.util.List;
 import java.util.function.Consumer;
 import com.worksync.ai.consumer.EventConsumer;
 
@@ -12,17 +14,17 @@ import com.worksync.ai.consumer.EventConsumer;
 public class CloudFunctionConfig {
 
     @Bean("registeredAppUsageConsumer")
-    public Consumer<AppUsageEvent> appUsageConsumer(EventConsumer eventConsumer) {
-        return eventConsumer.appUsageConsumer();
+    public Consumer<Message<List<AppUsageEvent>>> appUsageConsumer(EventConsumer eventConsumer) {
+        return eventConsumer.appUsageBatchConsumer();
     }
 
     @Bean("registeredAlertConsumer")
-    public Consumer<AlertEvent> alertConsumer(EventConsumer eventConsumer) {
-        return eventConsumer.alertConsumer();
+    public Consumer<Message<List<AlertEvent>>> alertConsumer(EventConsumer eventConsumer) {
+        return eventConsumer.alertBatchConsumer();
     }
 
     @Bean("registeredSecurityConsumer")
-    public Consumer<SecurityEvent> securityConsumer(EventConsumer eventConsumer) {
-        return eventConsumer.securityConsumer();
+    public Consumer<Message<List<SecurityEvent>>> securityConsumer(EventConsumer eventConsumer) {
+        return eventConsumer.securityBatchConsumer();
     }
 } 
\ No newline at end of file
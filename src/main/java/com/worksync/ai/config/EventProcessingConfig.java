@@ -1,13 +1,17 @@
 package com.worksync.ai.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import lombok.AllArgsConstructor;
 import lombok.Data;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import com.worksync.ai.model.AppUsageEvent;
-import com.worksync.ai.model.SecurityEvent;
-import com.worksync.ai.model.AlertEvent;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class EventProcessingConfig {
@@ -18,40 +22,92 @@ public class EventProcessingConfig {
         return new PriorityProcessingProperties();
     }
 
-    @Bean
-    public ConcurrentLinkedQueue<AppUsageEvent> highPriorityAppUsageQueue() {
-        return new ConcurrentLinkedQueue<>();
-    }
-
-    @Bean
-    public ConcurrentLinkedQueue<AppUsageEvent> normalPriorityAppUsageQueue() {
-        return new ConcurrentLinkedQueue<>();
+    /**
+     * Runs one worker per dispatch lane. With {@code spring.threads.virtual.enabled} the workers
+     * run on virtual threads, which unmount while they wait on Elasticsearch.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService eventDispatchExecutor(PriorityProcessingProperties priorityProcessingProperties,
+                                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("event-dispatch-", 1).factory());
+        }
+        return Executors.newFixedThreadPool(
+            priorityProcessingProperties.getWorkers(),
+            new CustomizableThreadFactory("event-dispatch-")
+        );
     }
 
-    @Bean
-    public ConcurrentLinkedQueue<SecurityEvent> highPrioritySecurityQueue() {
-        return new ConcurrentLinkedQueue<>();
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService eventRetryExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("event-retry-", 1).factory());
+        }
+        return Executors.newSingleThreadExecutor(new CustomizableThreadFactory("event-retry-"));
     }
 
-    @Bean
-    public ConcurrentLinkedQueue<SecurityEvent> normalPrioritySecurityQueue() {
-        return new ConcurrentLinkedQueue<>();
-    }
+    @Data
+    public static class PriorityProcessingProperties {
+        // Number of dispatch lanes, each drained by one worker thread; events are sharded onto lanes by employee ID
+        private int workers = 4;
+        // Maximum number of events persisted per bulk request
+        private int batchSize = 500;
+        // How long an idle worker waits for new events before re-checking
+        private long pollTimeoutMs = 200;
+        // How long a consumer blocks on a full queue before the poll is rejected
+        private long enqueueTimeoutMs = 5000;
+        // Queue fill ratio at which the Kafka bindings are paused
+        private double pauseThreshold = 0.9;
+        // Queue fill ratio at which paused bindings are resumed
+        private double resumeThreshold = 0.5;
+        // Bindings paused and resumed for backpressure
+        private List<String> bindings = List.of(
+            "registeredAppUsageConsumer-in-0",
+            "registeredAlertConsumer-in-0",
+            "registeredSecurityConsumer-in-0"
+        );
+        private Level critical = new Level(10_000, 8);
+        private Level high = new Level(50_000, 4);
+        private Level normal = new Level(100_000, 1);
+        private Spill spill = new Spill();
+        private Retry retry = new Retry();
 
-    @Bean
-    public ConcurrentLinkedQueue<AlertEvent> highPriorityAlertQueue() {
-        return new ConcurrentLinkedQueue<>();
-    }
+        @Data
+        @NoArgsConstructor
+        @AllArgsConstructor
+        public static class Level {
+            // Maximum number of events held in memory for this level, split evenly across the lanes
+            private int capacity;
+            // Relative share of each drain round given to this level
+            private int weight;
+        }
 
-    @Bean
-    public ConcurrentLinkedQueue<AlertEvent> normalPriorityAlertQueue() {
-        return new ConcurrentLinkedQueue<>();
-    }
+        @Data
+        public static class Spill {
+            // Spill HIGH and NORMAL overflow to disk instead of blocking the consumers
+            private boolean enabled = false;
+            private String directory = "./data/spill";
+            private int segmentSizeMb = 64;
+            // Upper bound on segments per level, shared by the lanes; once a lane reaches its share, consumers block as without spilling
+            private int maxSegments = 64;
+            // Flush appended records to the device before returning to the consumer
+            private boolean forceOnWrite = true;
+        }
 
-    @Data
-    public static class PriorityProcessingProperties {
-        private long critical;
-        private long high;
-        private long normal;
+        @Data
+        public static class Retry {
+            // Write attempts after the first failure before an event is dead-lettered
+            private int maxAttempts = 5;
+            private long initialBackoffMs = 1000;
+            private double multiplier = 2.0;
+            private long maxBackoffMs = 60_000;
+            // Random spread applied to each backoff, as a fraction of it
+            private double jitter = 0.2;
+            // Maximum number of events per retried bulk request
+            private int batchSize = 500;
+            // Events waiting for a retry beyond this are dead-lettered right away
+            private int capacity = 50_000;
+            private String deadLetterBinding = "eventDeadLetter-out-0";
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.worksync.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * HTTP client shared by the LLM clients. The JDK client keeps connections alive in its own pool
+ * and multiplexes requests over one connection per host with HTTP/2, falling back to HTTP/1.1
+ * when the server does not negotiate it, so parallel summarization reuses connections instead of
+ * handshaking per request.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "http-client")
+    public HttpClientProperties httpClientProperties() {
+        return new HttpClientProperties();
+    }
+
+    @Bean(destroyMethod = "close")
+    public HttpClient llmHttpClient(HttpClientProperties httpClientProperties) {
+        return HttpClient.newBuilder()
+            .version(httpClientProperties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+            .connectTimeout(httpClientProperties.getConnectTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+
+    @Bean
+    public RestTemplate llmRestTemplate(HttpClient llmHttpClient, HttpClientProperties httpClientProperties) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(llmHttpClient);
+        requestFactory.setReadTimeout(httpClientProperties.getReadTimeout());
+        return new RestTemplate(requestFactory);
+    }
+
+    @Data
+    public static class HttpClientProperties {
+        // Time allowed to establish a connection
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        // Time allowed for a whole response, which for chat completions includes generation
+        private Duration readTimeout = Duration.ofSeconds(120);
+        // Negotiate HTTP/2 where the server supports it
+        private boolean http2 = true;
+    }
+}
@@ -0,0 +1,60 @@
+package com.worksync.ai.config;
+
+import com.worksync.ai.client.LlmRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+public class LlmRateLimitConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "openrouter.rate-limit")
+    public LlmRateLimitProperties openRouterRateLimitProperties() {
+        return new LlmRateLimitProperties();
+    }
+
+    /**
+     * Admits queued requests and schedules retries. Requests are only started here, never waited
+     * on, so one thread is enough.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService llmRateLimitScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("llm-rate-limit-"));
+    }
+
+    @Bean
+    public LlmRateLimiter openRouterRateLimiter(LlmRateLimitProperties openRouterRateLimitProperties,
+                                                ScheduledExecutorService llmRateLimitScheduler,
+                                                MeterRegistry meterRegistry) {
+        return new LlmRateLimiter("openrouter", openRouterRateLimitProperties, llmRateLimitScheduler, meterRegistry);
+    }
+
+    @Data
+    public static class LlmRateLimitProperties {
+        private boolean enabled = true;
+        // Sustained request rate of the token bucket
+        private double requestsPerSecond = 5.0;
+        // Requests that may be sent at once after an idle period
+        private int burst = 10;
+        // Requests in flight allowed at start, before the limit adapts
+        private int initialConcurrency = 4;
+        private int minConcurrency = 1;
+        private int maxConcurrency = 32;
+        // Responses slower than this lower the concurrency limit like a 429 does
+        private Duration latencyThreshold = Duration.ofSeconds(60);
+        // Factor the concurrency limit is multiplied by on a 429 or a slow response
+        private double backoffRatio = 0.7;
+        // Retries of a request failing with a 429, a server error or a connection error
+        private int maxRetries = 3;
+        // Delay before the first retry when the provider sends no Retry-After, doubled for each further one
+        private Duration retryBackoff = Duration.ofSeconds(2);
+    }
+}
@@ -0,0 +1,50 @@
+package com.worksync.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class LlmRouterConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "llm.router")
+    public LlmRouterProperties llmRouterProperties() {
+        return new LlmRouterProperties();
+    }
+
+    @Data
+    public static class LlmRouterProperties {
+        // Backend every request is sent to first: openrouter or ollama
+        private String primary = "openrouter";
+        // Backend used for hedging and failover; empty to use the primary only
+        private String secondary = "ollama";
+        private Hedging hedging = new Hedging();
+        private CircuitBreakerSettings circuitBreaker = new CircuitBreakerSettings();
+
+        @Data
+        public static class Hedging {
+            private boolean enabled = true;
+            // Latency percentile of the primary after which a request is also sent to the secondary
+            private double percentile = 0.95;
+            // Successful primary requests kept to compute the percentile
+            private int windowSize = 200;
+            // Requests timed before the percentile is used instead of the initial delay
+            private int minSamples = 20;
+            private Duration initialDelay = Duration.ofSeconds(20);
+            // Lower bound of the hedge delay, so fast backends are not hedged on every jitter
+            private Duration minDelay = Duration.ofSeconds(2);
+        }
+
+        @Data
+        public static class CircuitBreakerSettings {
+            // Consecutive failures after which a backend is skipped
+            private int failureThreshold = 5;
+            // Time a backend is skipped before a trial request is sent
+            private Duration openDuration = Duration.ofSeconds(30);
+        }
+    }
+}
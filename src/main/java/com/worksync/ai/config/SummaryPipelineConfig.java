@@ -0,0 +1,54 @@
+package com.worksync.ai.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class SummaryPipelineConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "summary.pipeline")
+    public SummaryPipelineProperties summaryPipelineProperties() {
+        return new SummaryPipelineProperties();
+    }
+
+    /**
+     * Runs the per-employee summary tasks. The pipeline bounds how many are in flight, so the
+     * pool only needs one thread per concurrent task, or a virtual thread each in virtual-thread mode.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService summaryPipelineExecutor(SummaryPipelineProperties summaryPipelineProperties,
+                                                   @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("summary-pipeline-", 1).factory());
+        }
+        return Executors.newFixedThreadPool(
+            summaryPipelineProperties.getConcurrency(),
+            new CustomizableThreadFactory("summary-pipeline-")
+        );
+    }
+
+    @Data
+    public static class SummaryPipelineProperties {
+        // Employees summarized and embedded at the same time
+        private int concurrency = 8;
+        // Time after the start of a run at which unfinished employees are cancelled
+        private Duration deadline = Duration.ofMinutes(55);
+        // Completed employees between two progress log lines
+        private int progressLogInterval = 100;
+        // Earlier hours checked for windows the ledger does not record as completed
+        private int backfillHours = 24;
+        // Failed attempts after which an employee is left out of resumed runs of a window
+        private int maxEmployeeAttempts = 3;
+        // Resume unfinished windows when the application starts instead of at the next hour
+        private boolean resumeOnStartup = true;
+    }
+}
@@ -0,0 +1,58 @@
+package com.worksync.ai.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class VectorIndexConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "vector-index")
+    public VectorIndexProperties vectorIndexProperties() {
+        return new VectorIndexProperties();
+    }
+
+    @Data
+    public static class VectorIndexProperties {
+        // Serve similarity searches from an in-process HNSW index instead of Elasticsearch
+        private boolean enabled = false;
+        private int dimensions = 1536;
+        // Neighbours per node on the upper layers, twice as many on the bottom layer
+        private int m = 16;
+        // Beam width used while inserting; higher builds a better graph more slowly
+        private int efConstruction = 200;
+        // Beam width used while searching; higher raises recall and latency
+        private int efSearch = 100;
+        // Summaries read per page when the index is loaded at startup
+        private int loadPageSize = 1000;
+        private Arena arena = new Arena();
+        private Quantization quantization = new Quantization();
+    }
+
+    @Data
+    public static class Arena {
+        // Keep the normalized embeddings in memory-mapped files instead of on the heap, also used
+        // for exact scans and for restarts without reading every embedding back from Elasticsearch
+        private boolean enabled = false;
+        private String directory = "./data/vector-arena";
+        // Vectors per mapped region; one region must stay under 2 GB
+        private int vectorsPerChunk = 65536;
+    }
+
+    @Data
+    public static class Quantization {
+        // Vectors held by the in-process index: none (4 bytes per dimension), int8 (1 byte per
+        // dimension) or pq (1 byte per subspace). int8 and pq need the arena for re-ranking
+        private String type = "none";
+        // Candidates per requested result re-ranked at full precision from the arena
+        private int rerankFactor = 4;
+        // Product quantization: subspaces, codebook centroids per subspace (at most 256), and the
+        // vectors and k-means iterations it is trained with when the index is loaded
+        private int pqSubspaces = 192;
+        private int pqCentroids = 256;
+        private int pqTrainingSample = 10000;
+        private int pqIterations = 8;
+    }
+}
@@ -0,0 +1,67 @@
+package com.worksync.ai.config;
+
+import com.worksync.ai.entity.EventSummary;
+import com.worksync.ai.model.entity.SummaryVector;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates the indices holding summary embeddings, which their repositories leave alone, with the
+ * embedding field indexed in an HNSW graph for cosine kNN search. With int8 quantization the graph
+ * is built on quantized vectors; Elasticsearch keeps the float vectors as well and uses them to
+ * re-score the nearest candidates.
+ */
+@Slf4j
+@Configuration
+public class VectorMappingConfig {
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    // none or int8
+    @Value("${vector-search.quantization:none}")
+    private String quantization;
+
+    @Value("${vector-search.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${vector-search.hnsw.ef-construction:100}")
+    private int hnswEfConstruction;
+
+    @PostConstruct
+    public void createVectorIndices() {
+        createIndex(SummaryVector.class);
+        createIndex(EventSummary.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void createIndex(Class<?> entity) {
+        IndexOperations indexOps = elasticsearchOperations.indexOps(entity);
+        if (indexOps.exists()) {
+            // The index options of an existing vector field cannot be changed; reindex to apply them
+            return;
+        }
+        Document mapping = indexOps.createMapping();
+        Map<String, Object> properties = (Map<String, Object>) mapping.get("properties");
+        Map<String, Object> embedding = (Map<String, Object>) properties.get("embedding");
+        Map<String, Object> indexOptions = new LinkedHashMap<>();
+        indexOptions.put("type", "int8".equalsIgnoreCase(quantization) ? "int8_hnsw" : "hnsw");
+        indexOptions.put("m", hnswM);
+        indexOptions.put("ef_construction", hnswEfConstruction);
+        embedding.put("index", true);
+        embedding.put("similarity", "cosine");
+        embedding.put("index_options", indexOptions);
+        indexOps.create(indexOps.createSettings(), mapping);
+        log.info("Created index {} with {} vector quantization", indexOps.getIndexCoordinates().getIndexName(),
+            quantization);
+    }
+}
@@ -0,0 +1,91 @@
+package com.worksync.ai.consumer;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the events of one Kafka poll until every one of them is persisted,
+ * after which {@link OffsetCommitTracker} may acknowledge the poll.
+ */
+public class AckTicket {
+
+    /**
+     * Ticket for events that did not come from a manually acknowledged poll
+     */
+    public static final AckTicket NONE = new AckTicket(null, null, Map.of(), 0);
+
+    private final OffsetCommitTracker tracker;
+    private final Acknowledgment acknowledgment;
+    private final Map<TopicPartition, Long> nextOffsets;
+    private final AtomicInteger remaining;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile boolean discarded;
+    private volatile boolean revoked;
+    private volatile boolean acknowledged;
+
+    AckTicket(OffsetCommitTracker tracker, Acknowledgment acknowledgment,
+              Map<TopicPartition, Long> nextOffsets, int eventCount) {
+        this.tracker = tracker;
+        this.acknowledgment = acknowledgment;
+        this.nextOffsets = nextOffsets;
+        this.remaining = new AtomicInteger(eventCount);
+    }
+
+    /**
+     * Marks {@code count} events of the poll as durably stored
+     */
+    public void complete(int count) {
+        if (tracker != null && count > 0 && remaining.addAndGet(-count) == 0) {
+            tracker.onComplete(this);
+        }
+    }
+
+    boolean isComplete() {
+        return remaining.get() <= 0;
+    }
+
+    Acknowledgment getAcknowledgment() {
+        return acknowledgment;
+    }
+
+    /**
+     * Per partition, the offset the consumer group resumes from once this poll is committed
+     */
+    Map<TopicPartition, Long> getNextOffsets() {
+        return nextOffsets;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    boolean isDiscarded() {
+        return discarded;
+    }
+
+    void markDiscarded() {
+        this.discarded = true;
+    }
+
+    /**
+     * Whether a partition of the poll was revoked, after which the poll is never acknowledged
+     */
+    boolean isRevoked() {
+        return revoked;
+    }
+
+    void markRevoked() {
+        this.revoked = true;
+    }
+
+    boolean isAcknowledged() {
+        return acknowledged;
+    }
+
+    void markAcknowledged() {
+        this.acknowledged = true;
+    }
+}
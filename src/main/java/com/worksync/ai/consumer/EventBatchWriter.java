@@ -0,0 +1,106 @@
+package com.worksync.ai.consumer;
+
+import com.worksync.ai.model.AlertEvent;
+import com.worksync.ai.model.AppUsageEvent;
+import com.worksync.ai.model.BaseEvent;
+import com.worksync.ai.model.SecurityEvent;
+import com.worksync.ai.model.dto.BulkPersistResult;
+import com.worksync.ai.service.EventProcessingService;
+import com.worksync.ai.service.StreamingAggregationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists batches of queued events through the bulk methods of {@link EventProcessingService}
+ * and completes the tickets of the events that were stored. Stored events also feed the
+ * streaming aggregation, so events that are dead-lettered are never counted. Shared by the
+ * dispatch workers and the retry stage.
+ */
+@Slf4j
+@Component
+public class EventBatchWriter {
+
+    @Autowired
+    private EventProcessingService eventProcessingService;
+
+    @Autowired
+    private StreamingAggregationService streamingAggregationService;
+
+    /**
+     * An event that could not be persisted, with the error reported for it
+     */
+    public record FailedEvent(QueuedEvent queuedEvent, String reason) {}
+
+    /**
+     * Persists a batch grouped by event type. Never throws; store errors are reported per event.
+     *
+     * @return The events that could not be persisted
+     */
+    public List<FailedEvent> write(List<QueuedEvent> batch) {
+        List<AppUsageEvent> appUsageEvents = new ArrayList<>();
+        List<SecurityEvent> securityEvents = new ArrayList<>();
+        List<AlertEvent> alertEvents = new ArrayList<>();
+        Map<BaseEvent, QueuedEvent> queuedEvents = new IdentityHashMap<>();
+        List<QueuedEvent> unsupported = new ArrayList<>();
+
+        for (QueuedEvent queuedEvent : batch) {
+            BaseEvent event = queuedEvent.event();
+            queuedEvents.put(event, queuedEvent);
+            if (event instanceof AppUsageEvent appUsageEvent) {
+                appUsageEvents.add(appUsageEvent);
+            } else if (event instanceof SecurityEvent securityEvent) {
+                securityEvents.add(securityEvent);
+            } else if (event instanceof AlertEvent alertEvent) {
+                alertEvents.add(alertEvent);
+            } else {
+                log.warn("Dropping event of unsupported type {}", event.getClass().getSimpleName());
+                unsupported.add(queuedEvent);
+            }
+        }
+        completeTickets(unsupported);
+
+        List<FailedEvent> failed = new ArrayList<>();
+        if (!appUsageEvents.isEmpty()) {
+            failed.addAll(settle(eventProcessingService.processAppUsageEvents(appUsageEvents), queuedEvents, "AppUsageEvent"));
+        }
+        if (!securityEvents.isEmpty()) {
+            failed.addAll(settle(eventProcessingService.processSecurityEvents(securityEvents), queuedEvents, "SecurityEvent"));
+        }
+        if (!alertEvents.isEmpty()) {
+            failed.addAll(settle(eventProcessingService.processAlertEvents(alertEvents), queuedEvents, "AlertEvent"));
+        }
+        return failed;
+    }
+
+    /**
+     * Marks events as durably stored on the tickets of their polls
+     */
+    public void completeTickets(List<QueuedEvent> events) {
+        Map<AckTicket, Integer> counts = new IdentityHashMap<>();
+        events.forEach(queuedEvent -> counts.merge(queuedEvent.ticket(), 1, Integer::sum));
+        counts.forEach(AckTicket::complete);
+    }
+
+    private List<FailedEvent> settle(BulkPersistResult<? extends BaseEvent> result,
+                                     Map<BaseEvent, QueuedEvent> queuedEvents,
+                                     String eventType) {
+        completeTickets(result.persisted().stream().map(queuedEvents::get).toList());
+        streamingAggregationService.record(result.persisted());
+        if (!result.hasFailures()) {
+            return List.of();
+        }
+
+        log.warn("Failed to persist {} of {} {} events: {}", result.failed().size(),
+            result.failed().size() + result.persisted().size(), eventType, result.failureReasons());
+        return result.failed().stream()
+            .map(event -> new FailedEvent(queuedEvents.get(event),
+                result.failureReasons().getOrDefault(event.getEventId(), "Unknown bulk indexing error")))
+            .toList();
+    }
+}
@@ -1,21 +1,17 @@
 package com.worksync.ai.consumer;
 
-import com.worksync.ai.config.EventProcessingConfig.PriorityProcessingProperties;
 import com.worksync.ai.model.AppUsageEvent;
 import com.worksync.ai.model.SecurityEvent;
 import com.worksync.ai.model.AlertEvent;
-import com.worksync.ai.model.enums.Priority;
-import com.worksync.ai.service.EventProcessingService;
+import com.worksync.ai.model.BaseEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
-import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.List;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 @Slf4j
@@ -23,115 +19,82 @@ import java.util.function.Consumer;
 public class EventConsumer {
 
     @Autowired
-    private EventProcessingService eventProcessingService;
+    private PriorityEventDispatcher priorityEventDispatcher;
 
     @Autowired
-    private PriorityProcessingProperties processingProperties;
-
-    @Autowired
-    private ConcurrentLinkedQueue<AppUsageEvent> highPriorityAppUsageQueue;
-
-    @Autowired
-    private ConcurrentLinkedQueue<AppUsageEvent> normalPriorityAppUsageQueue;
-
-    @Autowired
-    private ConcurrentLinkedQueue<SecurityEvent> highPrioritySecurityQueue;
-
-    @Autowired
-    private ConcurrentLinkedQueue<SecurityEvent> normalPrioritySecurityQueue;
-
-    @Autowired
-    private ConcurrentLinkedQueue<AlertEvent> highPriorityAlertQueue;
-
-    @Autowired
-    private ConcurrentLinkedQueue<AlertEvent> normalPriorityAlertQueue;
+    private OffsetCommitTracker offsetCommitTracker;
 
     @Bean
     public Consumer<AppUsageEvent> appUsageConsumer() {
         return event -> {
-            try {
-                log.debug("Received AppUsageEvent: {}", event);
-
-                if (event.getPriority() == Priority.CRITICAL) {
-                    eventProcessingService.processAppUsageEvent(event);
-                } else if (event.getPriority() == Priority.HIGH) {
-                    highPriorityAppUsageQueue.offer(event);
-                } else {
-                    normalPriorityAppUsageQueue.offer(event);
-                }
-            } catch (Exception e) {
-                log.error("Error processing AppUsageEvent: {}", e.getMessage(), e);
-                throw e;
-            }
+            log.debug("Received AppUsageEvent: {}", event);
+            dispatch(List.of(event), AckTicket.NONE, "AppUsageEvent");
         };
     }
 
     @Bean
     public Consumer<SecurityEvent> securityConsumer() {
         return event -> {
-            try {
-                log.debug("Received SecurityEvent: {}", event);
-
-                if (event.getPriority() == Priority.CRITICAL) {
-                    eventProcessingService.processSecurityEvent(event);
-                } else if (event.getPriority() == Priority.HIGH) {
-                    highPrioritySecurityQueue.offer(event);
-                } else {
-                    normalPrioritySecurityQueue.offer(event);
-                }
-            } catch (Exception e) {
-                log.error("Error processing SecurityEvent: {}", e.getMessage(), e);
-                throw e;
-            }
+            log.debug("Received SecurityEvent: {}", event);
+            dispatch(List.of(event), AckTicket.NONE, "SecurityEvent");
         };
     }
 
     @Bean
     public Consumer<AlertEvent> alertConsumer() {
         return event -> {
-            try {
-                log.debug("Received AlertEvent: {}", event);
+            log.debug("Received AlertEvent: {}", event);
+            dispatch(List.of(event), AckTicket.NONE, "AlertEvent");
+        };
+    }
 
-                if (event.getPriority() == Priority.CRITICAL) {
-                    eventProcessingService.processAlertEvent(event);
-                } else if (event.getPriority() == Priority.HIGH) {
-                    highPriorityAlertQueue.offer(event);
-                } else {
-                    normalPriorityAlertQueue.offer(event);
-                }
-            } catch (Exception e) {
-                log.error("Error processing AlertEvent: {}", e.getMessage(), e);
-                throw e;
-            }
+    @Bean
+    public Consumer<Message<List<AppUsageEvent>>> appUsageBatchConsumer() {
+        return message -> {
+            log.debug("Received batch of {} AppUsageEvents", message.getPayload().size());
+            dispatchPoll(message, "AppUsageEvent");
         };
     }
 
-    @Scheduled(fixedRateString = "${priority-processing.high}")
-    public void processHighPriorityQueues() {
-        processQueue(highPriorityAppUsageQueue, eventProcessingService::processAppUsageEvent, "AppUsageEvent");
-        processQueue(highPrioritySecurityQueue, eventProcessingService::processSecurityEvent, "SecurityEvent");
-        processQueue(highPriorityAlertQueue, eventProcessingService::processAlertEvent, "AlertEvent");
+    @Bean
+    public Consumer<Message<List<SecurityEvent>>> securityBatchConsumer() {
+        return message -> {
+            log.debug("Received batch of {} SecurityEvents", message.getPayload().size());
+            dispatchPoll(message, "SecurityEvent");
+        };
+    }
+
+    @Bean
+    public Consumer<Message<List<AlertEvent>>> alertBatchConsumer() {
+        return message -> {
+            log.debug("Received batch of {} AlertEvents", message.getPayload().size());
+            dispatchPoll(message, "AlertEvent");
+        };
     }
 
-    @Scheduled(fixedRateString = "${priority-processing.normal}")
-    public void processNormalPriorityQueues() {
-        processQueue(normalPriorityAppUsageQueue, eventProcessingService::processAppUsageEvent, "AppUsageEvent");
-        processQueue(normalPrioritySecurityQueue, eventProcessingService::processSecurityEvent, "SecurityEvent");
-        processQueue(normalPriorityAlertQueue, eventProcessingService::processAlertEvent, "AlertEvent");
+    /**
+     * Hands a poll to the priority dispatcher together with a ticket that acknowledges the poll
+     * once all of its events are persisted.
+     */
+    private void dispatchPoll(Message<? extends List<? extends BaseEvent>> message, String eventType) {
+        List<? extends BaseEvent> events = message.getPayload().stream()
+            .filter(Objects::nonNull)
+            .toList();
+        AckTicket ticket = offsetCommitTracker.register(message, events.size());
+        dispatch(events, ticket, eventType);
     }
 
-    private <T> void processQueue(ConcurrentLinkedQueue<T> queue, Consumer<T> processor, String eventType) {
+    /**
+     * A rejection discards the ticket and is rethrown so the binder redelivers the poll
+     * instead of committing its offsets.
+     */
+    private void dispatch(List<? extends BaseEvent> events, AckTicket ticket, String eventType) {
         try {
-            T event;
-            while ((event = queue.poll()) != null) {
-                try {
-                    processor.accept(event);
-                } catch (Exception e) {
-                    log.error("Error processing {} from queue: {}", eventType, e.getMessage(), e);
-                }
-            }
+            priorityEventDispatcher.enqueue(events, ticket);
         } catch (Exception e) {
-            log.error("Error processing {} queue: {}", eventType, e.getMessage(), e);
+            log.error("Error processing {} batch: {}", eventType, e.getMessage(), e);
+            offsetCommitTracker.discard(ticket);
+            throw e;
         }
     }
-} 
\ No newline at end of file
+}
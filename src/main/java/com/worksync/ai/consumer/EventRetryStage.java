@@ -0,0 +1,229 @@
+package com.worksync.ai.consumer;
+
+import com.worksync.ai.config.EventProcessingConfig.PriorityProcessingProperties;
+import com.worksync.ai.config.EventProcessingConfig.PriorityProcessingProperties.Retry;
+import com.worksync.ai.consumer.EventBatchWriter.FailedEvent;
+import com.worksync.ai.model.BaseEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries events whose bulk write failed without holding up the dispatch workers.
+ *
+ * <p>Failed events wait in a {@link DelayQueue} with exponential backoff and are written again in
+ * batches by a dedicated thread. Events that still fail after the configured number of attempts,
+ * or that do not fit in the retry queue, are published to the dead-letter binding. The poll of an
+ * event is committed once the event is persisted or dead-lettered.
+ */
+@Slf4j
+@Component
+public class EventRetryStage {
+
+    public static final String EXCEPTION_MESSAGE_HEADER = "x-exception-message";
+    public static final String RETRY_ATTEMPTS_HEADER = "x-retry-attempts";
+    public static final String EVENT_TYPE_HEADER = "x-event-type";
+
+    @Autowired
+    private EventBatchWriter eventBatchWriter;
+
+    @Autowired
+    private PriorityProcessingProperties processingProperties;
+
+    @Autowired
+    @Qualifier("eventRetryExecutor")
+    private ExecutorService eventRetryExecutor;
+
+    @Autowired(required = false)
+    private StreamBridge streamBridge;
+
+    private final DelayQueue<RetryTask> delayQueue = new DelayQueue<>();
+    private volatile boolean running;
+
+    /**
+     * A failed event waiting for its next attempt
+     */
+    private record RetryTask(QueuedEvent queuedEvent, int attempt, String lastError, long dueAtNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        eventRetryExecutor.submit(this::runRetries);
+        Retry retry = processingProperties.getRetry();
+        log.info("Started event retry stage with {} attempts, backoff {}ms to {}ms, dead-letter binding {}",
+            retry.getMaxAttempts(), retry.getInitialBackoffMs(), retry.getMaxBackoffMs(), retry.getDeadLetterBinding());
+    }
+
+    /**
+     * Schedules the first retry of events that failed on the dispatch path
+     */
+    public void schedule(List<FailedEvent> failures) {
+        failures.forEach(failure -> schedule(failure.queuedEvent(), 1, failure.reason()));
+    }
+
+    /**
+     * Share of the retry queue capacity in use; above 1 while events are parked beyond it
+     */
+    public double usageRatio() {
+        return (double) delayQueue.size() / Math.max(1, processingProperties.getRetry().getCapacity());
+    }
+
+    /**
+     * Number of events waiting for a retry
+     */
+    public int pendingRetries() {
+        return delayQueue.size();
+    }
+
+    /**
+     * Stops retrying and hands back the events still waiting, so they can be kept across the restart
+     */
+    public List<QueuedEvent> shutdown() {
+        running = false;
+        eventRetryExecutor.shutdown();
+        try {
+            if (!eventRetryExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Event retry thread did not stop within 30 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<QueuedEvent> pending = new ArrayList<>(delayQueue.size());
+        delayQueue.forEach(task -> pending.add(task.queuedEvent()));
+        delayQueue.clear();
+        return pending;
+    }
+
+    private void runRetries() {
+        Retry retry = processingProperties.getRetry();
+        while (running) {
+            try {
+                RetryTask first = delayQueue.poll(processingProperties.getPollTimeoutMs(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<RetryTask> tasks = new ArrayList<>();
+                tasks.add(first);
+                delayQueue.drainTo(tasks, retry.getBatchSize() - 1);
+                retry(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Error in event retry loop: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void retry(List<RetryTask> tasks) {
+        Map<QueuedEvent, RetryTask> tasksByEvent = new IdentityHashMap<>();
+        List<QueuedEvent> events = new ArrayList<>(tasks.size());
+        for (RetryTask task : tasks) {
+            tasksByEvent.put(task.queuedEvent(), task);
+            events.add(task.queuedEvent());
+        }
+
+        List<FailedEvent> failures;
+        try {
+            failures = eventBatchWriter.write(events);
+        } catch (Exception e) {
+            failures = events.stream().map(event -> new FailedEvent(event, e.getMessage())).toList();
+        }
+
+        for (FailedEvent failure : failures) {
+            RetryTask task = tasksByEvent.get(failure.queuedEvent());
+            schedule(failure.queuedEvent(), task.attempt() + 1, failure.reason());
+        }
+        log.debug("Retried {} events, {} still failing", tasks.size(), failures.size());
+    }
+
+    private void schedule(QueuedEvent queuedEvent, int attempt, String reason) {
+        Retry retry = processingProperties.getRetry();
+        if (attempt > retry.getMaxAttempts()) {
+            deadLetter(queuedEvent, attempt - 1, reason);
+        } else if (delayQueue.size() >= retry.getCapacity()) {
+            deadLetter(queuedEvent, attempt - 1, "Retry queue full: " + reason);
+        } else {
+            delayQueue.add(new RetryTask(queuedEvent, attempt, reason, System.nanoTime() + backoffNanos(attempt)));
+        }
+    }
+
+    /**
+     * Exponential backoff capped at the maximum, with jitter so a failed bulk request does not
+     * come back as one burst
+     */
+    private long backoffNanos(int attempt) {
+        Retry retry = processingProperties.getRetry();
+        double backoffMs = Math.min(retry.getMaxBackoffMs(),
+            retry.getInitialBackoffMs() * Math.pow(retry.getMultiplier(), attempt - 1));
+        double jitter = 1 + retry.getJitter() * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return TimeUnit.MILLISECONDS.toNanos(Math.round(backoffMs * jitter));
+    }
+
+    /**
+     * Publishes an event to the dead-letter binding and completes its ticket. If the binding is
+     * unavailable the event is parked at the maximum backoff and dead-lettered again later, even
+     * beyond the queue capacity: its ticket holds back the committed offsets of its partitions, so
+     * it must not be dropped. The dispatcher counts parked events towards pausing the bindings,
+     * which bounds how far the queue grows.
+     */
+    private void deadLetter(QueuedEvent queuedEvent, int attempts, String reason) {
+        BaseEvent event = queuedEvent.event();
+        String binding = processingProperties.getRetry().getDeadLetterBinding();
+        boolean sent = false;
+        if (streamBridge != null) {
+            try {
+                Message<BaseEvent> message = MessageBuilder.withPayload(event)
+                    .setHeader(KafkaHeaders.KEY, event.getEmployeeId())
+                    .setHeader(EXCEPTION_MESSAGE_HEADER, reason)
+                    .setHeader(RETRY_ATTEMPTS_HEADER, attempts)
+                    .setHeader(EVENT_TYPE_HEADER, event.getClass().getSimpleName())
+                    .build();
+                sent = streamBridge.send(binding, message);
+            } catch (Exception e) {
+                log.error("Error publishing event {} to {}: {}", event.getEventId(), binding, e.getMessage());
+            }
+        }
+
+        if (sent) {
+            log.warn("Dead-lettered {} {} after {} attempts: {}",
+                event.getClass().getSimpleName(), event.getEventId(), attempts, reason);
+            eventBatchWriter.completeTickets(List.of(queuedEvent));
+        } else {
+            if (delayQueue.size() >= processingProperties.getRetry().getCapacity()) {
+                log.error("Could not dead-letter {} {}, parking it in the full retry queue until {} is available",
+                    event.getClass().getSimpleName(), event.getEventId(), binding);
+            }
+            long parkNanos = TimeUnit.MILLISECONDS.toNanos(processingProperties.getRetry().getMaxBackoffMs());
+            delayQueue.add(new RetryTask(queuedEvent, attempts, reason, System.nanoTime() + parkNanos));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.worksync.ai.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.cloud.stream.binder.kafka.KafkaBindingRebalanceListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Defers Kafka offset commits until the events of a poll are persisted.
+ *
+ * <p>Every manually acknowledged poll gets an {@link AckTicket}. Tickets queue up per partition in
+ * poll order, and a completed ticket is only acknowledged once it heads the queue of every partition
+ * it covers, so a partition's committed offset (its watermark) never passes an event that is still
+ * in flight. Acknowledgments are queued by the listener container and committed together on its
+ * next poll.
+ *
+ * <p>When a rebalance revokes partitions, the polls waiting on them are never acknowledged: the new
+ * owner resumes from the last committed offset and receives their events again. Their queues are
+ * dropped, so they hold nothing back once the partitions are assigned again.
+ */
+@Slf4j
+@Component
+public class OffsetCommitTracker implements KafkaBindingRebalanceListener {
+
+    private final Map<TopicPartition, Deque<AckTicket>> pending = new HashMap<>();
+    private final Map<TopicPartition, Long> watermarks = new ConcurrentHashMap<>();
+
+    /**
+     * Opens a ticket for a poll received as a Kafka message.
+     *
+     * @param message The poll, carrying the acknowledgment and record coordinates in its headers
+     * @param eventCount The number of events that have to be persisted before the poll is committed
+     * @return The ticket, or {@link AckTicket#NONE} if the poll is not manually acknowledged
+     */
+    public AckTicket register(Message<?> message, int eventCount) {
+        Acknowledgment acknowledgment = message.getHeaders().get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+        if (acknowledgment == null) {
+            return AckTicket.NONE;
+        }
+
+        List<Object> topics = headerValues(message, KafkaHeaders.RECEIVED_TOPIC);
+        List<Object> partitions = headerValues(message, KafkaHeaders.RECEIVED_PARTITION);
+        List<Object> offsets = headerValues(message, KafkaHeaders.OFFSET);
+
+        Map<TopicPartition, Long> nextOffsets = new HashMap<>();
+        for (int i = 0; i < Math.min(topics.size(), Math.min(partitions.size(), offsets.size())); i++) {
+            TopicPartition topicPartition = new TopicPartition((String) topics.get(i), ((Number) partitions.get(i)).intValue());
+            nextOffsets.merge(topicPartition, ((Number) offsets.get(i)).longValue() + 1, Math::max);
+        }
+
+        AckTicket ticket = new AckTicket(this, acknowledgment, nextOffsets, eventCount);
+        synchronized (this) {
+            nextOffsets.keySet().forEach(topicPartition ->
+                pending.computeIfAbsent(topicPartition, tp -> new ArrayDeque<>()).addLast(ticket));
+        }
+        if (eventCount == 0) {
+            onComplete(ticket);
+        }
+        return ticket;
+    }
+
+    /**
+     * Drops a ticket whose poll was rejected and will be redelivered, so it stops holding back
+     * the partitions it covers
+     */
+    public synchronized void discard(AckTicket ticket) {
+        if (ticket == AckTicket.NONE) {
+            return;
+        }
+        ticket.markDiscarded();
+        release(ticket.getNextOffsets().keySet());
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(String bindingName, Consumer<?, ?> consumer,
+                                                Collection<TopicPartition> partitions) {
+        revoke(partitions);
+    }
+
+    /**
+     * Forgets the queues of revoked partitions. Their polls are never acknowledged; a poll that
+     * also covered a retained partition keeps its place there until its events are persisted, so
+     * later polls of that partition still cannot commit past them.
+     */
+    public synchronized void revoke(Collection<TopicPartition> partitions) {
+        Set<TopicPartition> retained = new HashSet<>();
+        Set<AckTicket> revoked = new HashSet<>();
+        for (TopicPartition topicPartition : partitions) {
+            watermarks.remove(topicPartition);
+            Deque<AckTicket> tickets = pending.remove(topicPartition);
+            if (tickets == null) {
+                continue;
+            }
+            for (AckTicket ticket : tickets) {
+                ticket.markRevoked();
+                revoked.add(ticket);
+                retained.addAll(ticket.getNextOffsets().keySet());
+            }
+        }
+        retained.removeAll(partitions);
+        if (!revoked.isEmpty()) {
+            log.info("Partitions {} revoked with {} polls uncommitted", partitions, revoked.size());
+        }
+        release(retained);
+    }
+
+    /**
+     * Highest committed offset per partition
+     */
+    public Map<TopicPartition, Long> committedWatermarks() {
+        return Map.copyOf(watermarks);
+    }
+
+    /**
+     * Number of polls per partition still waiting for their events to be persisted
+     */
+    public synchronized Map<TopicPartition, Integer> pendingPolls() {
+        Map<TopicPartition, Integer> counts = new HashMap<>();
+        pending.forEach((topicPartition, tickets) -> counts.put(topicPartition, tickets.size()));
+        return counts;
+    }
+
+    /**
+     * Age in milliseconds of the oldest poll still waiting to be committed
+     */
+    public synchronized long oldestPendingAgeMs() {
+        return pending.values().stream()
+            .map(Deque::peekFirst)
+            .mapToLong(ticket -> System.currentTimeMillis() - ticket.getCreatedAt())
+            .max()
+            .orElse(0L);
+    }
+
+    synchronized void onComplete(AckTicket ticket) {
+        if (ticket.getNextOffsets().isEmpty() && !ticket.isDiscarded() && !ticket.isAcknowledged()) {
+            ticket.markAcknowledged();
+            ticket.getAcknowledgment().acknowledge();
+            return;
+        }
+        release(ticket.getNextOffsets().keySet());
+    }
+
+    /**
+     * Acknowledges, in partition order, every completed ticket that is no longer behind an
+     * incomplete one
+     */
+    private void release(Collection<TopicPartition> candidates) {
+        Deque<TopicPartition> work = new ArrayDeque<>(candidates);
+        while (!work.isEmpty()) {
+            Deque<AckTicket> tickets = pending.get(work.poll());
+            if (tickets == null || tickets.isEmpty()) {
+                continue;
+            }
+
+            AckTicket head = tickets.peekFirst();
+            if (!head.isDiscarded() && !head.isComplete()) {
+                continue;
+            }
+            // Partitions without a queue were revoked and no longer hold the ticket back
+            boolean headEverywhere = head.getNextOffsets().keySet().stream()
+                .map(pending::get)
+                .allMatch(partitionTickets -> partitionTickets == null || partitionTickets.peekFirst() == head);
+            if (!headEverywhere) {
+                continue;
+            }
+
+            if (!head.isDiscarded() && !head.isRevoked() && !head.isAcknowledged()) {
+                head.markAcknowledged();
+                head.getAcknowledgment().acknowledge();
+                head.getNextOffsets().forEach((topicPartition, offset) -> watermarks.merge(topicPartition, offset, Math::max));
+                log.debug("Acknowledged poll up to offsets {}", head.getNextOffsets());
+            }
+
+            head.getNextOffsets().keySet().forEach(topicPartition -> {
+                Deque<AckTicket> partitionTickets = pending.get(topicPartition);
+                if (partitionTickets == null) {
+                    return;
+                }
+                partitionTickets.pollFirst();
+                if (partitionTickets.isEmpty()) {
+                    pending.remove(topicPartition);
+                }
+                work.add(topicPartition);
+            });
+        }
+    }
+
+    private List<Object> headerValues(Message<?> message, String header) {
+        Object value = message.getHeaders().get(header);
+        if (value == null) {
+            return List.of();
+        }
+        if (value instanceof List<?> values) {
+            return List.copyOf(values);
+        }
+        return List.of(value);
+    }
+}
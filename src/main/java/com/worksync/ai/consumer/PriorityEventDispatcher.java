@@ -0,0 +1,663 @@
+package com.worksync.ai.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.worksync.ai.config.EventProcessingConfig.PriorityProcessingProperties;
+import com.worksync.ai.config.EventProcessingConfig.PriorityProcessingProperties.Level;
+import com.worksync.ai.config.EventProcessingConfig.PriorityProcessingProperties.Spill;
+import com.worksync.ai.consumer.EventBatchWriter.FailedEvent;
+import com.worksync.ai.consumer.SpillLog.SpillBatch;
+import com.worksync.ai.consumer.SpillLog.SpillRecord;
+import com.worksync.ai.enums.Priority;
+import com.worksync.ai.model.AlertEvent;
+import com.worksync.ai.model.AppUsageEvent;
+import com.worksync.ai.model.BaseEvent;
+import com.worksync.ai.model.SecurityEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.stream.binding.BindingsLifecycleController;
+import org.springframework.cloud.stream.binding.BindingsLifecycleController.State;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Bounded multi-level queue between the Kafka consumers and Elasticsearch.
+ * Events are sharded by employee ID onto worker lanes, each drained by a single worker, so the
+ * events of one employee are persisted in the order they were received within their priority
+ * level while different employees are written in parallel. Each worker drains the CRITICAL, HIGH
+ * and NORMAL queues of its lane in weighted rounds and persists them in bulk; when the queues fill
+ * up the Kafka bindings are paused until the backlog has drained.
+ *
+ * <p>With spilling enabled, HIGH and NORMAL events that do not fit in memory are appended to a
+ * {@link SpillLog} per lane and level and read back by the lane's worker once its in-memory queue of
+ * that level is empty. While a lane has spilled events of a level, its new events of that level are
+ * spilled as well, so every employee's events stay first-in first-out. Spilled events left over from
+ * a previous run are replayed on startup.
+ *
+ * <p>Each event carries the {@link AckTicket} of its poll; the ticket is completed once the event
+ * is indexed or durably spilled, which lets {@link OffsetCommitTracker} commit the poll's offsets.
+ * Events whose write fails are handed to the {@link EventRetryStage} so the workers never wait on
+ * a backoff.
+ */
+@Slf4j
+@Component
+public class PriorityEventDispatcher {
+
+    private static final byte APP_USAGE_RECORD = 1;
+    private static final byte SECURITY_RECORD = 2;
+    private static final byte ALERT_RECORD = 3;
+    private static final String LANE_DIRECTORY_PREFIX = "lane-";
+
+    @Autowired
+    private EventBatchWriter eventBatchWriter;
+
+    @Autowired
+    private EventRetryStage eventRetryStage;
+
+    @Autowired
+    private PriorityProcessingProperties processingProperties;
+
+    @Autowired
+    @Qualifier("eventDispatchExecutor")
+    private ExecutorService eventDispatchExecutor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private BindingsLifecycleController bindingsLifecycleController;
+
+    private final List<Lane> lanes = new ArrayList<>();
+    private final Map<Priority, Level> levels = new EnumMap<>(Priority.class);
+    private final AtomicBoolean paused = new AtomicBoolean(false);
+    private volatile boolean running;
+    private int totalWeight;
+
+    /**
+     * The in-memory queues drained by one worker, one per priority level, and the spill logs
+     * of the levels that overflow to disk
+     */
+    private static final class Lane {
+        private final int index;
+        private final Map<Priority, BlockingQueue<QueuedEvent>> queues = new EnumMap<>(Priority.class);
+        private final Map<Priority, SpillLog> spillLogs = new EnumMap<>(Priority.class);
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+
+        private Lane(int index) {
+            this.index = index;
+        }
+
+        private boolean isEmpty() {
+            return queues.values().stream().allMatch(BlockingQueue::isEmpty);
+        }
+
+        private void signal() {
+            lock.lock();
+            try {
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Events taken in one drain round, plus the spill batches they were read from
+     */
+    private record Round(List<QueuedEvent> events, Map<SpillLog, SpillBatch> spillBatches) {}
+
+    @PostConstruct
+    public void start() throws IOException {
+        levels.put(Priority.CRITICAL, processingProperties.getCritical());
+        levels.put(Priority.HIGH, processingProperties.getHigh());
+        levels.put(Priority.NORMAL, processingProperties.getNormal());
+        totalWeight = levels.values().stream().mapToInt(Level::getWeight).sum();
+
+        int laneCount = Math.max(1, processingProperties.getWorkers());
+        for (int i = 0; i < laneCount; i++) {
+            Lane lane = new Lane(i);
+            levels.forEach((priority, level) ->
+                lane.queues.put(priority, new ArrayBlockingQueue<>(Math.max(1, level.getCapacity() / laneCount))));
+            lanes.add(lane);
+        }
+
+        Spill spill = processingProperties.getSpill();
+        if (spill.isEnabled()) {
+            openSpillLogs(spill);
+        }
+
+        running = true;
+        for (Lane lane : lanes) {
+            eventDispatchExecutor.submit(() -> runWorker(lane));
+        }
+        log.info("Started {} event dispatch lanes with total queue capacities {}, spilling {}",
+            laneCount, levels, spill.isEnabled() ? "enabled" : "disabled");
+    }
+
+    /**
+     * Opens the spill log of every lane and level under {@code <directory>/<level>/lane-<n>}, sharing
+     * the segment limit of a level between the lanes. Logs written with a different number of lanes,
+     * or with the single log per level used before, are re-spilled onto the lanes of their employees
+     * first so that no employee's events end up in two logs.
+     */
+    private void openSpillLogs(Spill spill) throws IOException {
+        int segmentSize = spill.getSegmentSizeMb() * 1024 * 1024;
+        int maxSegments = Math.max(1, spill.getMaxSegments() / lanes.size());
+        for (Priority priority : List.of(Priority.HIGH, Priority.NORMAL)) {
+            Path levelDirectory = Path.of(spill.getDirectory(), priority.name().toLowerCase());
+            for (Lane lane : lanes) {
+                lane.spillLogs.put(priority, new SpillLog(
+                    levelDirectory.resolve(LANE_DIRECTORY_PREFIX + lane.index),
+                    segmentSize,
+                    maxSegments,
+                    spill.isForceOnWrite()
+                ));
+            }
+            for (Path orphaned : orphanedSpillLogs(levelDirectory)) {
+                redistribute(priority, orphaned, segmentSize);
+            }
+        }
+    }
+
+    /**
+     * The spill logs of a level that belong to no current lane: the level directory itself when it
+     * still holds segments of the single shared log, and the directories of lanes beyond the lane count
+     */
+    private List<Path> orphanedSpillLogs(Path levelDirectory) throws IOException {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(levelDirectory)) {
+            entries = files.toList();
+        }
+        List<Path> orphaned = new ArrayList<>();
+        if (entries.stream().anyMatch(Files::isRegularFile)) {
+            orphaned.add(levelDirectory);
+        }
+        entries.stream()
+            .filter(Files::isDirectory)
+            .filter(path -> laneIndex(path) >= lanes.size())
+            .forEach(orphaned::add);
+        return orphaned;
+    }
+
+    private static int laneIndex(Path directory) {
+        String name = directory.getFileName().toString();
+        if (!name.startsWith(LANE_DIRECTORY_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(LANE_DIRECTORY_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Moves the records of an orphaned spill log onto the logs of the lanes their employees map to,
+     * in order, and deletes the orphaned log once it is empty. If a lane's log fills up the rest stays
+     * where it is and is moved on the next start.
+     */
+    private void redistribute(Priority priority, Path directory, int segmentSize) throws IOException {
+        SpillLog orphaned = new SpillLog(directory, segmentSize, Integer.MAX_VALUE, false);
+        long moved = 0;
+        try {
+            while (!orphaned.isEmpty()) {
+                SpillBatch batch = orphaned.read(processingProperties.getBatchSize());
+                if (batch.records().isEmpty()) {
+                    break;
+                }
+                Map<Lane, List<SpillRecord>> byLane = new LinkedHashMap<>();
+                for (SpillRecord record : batch.records()) {
+                    BaseEvent event = decode(record);
+                    if (event != null) {
+                        byLane.computeIfAbsent(laneFor(event), lane -> new ArrayList<>()).add(record);
+                    }
+                }
+                for (Map.Entry<Lane, List<SpillRecord>> entry : byLane.entrySet()) {
+                    if (entry.getKey().spillLogs.get(priority).append(entry.getValue()) < entry.getValue().size()) {
+                        log.error("Spill log for {} on lane {} is full, {} events stay in {} until the next start",
+                            priority, entry.getKey().index, orphaned.size(), directory);
+                        return;
+                    }
+                }
+                orphaned.commit(batch);
+                moved += batch.records().size();
+            }
+        } finally {
+            orphaned.close();
+            if (moved > 0) {
+                log.info("Moved {} spilled {} events from {} onto the lanes", moved, priority, directory);
+            }
+        }
+
+        if (orphaned.isEmpty()) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    Files.delete(file);
+                }
+            }
+            if (laneIndex(directory) >= 0) {
+                Files.delete(directory);
+            }
+        }
+    }
+
+    public void enqueue(List<? extends BaseEvent> events) {
+        enqueue(events, AckTicket.NONE);
+    }
+
+    /**
+     * Queues the events of one poll on the lanes of their employees. Levels without a spill log
+     * block while full, for at most the configured enqueue timeout, so that a burst slows the
+     * consumer down instead of growing the heap.
+     *
+     * @throws RejectedExecutionException if the queues stay full for longer than the timeout
+     */
+    public void enqueue(List<? extends BaseEvent> events, AckTicket ticket) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(processingProperties.getEnqueueTimeoutMs());
+        Map<Priority, List<QueuedEvent>> overflow = new EnumMap<>(Priority.class);
+        Set<SpillLog> overflowing = new HashSet<>();
+        Set<Lane> touched = new LinkedHashSet<>();
+        try {
+            for (BaseEvent event : events) {
+                if (event == null) {
+                    continue;
+                }
+                QueuedEvent queuedEvent = new QueuedEvent(event, ticket);
+                Priority priority = Priority.of(event.getPriority());
+                Lane lane = laneFor(event);
+                SpillLog spillLog = lane.spillLogs.get(priority);
+                if (spillLog == null) {
+                    offer(lane, priority, queuedEvent, deadline);
+                    touched.add(lane);
+                    continue;
+                }
+
+                boolean spilling = overflowing.contains(spillLog) || !spillLog.isEmpty();
+                if (spilling || !lane.queues.get(priority).offer(queuedEvent)) {
+                    overflow.computeIfAbsent(priority, p -> new ArrayList<>()).add(queuedEvent);
+                    overflowing.add(spillLog);
+                } else {
+                    touched.add(lane);
+                }
+            }
+
+            for (Map.Entry<Priority, List<QueuedEvent>> entry : overflow.entrySet()) {
+                for (QueuedEvent queuedEvent : spill(entry.getKey(), entry.getValue())) {
+                    Lane lane = laneFor(queuedEvent.event());
+                    offer(lane, entry.getKey(), queuedEvent, deadline);
+                    touched.add(lane);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while queuing events", e);
+        } finally {
+            touched.forEach(Lane::signal);
+            if (!overflow.isEmpty()) {
+                lanes.forEach(Lane::signal);
+            }
+            applyBackpressure();
+        }
+    }
+
+    /**
+     * Current number of queued events per priority level, in memory and on disk
+     */
+    public Map<Priority, Long> queueSizes() {
+        Map<Priority, Long> sizes = new EnumMap<>(Priority.class);
+        for (Priority priority : levels.keySet()) {
+            sizes.put(priority, queuedInMemory(priority) + spilled(priority));
+        }
+        return sizes;
+    }
+
+    /**
+     * Current number of events queued in memory per lane
+     */
+    public List<Integer> laneDepths() {
+        return lanes.stream()
+            .map(lane -> lane.queues.values().stream().mapToInt(BlockingQueue::size).sum())
+            .toList();
+    }
+
+    private Lane laneFor(BaseEvent event) {
+        return lanes.get(Math.floorMod(Objects.hashCode(event.getEmployeeId()), lanes.size()));
+    }
+
+    private long queuedInMemory(Priority priority) {
+        return lanes.stream().mapToLong(lane -> lane.queues.get(priority).size()).sum();
+    }
+
+    private long spilled(Priority priority) {
+        return lanes.stream()
+            .map(lane -> lane.spillLogs.get(priority))
+            .filter(Objects::nonNull)
+            .mapToLong(SpillLog::size)
+            .sum();
+    }
+
+    /**
+     * @return The highest share of its segment limit any lane's spill log of the level uses, or
+     *         nothing if the level does not spill
+     */
+    private OptionalDouble spillUsage(Priority priority) {
+        return lanes.stream()
+            .map(lane -> lane.spillLogs.get(priority))
+            .filter(Objects::nonNull)
+            .mapToDouble(SpillLog::usageRatio)
+            .max();
+    }
+
+    private void offer(Lane lane, Priority priority, QueuedEvent event, long deadline) throws InterruptedException {
+        BlockingQueue<QueuedEvent> queue = lane.queues.get(priority);
+        if (queue.offer(event)) {
+            return;
+        }
+        lane.signal();
+        applyBackpressure();
+        long remaining = deadline - System.nanoTime();
+        if (!queue.offer(event, Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+            throw new RejectedExecutionException("Event queue for priority " + priority + " on lane " + lane.index + " is full");
+        }
+    }
+
+    /**
+     * Appends events to the spill logs of their lanes and completes their tickets.
+     *
+     * @return The events that could not be spilled because a log is full or unwritable
+     */
+    private List<QueuedEvent> spill(Priority priority, List<QueuedEvent> events) {
+        Map<Lane, List<QueuedEvent>> byLane = new LinkedHashMap<>();
+        for (QueuedEvent queuedEvent : events) {
+            byLane.computeIfAbsent(laneFor(queuedEvent.event()), lane -> new ArrayList<>()).add(queuedEvent);
+        }
+        List<QueuedEvent> unspilled = new ArrayList<>();
+        byLane.forEach((lane, laneEvents) -> unspilled.addAll(spill(lane, priority, laneEvents)));
+        return unspilled;
+    }
+
+    private List<QueuedEvent> spill(Lane lane, Priority priority, List<QueuedEvent> events) {
+        SpillLog spillLog = lane.spillLogs.get(priority);
+        if (spillLog == null || events.isEmpty()) {
+            return events;
+        }
+        try {
+            List<SpillRecord> records = new ArrayList<>(events.size());
+            for (QueuedEvent queuedEvent : events) {
+                records.add(encode(queuedEvent.event()));
+            }
+            int appended = spillLog.append(records);
+            eventBatchWriter.completeTickets(events.subList(0, appended));
+            if (appended < events.size()) {
+                log.warn("Spill log for {} on lane {} is full, {} events fall back to the in-memory queue",
+                    priority, lane.index, events.size() - appended);
+            }
+            return events.subList(appended, events.size());
+        } catch (IOException e) {
+            log.error("Error spilling {} {} events to disk: {}", events.size(), priority, e.getMessage(), e);
+            return events;
+        }
+    }
+
+    private void runWorker(Lane lane) {
+        while (running) {
+            Round round = null;
+            boolean persisted = false;
+            try {
+                round = drainRound(lane);
+                if (round.events().isEmpty()) {
+                    // The retry queue drains without the workers, so idle lanes keep re-checking it
+                    applyBackpressure();
+                    awaitEvents(lane);
+                    continue;
+                }
+                List<FailedEvent> failed = eventBatchWriter.write(round.events());
+                // Failed events are now held by the retry stage, so their spill records can be released too
+                persisted = true;
+                if (!failed.isEmpty()) {
+                    eventRetryStage.schedule(failed);
+                }
+                applyBackpressure();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Error in event dispatch worker for lane {}: {}", lane.index, e.getMessage(), e);
+            } finally {
+                if (round != null) {
+                    releaseSpillBatches(round, persisted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes one batch across all levels of a lane. Each level first gets its weighted share of the
+     * batch; capacity a level leaves unused is then handed out in priority order, so no level starves
+     * and an idle level never holds back the others.
+     */
+    private Round drainRound(Lane lane) {
+        int batchSize = processingProperties.getBatchSize();
+        Round round = new Round(new ArrayList<>(batchSize), new HashMap<>());
+
+        for (Priority priority : Priority.values()) {
+            int share = Math.max(1, batchSize * levels.get(priority).getWeight() / Math.max(totalWeight, 1));
+            take(lane, priority, Math.min(share, batchSize - round.events().size()), round);
+        }
+        for (Priority priority : Priority.values()) {
+            if (round.events().size() >= batchSize) {
+                break;
+            }
+            take(lane, priority, batchSize - round.events().size(), round);
+        }
+        return round;
+    }
+
+    /**
+     * Drains a level of the lane. The lane's spill log of the level is only read once its in-memory
+     * queue of that level is empty, since those events are older than anything spilled.
+     */
+    private void take(Lane lane, Priority priority, int limit, Round round) {
+        if (limit <= 0) {
+            return;
+        }
+        int drained = lane.queues.get(priority).drainTo(round.events(), limit);
+        SpillLog spillLog = lane.spillLogs.get(priority);
+        if (drained >= limit || spillLog == null || spillLog.isEmpty()
+                || round.spillBatches().containsKey(spillLog) || !lane.queues.get(priority).isEmpty()) {
+            return;
+        }
+
+        SpillBatch batch = spillLog.read(limit - drained);
+        if (batch.records().isEmpty()) {
+            return;
+        }
+        for (SpillRecord record : batch.records()) {
+            BaseEvent event = decode(record);
+            if (event != null) {
+                round.events().add(new QueuedEvent(event, AckTicket.NONE));
+            }
+        }
+        round.spillBatches().put(spillLog, batch);
+    }
+
+    /**
+     * Commits the spill batches of a round once its events are persisted. Otherwise the read
+     * position stays where it was, so the next read returns the same records again.
+     */
+    private void releaseSpillBatches(Round round, boolean persisted) {
+        round.spillBatches().forEach((spillLog, batch) -> {
+            try {
+                if (persisted) {
+                    spillLog.commit(batch);
+                } else {
+                    log.warn("Batch was not persisted, {} spilled events will be read again", batch.records().size());
+                }
+            } catch (IOException e) {
+                log.error("Error committing spill log read position: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    private SpillRecord encode(BaseEvent event) throws IOException {
+        byte type;
+        if (event instanceof AppUsageEvent) {
+            type = APP_USAGE_RECORD;
+        } else if (event instanceof SecurityEvent) {
+            type = SECURITY_RECORD;
+        } else if (event instanceof AlertEvent) {
+            type = ALERT_RECORD;
+        } else {
+            throw new IOException("Unsupported event type " + event.getClass().getSimpleName());
+        }
+        return new SpillRecord(type, objectMapper.writeValueAsBytes(event));
+    }
+
+    private BaseEvent decode(SpillRecord record) {
+        try {
+            return switch (record.type()) {
+                case APP_USAGE_RECORD -> objectMapper.readValue(record.payload(), AppUsageEvent.class);
+                case SECURITY_RECORD -> objectMapper.readValue(record.payload(), SecurityEvent.class);
+                case ALERT_RECORD -> objectMapper.readValue(record.payload(), AlertEvent.class);
+                default -> throw new IOException("Unknown spill record type " + record.type());
+            };
+        } catch (IOException e) {
+            log.error("Skipping unreadable spilled event: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Waits for new events on an idle lane. Spilled events are not signalled, so a lane with an
+     * empty memory queue re-checks its spill logs after the poll timeout.
+     */
+    private void awaitEvents(Lane lane) throws InterruptedException {
+        lane.lock.lock();
+        try {
+            if (running && lane.isEmpty()) {
+                lane.notEmpty.await(processingProperties.getPollTimeoutMs(), TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lane.lock.unlock();
+        }
+    }
+
+    /**
+     * Pauses the Kafka bindings once any level crosses the pause threshold and resumes them
+     * when every level is back under the resume threshold. Levels are measured across all lanes,
+     * so a single hot lane only blocks the consumer feeding it. Levels with spill logs are
+     * measured by the fullest lane's log, since their in-memory queues are allowed to run full.
+     * The retry queue counts as well, so events that can be neither written nor dead-lettered stop
+     * the intake instead of piling up.
+     */
+    private void applyBackpressure() {
+        double fillRatio = Math.max(eventRetryStage.usageRatio(), levels.entrySet().stream()
+            .mapToDouble(entry -> spillUsage(entry.getKey())
+                .orElse((double) queuedInMemory(entry.getKey()) / entry.getValue().getCapacity()))
+            .max()
+            .orElse(0.0));
+
+        if (fillRatio >= processingProperties.getPauseThreshold() && paused.compareAndSet(false, true)) {
+            log.warn("Event queues at {}% capacity, pausing bindings {}",
+                Math.round(fillRatio * 100), processingProperties.getBindings());
+            changeBindingState(State.PAUSED);
+        } else if (fillRatio <= processingProperties.getResumeThreshold() && paused.compareAndSet(true, false)) {
+            log.info("Event queues drained to {}% capacity, resuming bindings {}",
+                Math.round(fillRatio * 100), processingProperties.getBindings());
+            changeBindingState(State.RESUMED);
+        }
+    }
+
+    private void changeBindingState(State state) {
+        if (bindingsLifecycleController == null) {
+            return;
+        }
+        for (String binding : processingProperties.getBindings()) {
+            try {
+                bindingsLifecycleController.changeState(binding, state);
+            } catch (Exception e) {
+                log.warn("Could not change state of binding {} to {}: {}", binding, state, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops the workers and persists whatever is still queued in memory before the context closes.
+     * Events of spilled levels that cannot be persisted, including those waiting for a retry, are
+     * spilled so the next start replays them; the polls of the others stay uncommitted.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        lanes.forEach(Lane::signal);
+        eventDispatchExecutor.shutdown();
+        try {
+            if (!eventDispatchExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Event dispatch workers did not stop within 30 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<Priority, List<QueuedEvent>> unpersisted = new EnumMap<>(Priority.class);
+        for (QueuedEvent queuedEvent : eventRetryStage.shutdown()) {
+            unpersisted.computeIfAbsent(Priority.of(queuedEvent.event().getPriority()), p -> new ArrayList<>()).add(queuedEvent);
+        }
+        for (Lane lane : lanes) {
+            for (Priority priority : Priority.values()) {
+                List<QueuedEvent> batch = new ArrayList<>();
+                while (lane.queues.get(priority).drainTo(batch, processingProperties.getBatchSize()) > 0) {
+                    try {
+                        eventBatchWriter.write(batch).forEach(failure ->
+                            unpersisted.computeIfAbsent(priority, p -> new ArrayList<>()).add(failure.queuedEvent()));
+                    } catch (Exception e) {
+                        log.error("Error flushing {} queued {} events on shutdown: {}", batch.size(), priority, e.getMessage(), e);
+                    }
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+        unpersisted.forEach((priority, events) -> {
+            List<QueuedEvent> lost = spill(priority, events);
+            if (!lost.isEmpty()) {
+                log.error("Dropping {} {} events that could not be persisted on shutdown", lost.size(), priority);
+            }
+        });
+
+        for (Lane lane : lanes) {
+            for (SpillLog spillLog : lane.spillLogs.values()) {
+                try {
+                    spillLog.close();
+                } catch (IOException e) {
+                    log.error("Error closing spill log: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.worksync.ai.consumer;
+
+import com.worksync.ai.model.BaseEvent;
+
+/**
+ * An event waiting to be persisted, with the ticket of the poll it arrived in
+ */
+public record QueuedEvent(BaseEvent event, AckTicket ticket) {}
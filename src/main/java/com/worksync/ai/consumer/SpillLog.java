@@ -0,0 +1,261 @@
+package com.worksync.ai.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of fixed-size, memory-mapped segment files used to hold queued events
+ * that do not fit in memory. Records are read in batches and only released once the caller
+ * commits the batch, so a crash between reading and persisting replays the batch on startup.
+ *
+ * <p>Record layout: {@code [int payloadLength][byte type][payload]}. The length is written last,
+ * so a record torn by a crash is never visible to the reader.
+ */
+@Slf4j
+public class SpillLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CURSOR_FILE = "cursor";
+    private static final int HEADER_BYTES = Integer.BYTES + 1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean forceOnWrite;
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+
+    private long writeSegment;
+    private int writePosition;
+    private long readSegment;
+    private int readPosition;
+    private long pendingRecords;
+
+    public record SpillRecord(byte type, byte[] payload) {}
+
+    /**
+     * Records read from the log together with the position right after the last of them
+     */
+    public record SpillBatch(List<SpillRecord> records, long endSegment, int endPosition) {}
+
+    public SpillLog(Path directory, int segmentSize, int maxSegments, boolean forceOnWrite) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.forceOnWrite = forceOnWrite;
+
+        Files.createDirectories(directory);
+        loadCursor();
+        openSegments();
+        recover();
+
+        if (pendingRecords > 0) {
+            log.info("Spill log {} holds {} events to replay", directory, pendingRecords);
+        }
+    }
+
+    /**
+     * Appends the records in order until the log reaches its segment limit.
+     *
+     * @return The number of records appended; the rest did not fit
+     */
+    public synchronized int append(List<SpillRecord> records) throws IOException {
+        int appended = 0;
+        for (SpillRecord record : records) {
+            int recordBytes = HEADER_BYTES + record.payload().length;
+            if (recordBytes > segmentSize) {
+                throw new IllegalArgumentException("Record of " + recordBytes + " bytes exceeds segment size " + segmentSize);
+            }
+            if (writePosition + recordBytes > segmentSize) {
+                if (segments.size() >= maxSegments) {
+                    break;
+                }
+                forceSegment(writeSegment);
+                writeSegment++;
+                writePosition = 0;
+                segments.put(writeSegment, mapSegment(writeSegment));
+            }
+
+            MappedByteBuffer segment = segments.get(writeSegment);
+            segment.put(writePosition + Integer.BYTES, record.type());
+            segment.put(writePosition + HEADER_BYTES, record.payload());
+            segment.putInt(writePosition, record.payload().length);
+            writePosition += recordBytes;
+            pendingRecords++;
+            appended++;
+        }
+        forceSegment(writeSegment);
+        return appended;
+    }
+
+    /**
+     * Reads up to {@code maxRecords} records from the read cursor without releasing them.
+     * A log has a single reader, which must {@link #commit} the batch once it is persisted.
+     */
+    public synchronized SpillBatch read(int maxRecords) {
+        List<SpillRecord> records = new ArrayList<>();
+        long segmentIndex = readSegment;
+        int position = readPosition;
+
+        while (records.size() < maxRecords) {
+            MappedByteBuffer segment = segments.get(segmentIndex);
+            int length = position + HEADER_BYTES <= segmentSize ? segment.getInt(position) : 0;
+            if (length <= 0) {
+                if (segmentIndex >= writeSegment) {
+                    break;
+                }
+                segmentIndex++;
+                position = 0;
+                continue;
+            }
+
+            byte[] payload = new byte[length];
+            segment.get(position + HEADER_BYTES, payload);
+            records.add(new SpillRecord(segment.get(position + Integer.BYTES), payload));
+            position += HEADER_BYTES + length;
+        }
+        return new SpillBatch(records, segmentIndex, position);
+    }
+
+    /**
+     * Releases a batch returned by {@link #read}, deleting segments that are fully consumed
+     */
+    public synchronized void commit(SpillBatch batch) throws IOException {
+        if (batch.records().isEmpty()) {
+            return;
+        }
+        readSegment = batch.endSegment();
+        readPosition = batch.endPosition();
+        pendingRecords -= batch.records().size();
+
+        while (segments.firstKey() < readSegment) {
+            long consumed = segments.pollFirstEntry().getKey();
+            Files.deleteIfExists(segmentPath(consumed));
+        }
+        storeCursor();
+    }
+
+    public synchronized long size() {
+        return pendingRecords;
+    }
+
+    public synchronized boolean isEmpty() {
+        return pendingRecords == 0;
+    }
+
+    /**
+     * Share of the segment limit currently in use, for backpressure decisions
+     */
+    public synchronized double usageRatio() {
+        return pendingRecords == 0 ? 0.0 : (double) segments.size() / maxSegments;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+        storeCursor();
+        segments.clear();
+    }
+
+    private void openSegments() throws IOException {
+        List<Long> indexes;
+        try (Stream<Path> files = Files.list(directory)) {
+            indexes = files
+                .map(path -> path.getFileName().toString())
+                .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                .sorted()
+                .toList();
+        }
+
+        for (long index : indexes) {
+            if (index < readSegment) {
+                Files.deleteIfExists(segmentPath(index));
+            } else {
+                segments.put(index, mapSegment(index));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            segments.put(readSegment, mapSegment(readSegment));
+        }
+        if (segments.firstKey() > readSegment) {
+            readSegment = segments.firstKey();
+            readPosition = 0;
+        }
+        writeSegment = segments.lastKey();
+    }
+
+    /**
+     * Counts the records left behind the cursor and finds the end of the last segment
+     */
+    private void recover() {
+        pendingRecords = 0;
+        for (long segmentIndex = readSegment; segmentIndex <= writeSegment; segmentIndex++) {
+            MappedByteBuffer segment = segments.get(segmentIndex);
+            int position = segmentIndex == readSegment ? readPosition : 0;
+            while (position + HEADER_BYTES <= segmentSize) {
+                int length = segment.getInt(position);
+                if (length <= 0 || position + HEADER_BYTES + length > segmentSize) {
+                    break;
+                }
+                position += HEADER_BYTES + length;
+                pendingRecords++;
+            }
+            if (segmentIndex == writeSegment) {
+                writePosition = position;
+            }
+        }
+    }
+
+    private MappedByteBuffer mapSegment(long index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private void forceSegment(long index) {
+        if (forceOnWrite) {
+            segments.get(index).force();
+        }
+    }
+
+    private void loadCursor() throws IOException {
+        Path cursor = directory.resolve(CURSOR_FILE);
+        if (Files.exists(cursor)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cursor));
+            readSegment = buffer.getLong();
+            readPosition = buffer.getInt();
+        }
+    }
+
+    private void storeCursor() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES)
+            .putLong(readSegment)
+            .putInt(readPosition);
+        Path temp = directory.resolve(CURSOR_FILE + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, directory.resolve(CURSOR_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+}
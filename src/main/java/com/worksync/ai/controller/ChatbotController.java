@@ -8,11 +8,16 @@ import com.worksync.ai.service.ChatbotService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -22,25 +27,65 @@ public class ChatbotController {
     @Autowired
     private ChatbotService chatbotService;
 
+    /**
+     * Answers asynchronously, so the request thread is released while the model generates
+     */
     @PostMapping("/query")
-    public ResponseEntity<ApiResponse<ChatbotResponse>> query(
+    public CompletableFuture<ResponseEntity<ApiResponse<ChatbotResponse>>> query(
             @Valid @RequestBody ChatbotRequest request) {
-        try {
-            ChatbotResponse response = chatbotService.processQuery(request);
-            
-            return ResponseEntity.ok(new ApiResponse<>(
+        return chatbotService.processQueryAsync(request)
+            .thenApply(response -> ResponseEntity.ok(new ApiResponse<>(
                 response.isSuccess() ? "SUCCESS" : "ERROR",
                 response.getMessage(),
                 response
-            ));
-            
-        } catch (Exception e) {
-            log.error("Error processing chatbot query: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body(new ApiResponse<>(
-                "ERROR",
-                "Failed to process query: " + e.getMessage(),
-                null
-            ));
+            )))
+            .exceptionally(e -> {
+                log.error("Error processing chatbot query: {}", e.getMessage(), e);
+                return ResponseEntity.badRequest().body(new ApiResponse<>(
+                    "ERROR",
+                    "Failed to process query: " + e.getMessage(),
+                    null
+                ));
+            });
+    }
+
+    /**
+     * Streams the answer as server-sent events: a "matches" event with the summaries found, once
+     * vector search is done, then a "token" event per generated fragment and a "done" event with the
+     * complete response, or an "error" event. Closing the connection cancels the model request.
+     */
+    @PostMapping(value = "/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter queryStream(@Valid @RequestBody ChatbotRequest request) {
+        // Times out after spring.mvc.async.request-timeout
+        SseEmitter emitter = new SseEmitter();
+        CompletableFuture<ChatbotResponse> answer = chatbotService.streamQuery(
+            request,
+            matches -> send(emitter, "matches", matches),
+            token -> send(emitter, "token", token)
+        );
+        answer.whenComplete((response, error) -> {
+            if (error == null) {
+                send(emitter, "done", response);
+                emitter.complete();
+            } else if (!answer.isCancelled()) {
+                log.error("Error streaming chatbot query: {}", error.getMessage(), error);
+                send(emitter, "error", "Failed to process query: " + error.getMessage());
+                emitter.complete();
+            }
+        });
+
+        emitter.onTimeout(() -> answer.cancel(true));
+        emitter.onError(e -> answer.cancel(true));
+        emitter.onCompletion(() -> answer.cancel(true));
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the emitter already completed; onError/onCompletion cancel the query
+            log.debug("Could not send {} event: {}", event, e.getMessage());
         }
     }
-} 
\ No newline at end of file
+}
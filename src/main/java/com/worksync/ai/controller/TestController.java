@@ -12,6 +12,8 @@ import com.worksync.ai.model.SecurityEvent;
 import com.worksync.ai.model.enums.EventType;
 import com.worksync.ai.model.enums.Priority;
 import com.worksync.ai.consumer.EventConsumer;
+import com.worksync.ai.config.VectorIndexConfig.VectorIndexProperties;
+import com.worksync.ai.vector.SummaryVectorIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -39,6 +41,12 @@ public class TestController {
     @Autowired
     private EventConsumer eventConsumer;
 
+    @Autowired
+    private SummaryVectorIndex summaryVectorIndex;
+
+    @Autowired
+    private VectorIndexProperties vectorIndexProperties;
+
     @GetMapping("/ai")
     public String testAI() {
         try {
@@ -319,4 +327,19 @@ public class TestController {
             return "Error sending events: " + e.getMessage();
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Compares the in-process vector index with exact search over the same vectors
+     */
+    @GetMapping("/vector-index/recall")
+    public Object testVectorIndexRecall(@RequestParam(defaultValue = "100") int queries,
+                                        @RequestParam(defaultValue = "10") int k,
+                                        @RequestParam(required = false) Integer efSearch) {
+        if (!summaryVectorIndex.isReady()) {
+            return summaryVectorIndex.isEnabled()
+                ? "The in-process vector index is still loading (" + summaryVectorIndex.size() + " vectors so far)"
+                : "The in-process vector index is disabled, set vector-index.enabled=true";
+        }
+        return summaryVectorIndex.measureRecall(queries, k, efSearch != null ? efSearch : vectorIndexProperties.getEfSearch());
+    }
+}
@@ -42,4 +42,12 @@ public class EventAggregation {
 
     @Field(type = FieldType.Date)
     private LocalDateTime updatedAt;
+
+    /**
+     * Deterministic ID of the aggregation of one employee and event type for the window starting
+     * at {@code startTime}, so re-running a window overwrites instead of duplicating it
+     */
+    public static String windowId(String employeeId, EventType eventType, LocalDateTime startTime) {
+        return String.join("-", employeeId, eventType.name(), startTime.toString());
+    }
 } 
\ No newline at end of file
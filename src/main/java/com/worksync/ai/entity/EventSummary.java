@@ -12,7 +12,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "worksync-summaries")
+@Document(indexName = "worksync-summaries", createIndex = false)
 public class EventSummary {
     @Id
     private String id;
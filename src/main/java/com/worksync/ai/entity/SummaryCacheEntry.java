@@ -0,0 +1,35 @@
+package com.worksync.ai.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Summary and embedding generated for one normalized activity bundle, keyed by its fingerprint
+ */
+@Data
+@Document(indexName = "summary-cache")
+public class SummaryCacheEntry {
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Keyword)
+    private String employeeId;
+
+    @Field(type = FieldType.Keyword)
+    private String model;
+
+    @Field(type = FieldType.Text, index = false)
+    private String summaryText;
+
+    // Only looked up by ID, so the vector is stored without an index
+    @Field(type = FieldType.Dense_Vector, dims = 1536, index = false)
+    private float[] embedding;
+
+    @Field(type = FieldType.Date)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,52 @@
+package com.worksync.ai.entity;
+
+import com.worksync.ai.enums.SummaryRunStatus;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ledger record of the summary run for one hourly window
+ */
+@Data
+@Document(indexName = "summary-runs")
+public class SummaryRun {
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Date)
+    private LocalDateTime windowStart;
+
+    @Field(type = FieldType.Date)
+    private LocalDateTime windowEnd;
+
+    @Field(type = FieldType.Keyword)
+    private SummaryRunStatus status;
+
+    @Field(type = FieldType.Integer)
+    private int attempts;
+
+    @Field(type = FieldType.Integer)
+    private int succeededEmployees;
+
+    @Field(type = FieldType.Integer)
+    private int failedEmployees;
+
+    @Field(type = FieldType.Date)
+    private LocalDateTime startedAt;
+
+    @Field(type = FieldType.Date)
+    private LocalDateTime finishedAt;
+
+    /**
+     * Deterministic ID of the run of the window starting at {@code windowStart}, so a restarted
+     * or repeated run of the same window finds the ledger of the earlier attempt
+     */
+    public static String runId(LocalDateTime windowStart) {
+        return "summary-" + windowStart;
+    }
+}
@@ -0,0 +1,44 @@
+package com.worksync.ai.entity;
+
+import com.worksync.ai.enums.SummaryRunStatus;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ledger record of one employee within a summary run. Only written once the employee has been
+ * attempted, so employees without an entry have not been summarized yet.
+ */
+@Data
+@Document(indexName = "summary-run-entries")
+public class SummaryRunEntry {
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Keyword)
+    private String runId;
+
+    @Field(type = FieldType.Keyword)
+    private String employeeId;
+
+    // COMPLETED once the summary is stored, INCOMPLETE after a failed attempt
+    @Field(type = FieldType.Keyword)
+    private SummaryRunStatus status;
+
+    @Field(type = FieldType.Integer)
+    private int attempts;
+
+    @Field(type = FieldType.Text)
+    private String lastError;
+
+    @Field(type = FieldType.Date)
+    private LocalDateTime updatedAt;
+
+    public static String entryId(String runId, String employeeId) {
+        return runId + "-" + employeeId;
+    }
+}
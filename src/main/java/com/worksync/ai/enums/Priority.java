@@ -5,17 +5,31 @@ package com.worksync.ai.enums;
  */
 public enum Priority {
     /**
-     * Critical priority - processed immediately
+     * Critical priority - largest share of every drain round
      */
     CRITICAL,
 
     /**
-     * High priority - processed every 5 minutes
+     * High priority - drained ahead of normal events under contention
      */
     HIGH,
 
     /**
-     * Normal priority - processed every 30 minutes
+     * Normal priority - smallest share, never starved
      */
-    NORMAL
-} 
\ No newline at end of file
+    NORMAL;
+
+    /**
+     * Maps the priority carried by an incoming event onto a processing level
+     */
+    public static Priority of(com.worksync.ai.model.enums.Priority eventPriority) {
+        if (eventPriority == null) {
+            return NORMAL;
+        }
+        return switch (eventPriority) {
+            case CRITICAL -> CRITICAL;
+            case HIGH -> HIGH;
+            default -> NORMAL;
+        };
+    }
+}
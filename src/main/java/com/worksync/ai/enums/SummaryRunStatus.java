@@ -0,0 +1,7 @@
+package com.worksync.ai.enums;
+
+public enum SummaryRunStatus {
+    RUNNING,
+    INCOMPLETE,
+    COMPLETED
+}
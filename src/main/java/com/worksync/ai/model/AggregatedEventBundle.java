@@ -3,6 +3,8 @@ package com.worksync.ai.model;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
@@ -19,6 +21,7 @@ public class AggregatedEventBundle {
     private List<AppUsageEvent> appUsageEvents;
     private List<SecurityEvent> securityEvents;
     private List<AlertEvent> alertEvents;
+    private LocalDateTime windowStart; // Start of the window the events were collected for
     
     // Constructor that initializes collections
     public AggregatedEventBundle(String employeeId, String employeeName) {
@@ -30,4 +33,15 @@ public class AggregatedEventBundle {
         this.securityEvents = new ArrayList<>();
         this.alertEvents = new ArrayList<>();
     }
+
+    /**
+     * When an event happened as minutes into the window, so the same activity reads the same in
+     * every window; the absolute time for bundles without a window
+     */
+    public String relativeTime(LocalDateTime timestamp) {
+        if (timestamp == null || windowStart == null) {
+            return timestamp != null ? timestamp.toString() : null;
+        }
+        return "minute " + Duration.between(windowStart, timestamp).toMinutes();
+    }
 }
\ No newline at end of file
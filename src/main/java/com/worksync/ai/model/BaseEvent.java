@@ -20,12 +20,15 @@ import java.util.Map;
 @AllArgsConstructor
 @Document(indexName = "worksync-events")
 public class BaseEvent {
+
+    // Format of the timestamp field in the event index, for building range queries
+    public static final String TIMESTAMP_PATTERN = "uuuu-MM-dd'T'HH:mm:ss.SSSSSS";
     
     @Id
     @JsonProperty("eventId")
     private String eventId;
 
-    @Field(type = FieldType.Date, format = {}, pattern = "uuuu-MM-dd'T'HH:mm:ss.SSSSSS")
+    @Field(type = FieldType.Date, format = {}, pattern = TIMESTAMP_PATTERN)
     @JsonProperty("timestamp")
     private LocalDateTime timestamp;
 
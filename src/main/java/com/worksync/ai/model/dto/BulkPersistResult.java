@@ -0,0 +1,22 @@
+package com.worksync.ai.model.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a single bulk write: the events that were indexed, the events that were
+ * rejected, and the rejection reason per event ID.
+ */
+public record BulkPersistResult<T>(
+    List<T> persisted,
+    List<T> failed,
+    Map<String, String> failureReasons
+) {
+    public static <T> BulkPersistResult<T> empty() {
+        return new BulkPersistResult<>(List.of(), List.of(), Map.of());
+    }
+
+    public boolean hasFailures() {
+        return !failed.isEmpty();
+    }
+}
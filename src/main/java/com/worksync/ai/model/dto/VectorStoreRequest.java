@@ -15,4 +15,6 @@ public class VectorStoreRequest {
     private String employeeId;
     private String summary;
     private LocalDateTime timestamp;
+    // Fingerprint of the bundle the summary was generated from, to reuse its cached embedding
+    private String fingerprint;
 } 
\ No newline at end of file
@@ -15,7 +15,7 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "worksync-summary-vectors")
+@Document(indexName = "worksync-summary-vectors", createIndex = false)
 public class SummaryVector {
     
     @Id
@@ -27,6 +27,7 @@ public class SummaryVector {
     @Field(type = FieldType.Text)
     private String summaryText;
 
+    // Indexed in an HNSW graph for approximate kNN search, see VectorMappingConfig; null for summaries that could not be embedded
     @Field(type = FieldType.Dense_Vector, dims = 1536)
     private float[] embedding;
 
@@ -0,0 +1,9 @@
+package com.worksync.ai.repository;
+
+import com.worksync.ai.entity.SummaryCacheEntry;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SummaryCacheRepository extends ElasticsearchRepository<SummaryCacheEntry, String> {
+}
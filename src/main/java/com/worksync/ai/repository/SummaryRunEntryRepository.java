@@ -0,0 +1,16 @@
+package com.worksync.ai.repository;
+
+import com.worksync.ai.entity.SummaryRunEntry;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface SummaryRunEntryRepository extends ElasticsearchRepository<SummaryRunEntry, String> {
+
+    /**
+     * Scrolls through all entries of a run, which may hold more employees than one search page
+     */
+    Stream<SummaryRunEntry> findByRunId(String runId);
+}
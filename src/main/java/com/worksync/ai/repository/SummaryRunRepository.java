@@ -0,0 +1,16 @@
+package com.worksync.ai.repository;
+
+import com.worksync.ai.entity.SummaryRun;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SummaryRunRepository extends ElasticsearchRepository<SummaryRun, String> {
+
+    /**
+     * The oldest window in the ledger, which marks when summary runs were first recorded
+     */
+    Optional<SummaryRun> findFirstByOrderByWindowStartAsc();
+}
@@ -1,16 +1,14 @@
 package com.worksync.ai.scheduler;
 
-import com.worksync.ai.model.AppUsageEvent;
-import com.worksync.ai.model.SecurityEvent;
-import com.worksync.ai.model.AlertEvent;
 import com.worksync.ai.service.EventAggregationService;
+import com.worksync.ai.service.StreamingAggregationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.temporal.ChronoUnit;
 
 @Slf4j
 @Component
@@ -19,44 +17,42 @@ public class EventAggregationScheduler {
     @Autowired
     private EventAggregationService aggregationService;
 
+    @Autowired
+    private StreamingAggregationService streamingAggregationService;
+
     // Run every hour
     @Scheduled(cron = "0 0 * * * *")
     public void aggregateEvents() {
-        LocalDateTime endTime = LocalDateTime.now();
+        if (streamingAggregationService.isEnabled()) {
+            log.debug("Streaming aggregation is enabled, skipping hourly re-aggregation");
+            return;
+        }
+        LocalDateTime endTime = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
         LocalDateTime startTime = endTime.minusHours(1);
 
         try {
             log.info("Starting event aggregation for period: {} to {}", startTime, endTime);
 
-            // TODO: Fetch events from the last hour from your event store
-            List<AppUsageEvent> appUsageEvents = fetchAppUsageEvents(startTime, endTime);
-            List<SecurityEvent> securityEvents = fetchSecurityEvents(startTime, endTime);
-            List<AlertEvent> alertEvents = fetchAlertEvents(startTime, endTime);
+            // Aggregate and store events inside Elasticsearch
+            int stored = aggregationService.aggregateEventsInRange(startTime, endTime);
 
-            // Aggregate and store events
-            aggregationService.aggregateAppUsageEvents(appUsageEvents, startTime, endTime);
-            aggregationService.aggregateSecurityEvents(securityEvents, startTime, endTime);
-            aggregationService.aggregateAlertEvents(alertEvents, startTime, endTime);
-
-            log.info("Completed event aggregation for period: {} to {}", startTime, endTime);
+            log.info("Completed event aggregation for period: {} to {}, {} aggregations stored", startTime, endTime, stored);
         } catch (Exception e) {
             log.error("Error during event aggregation: {}", e.getMessage(), e);
         }
     }
 
-    // TODO: Implement these methods to fetch events from your event store
-    private List<AppUsageEvent> fetchAppUsageEvents(LocalDateTime startTime, LocalDateTime endTime) {
-        // Implementation to fetch app usage events
-        return List.of();
-    }
-
-    private List<SecurityEvent> fetchSecurityEvents(LocalDateTime startTime, LocalDateTime endTime) {
-        // Implementation to fetch security events
-        return List.of();
-    }
-
-    private List<AlertEvent> fetchAlertEvents(LocalDateTime startTime, LocalDateTime endTime) {
-        // Implementation to fetch alert events
-        return List.of();
+    @Scheduled(fixedDelayString = "${streaming-aggregation.flush-interval-ms:30000}")
+    public void flushStreamingAggregations() {
+        if (!streamingAggregationService.isEnabled()) {
+            return;
+        }
+        try {
+            int written = streamingAggregationService.flushClosedWindows();
+            log.debug("Wrote {} streaming aggregations, {} windows still open",
+                written, streamingAggregationService.openWindows());
+        } catch (Exception e) {
+            log.error("Error flushing streaming aggregations: {}", e.getMessage(), e);
+        }
     }
-} 
\ No newline at end of file
+}
@@ -2,6 +2,11 @@ package com.worksync.ai.service;
 
 import com.worksync.ai.model.dto.ChatbotResponse;
 import com.worksync.ai.model.dto.ChatbotRequest;
+import com.worksync.ai.model.dto.SummaryMatch;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface ChatbotService {
     /**
@@ -10,4 +15,24 @@ public interface ChatbotService {
      * @return ChatbotResponse containing relevant summaries and metadata
      */
     ChatbotResponse processQuery(ChatbotRequest request);
+
+    /**
+     * Process a query without blocking the caller while the model generates. Cancelling the
+     * returned future aborts the model request in flight.
+     * @param request The chatbot request containing the query
+     * @return A future of the ChatbotResponse, which carries failures as unsuccessful responses
+     */
+    CompletableFuture<ChatbotResponse> processQueryAsync(ChatbotRequest request);
+
+    /**
+     * Process a query, streaming the answer as the model generates it. The matched summaries are
+     * passed to {@code onMatches} once the vector search is done, before the model is called, and
+     * each generated fragment of the answer to {@code onToken}; both are called from background threads.
+     * @param request The chatbot request containing the query
+     * @param onMatches Receives the matched summaries, possibly empty
+     * @param onToken Receives the answer as it is generated
+     * @return A future of the complete ChatbotResponse; cancelling it aborts the model request in flight
+     */
+    CompletableFuture<ChatbotResponse> streamQuery(ChatbotRequest request, Consumer<List<SummaryMatch>> onMatches,
+                                                   Consumer<String> onToken);
 } 
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.worksync.ai.service;
 import com.worksync.ai.model.dto.SummaryMatch;
 import com.worksync.ai.model.dto.VectorStoreRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -23,6 +24,19 @@ public interface EmbeddingAndVectorStorageService {
      */
     List<SummaryMatch> similaritySearch(String query, int topK);
 
+    /**
+     * Performs similarity search against the stored vectors of an employee and time range. The
+     * filters are applied while the nearest neighbours are searched, so up to topK matches are
+     * returned even when most stored summaries are filtered out.
+     * @param query The query text to search for
+     * @param topK The number of most similar results to return
+     * @param employeeId The employee whose summaries are searched, or null for all employees
+     * @param from The earliest summary timestamp (inclusive), or null
+     * @param to The latest summary timestamp (exclusive), or null
+     * @return List of matching summaries with their cosine similarity, most similar first
+     */
+    List<SummaryMatch> similaritySearch(String query, int topK, String employeeId, LocalDateTime from, LocalDateTime to);
+
     /**
      * Stores the embedding of a summary text for an employee in the vector store.
      *
@@ -22,6 +22,16 @@ public interface EventAggregationService {
 
     void aggregateAlertEvents(List<AlertEvent> events, LocalDateTime startTime, LocalDateTime endTime);
 
+    /**
+     * Aggregates the events of a time range inside Elasticsearch and stores one aggregation per
+     * employee and event type, without loading the raw events.
+     *
+     * @param startTime The start of the time range (inclusive)
+     * @param endTime The end of the time range (exclusive)
+     * @return The number of aggregations stored
+     */
+    int aggregateEventsInRange(LocalDateTime startTime, LocalDateTime endTime);
+
     /**
      * Fetches all events from the last hour and groups them by employeeId.
      * This includes AppUsageEvents, SecurityEvents, and AlertEvents.
@@ -5,6 +5,7 @@ import com.worksync.ai.model.enums.Priority;
 import com.worksync.ai.model.AlertEvent;
 import com.worksync.ai.model.AppUsageEvent;
 import com.worksync.ai.model.SecurityEvent;
+import com.worksync.ai.model.dto.BulkPersistResult;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -21,4 +22,28 @@ public interface EventProcessingService {
     void processSecurityEvent(SecurityEvent event);
 
     void processAlertEvent(AlertEvent event);
+
+    /**
+     * Persists a batch of app usage events through a single bulk request.
+     *
+     * @param events The events received in one poll
+     * @return The indexed and rejected events of the batch
+     */
+    BulkPersistResult<AppUsageEvent> processAppUsageEvents(List<AppUsageEvent> events);
+
+    /**
+     * Persists a batch of security events through a single bulk request.
+     *
+     * @param events The events received in one poll
+     * @return The indexed and rejected events of the batch
+     */
+    BulkPersistResult<SecurityEvent> processSecurityEvents(List<SecurityEvent> events);
+
+    /**
+     * Persists a batch of alert events through a single bulk request.
+     *
+     * @param events The events received in one poll
+     * @return The indexed and rejected events of the batch
+     */
+    BulkPersistResult<AlertEvent> processAlertEvents(List<AlertEvent> events);
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.worksync.ai.service;
+
+import com.worksync.ai.model.AggregatedEventBundle;
+import com.worksync.ai.model.BaseEvent;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Service interface for reading time ranges of events without materializing them.
+ * Streams are backed by an Elasticsearch point in time and fetched page by page with
+ * search_after, and must be closed to release the point in time.
+ */
+public interface EventStreamService {
+
+    /**
+     * Streams the events of one type in a time range, ordered by employeeId and then timestamp
+     *
+     * @param eventClass The event type to read
+     * @param startTime The start of the time range (inclusive)
+     * @param endTime The end of the time range (exclusive)
+     * @return A lazily fetched stream that must be closed
+     */
+    <T extends BaseEvent> Stream<T> streamEvents(Class<T> eventClass, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * Streams one bundle per employee with all of their events in a time range. Only the events
+     * of the employee being assembled are held in memory.
+     *
+     * @param startTime The start of the time range (inclusive)
+     * @param endTime The end of the time range (exclusive)
+     * @return A lazily fetched stream ordered by employeeId that must be closed
+     */
+    Stream<AggregatedEventBundle> streamEmployeeBundles(LocalDateTime startTime, LocalDateTime endTime);
+}
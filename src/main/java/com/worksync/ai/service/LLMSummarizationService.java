@@ -2,6 +2,9 @@ package com.worksync.ai.service;
 
 import com.worksync.ai.model.AggregatedEventBundle;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Service interface for generating natural language summaries of employee events using LLM.
  */
@@ -13,4 +16,14 @@ public interface LLMSummarizationService {
      * @return A natural language summary of the employee's activities
      */
     String generateSummary(AggregatedEventBundle bundle);
+
+    /**
+     * Generates summaries for several employees. When batching is enabled, employees with small
+     * activity data share requests whose JSON response is split back into per-employee summaries;
+     * anything the batched response does not cover is summarized with single requests.
+     *
+     * @param bundles The aggregated events of each employee
+     * @return The summary of each employee, keyed by employeeId
+     */
+    Map<String, String> generateSummaries(List<AggregatedEventBundle> bundles);
 } 
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.worksync.ai.service;
 
 import com.worksync.ai.model.dto.QueryAnalysis;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface QueryAnalyzerService {
     /**
      * Analyzes a user query to determine the type of query and required processing
@@ -9,4 +11,12 @@ public interface QueryAnalyzerService {
      * @return QueryAnalysis containing query type and processing requirements
      */
     QueryAnalysis analyzeQuery(String query);
+
+    /**
+     * Analyzes a query without blocking the caller. Never completes exceptionally; a query
+     * that cannot be analyzed gets a default simple-retrieval analysis.
+     * @param query The user's natural language query
+     * @return A future of the QueryAnalysis
+     */
+    CompletableFuture<QueryAnalysis> analyzeQueryAsync(String query);
 } 
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.worksync.ai.service;
+
+import com.worksync.ai.model.BaseEvent;
+
+import java.util.List;
+
+/**
+ * Service interface for aggregating events incrementally as they are consumed.
+ * Keeps per-employee counters for tumbling time windows and writes one EventAggregation
+ * per employee, event type and window once the window has closed.
+ */
+public interface StreamingAggregationService {
+
+    boolean isEnabled();
+
+    /**
+     * Adds events to the windows of their timestamps. An event whose ID its window has already
+     * counted is skipped, so redelivered events are not counted twice. Does nothing while
+     * streaming aggregation is disabled.
+     *
+     * @param events The persisted events
+     */
+    void record(List<? extends BaseEvent> events);
+
+    /**
+     * Writes and releases every window that has closed, merging with aggregations already stored for it
+     *
+     * @return The number of aggregations written
+     */
+    int flushClosedWindows();
+
+    /**
+     * Number of employee windows currently held in memory
+     */
+    int openWindows();
+}
@@ -0,0 +1,46 @@
+package com.worksync.ai.service;
+
+import com.worksync.ai.model.AggregatedEventBundle;
+
+import java.util.Optional;
+
+/**
+ * Service interface for reusing summaries and embeddings across windows with identical activity.
+ * Entries are keyed by a fingerprint of the normalized bundle and the summarization model, so an
+ * employee whose activity did not change, such as an idle machine, is not sent to the model again.
+ */
+public interface SummaryCacheService {
+
+    /**
+     * Fingerprints the content the summary prompt shows: event times enter as minutes into the
+     * window, while event IDs and absolute timestamps, which differ between windows, are left out
+     *
+     * @param bundle The events of one employee
+     * @return A hex SHA-256 digest, or null while caching is disabled
+     */
+    String fingerprint(AggregatedEventBundle bundle);
+
+    /**
+     * @param fingerprint The fingerprint of the bundle
+     * @return The model summary stored for the fingerprint, if any and not expired
+     */
+    Optional<String> findSummary(String fingerprint);
+
+    /**
+     * Stores a summary generated by the model. Fallback summaries must not be stored, so a later
+     * window with the same activity gets another chance at a model summary.
+     */
+    void storeSummary(String fingerprint, String employeeId, String summary);
+
+    /**
+     * @param fingerprint The fingerprint of the bundle the summary was generated from
+     * @param summary The summary to embed
+     * @return The embedding stored for the fingerprint if it was computed for the same summary text
+     */
+    Optional<float[]> findEmbedding(String fingerprint, String summary);
+
+    /**
+     * Attaches an embedding to the summary stored for the fingerprint. Does nothing if no summary is stored.
+     */
+    void storeEmbedding(String fingerprint, String summary, float[] embedding);
+}
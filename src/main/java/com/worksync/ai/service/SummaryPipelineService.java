@@ -8,6 +8,9 @@ public interface SummaryPipelineService {
      * 2. Groups them by employee
      * 3. Generates summaries using LLM
      * 4. Stores the summaries with embeddings
+     * Progress is recorded in a run ledger per hourly window, so windows left unfinished by a
+     * crash and hours missed during an outage are resumed by later runs, skipping employees
+     * that were already summarized.
      */
     void runHourlySummary();
 } 
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.worksync.ai.service.impl;
 
+import com.worksync.ai.client.LlmRouter;
 import com.worksync.ai.client.OpenRouterClient;
 import com.worksync.ai.model.dto.*;
 import com.worksync.ai.model.enums.QueryType;
@@ -8,10 +9,21 @@ import com.worksync.ai.service.EmbeddingAndVectorStorageService;
 import com.worksync.ai.service.QueryAnalyzerService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -27,6 +39,13 @@ public class ChatbotServiceImpl implements ChatbotService {
     @Autowired
     private OpenRouterClient openRouterClient;
 
+    @Autowired
+    private LlmRouter llmRouter;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor taskExecutor;
+
     @Value("${spring.ai.openai.chat.model:deepseek/deepseek-prover-v2:free}")
     private String model;
 
@@ -69,73 +88,150 @@ public class ChatbotServiceImpl implements ChatbotService {
 
     @Override
     public ChatbotResponse processQuery(ChatbotRequest request) {
-        log.debug("Processing chatbot query: {}", request.query());
-        
-        try {
-            // First, analyze the query to determine processing requirements
-            QueryAnalysis analysis = queryAnalyzerService.analyzeQuery(request.query());
-            log.debug("Query analysis result: {}", analysis);
+        return processQueryAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<ChatbotResponse> processQueryAsync(ChatbotRequest request) {
+        return answer(request, new QueryCall(matches -> { }, null));
+    }
+
+    @Override
+    public CompletableFuture<ChatbotResponse> streamQuery(ChatbotRequest request, Consumer<List<SummaryMatch>> onMatches,
+                                                          Consumer<String> onToken) {
+        return answer(request, new QueryCall(onMatches, onToken));
+    }
 
-            // Fetch relevant data based on analysis
-            List<SummaryMatch> matches = fetchRelevantData(request.query(), analysis);
-            log.debug("Found {} relevant matches", matches.size());
+    /**
+     * State of one query: the model call currently in flight, cancelled if the caller cancels the
+     * query, and the callbacks of a streamed answer
+     */
+    private static final class QueryCall {
+        private final AtomicReference<CompletableFuture<?>> inFlight = new AtomicReference<>();
+        private volatile boolean cancelled;
+        private final Consumer<List<SummaryMatch>> onMatches;
+        // Null unless the answer is streamed
+        private final Consumer<String> onToken;
+
+        private QueryCall(Consumer<List<SummaryMatch>> onMatches, Consumer<String> onToken) {
+            this.onMatches = onMatches;
+            this.onToken = onToken;
+        }
 
-            if (matches.isEmpty()) {
-                return handleNoMatches(request.query(), analysis);
+        /**
+         * Starts a model call unless the query has been cancelled. Later stages of a cancelled query
+         * still run, so each call checks again instead of relying on the cancellation of the first.
+         */
+        private <T> CompletableFuture<T> track(Supplier<CompletableFuture<T>> request) {
+            if (cancelled) {
+                return CompletableFuture.failedFuture(new CancellationException("Query was cancelled"));
             }
-
-            // Process the data based on query type
-            String response = processQueryByType(matches, request.query(), analysis);
-            
-            if (response == null || response.trim().isEmpty()) {
-                log.warn("Generated response was empty, using fallback");
-                return handleNoMatches(request.query(), analysis);
+            CompletableFuture<T> future = request.get();
+            inFlight.set(future);
+            // The query may have been cancelled while the call was starting
+            if (cancelled) {
+                future.cancel(true);
             }
+            return future;
+        }
 
-            return ChatbotResponse.builder()
-                .success(true)
-                .message(response)
-                .matches(matches)
-                .build();
-
-        } catch (Exception e) {
-            log.error("Error processing chatbot query: {}", e.getMessage(), e);
-            return ChatbotResponse.builder()
-                .success(false)
-                .message("Error processing your query: " + e.getMessage())
-                .matches(List.of())
-                .build();
+        private void cancel() {
+            cancelled = true;
+            CompletableFuture<?> future = inFlight.get();
+            if (future != null) {
+                future.cancel(true);
+            }
         }
     }
 
-    private String processQueryByType(List<SummaryMatch> matches, String query, QueryAnalysis analysis) {
+    private CompletableFuture<ChatbotResponse> answer(ChatbotRequest request, QueryCall call) {
+        log.debug("Processing chatbot query: {}", request.query());
+
+        // First, analyze the query to determine processing requirements
+        CompletableFuture<QueryAnalysis> analysisFuture = call.track(() -> queryAnalyzerService.analyzeQueryAsync(request.query()));
+        CompletableFuture<ChatbotResponse> response = analysisFuture
+            // Vector search blocks on Elasticsearch, so keep it off the HTTP client threads
+            .thenApplyAsync(analysis -> {
+                log.debug("Query analysis result: {}", analysis);
+                return new Retrieval(analysis, fetchRelevantData(request.query(), analysis));
+            }, taskExecutor)
+            .thenCompose(retrieval -> {
+                log.debug("Found {} relevant matches", retrieval.matches().size());
+                call.onMatches.accept(retrieval.matches());
+                if (retrieval.matches().isEmpty()) {
+                    return handleNoMatches(request.query(), retrieval.analysis(), call);
+                }
+
+                // Process the data based on query type
+                return processQueryByType(retrieval.matches(), request.query(), retrieval.analysis(), call)
+                    .thenCompose(answer -> {
+                        if (answer == null || answer.trim().isEmpty()) {
+                            log.warn("Generated response was empty, using fallback");
+                            return handleNoMatches(request.query(), retrieval.analysis(), call);
+                        }
+                        return CompletableFuture.completedFuture(ChatbotResponse.builder()
+                            .success(true)
+                            .message(answer)
+                            .matches(retrieval.matches())
+                            .build());
+                    });
+            })
+            .exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof CancellationException) {
+                    log.debug("Chatbot query was cancelled: {}", request.query());
+                } else {
+                    log.error("Error processing chatbot query: {}", cause.getMessage(), cause);
+                }
+                return ChatbotResponse.builder()
+                    .success(false)
+                    .message("Error processing your query: " + cause.getMessage())
+                    .matches(List.of())
+                    .build();
+            });
+
+        response.whenComplete((result, error) -> {
+            if (response.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return response;
+    }
+
+    private record Retrieval(QueryAnalysis analysis, List<SummaryMatch> matches) {}
+
+    /**
+     * Sends one model request through the router, or straight to OpenRouter if the query is
+     * streamed, since a hedged stream could not take back the tokens already relayed
+     */
+    private CompletableFuture<String> complete(String systemPrompt, String userPrompt, QueryCall call) {
+        return call.track(() -> call.onToken == null
+            ? llmRouter.chatCompletionAsync(model, systemPrompt, userPrompt, temperature, maxTokens)
+            : openRouterClient.chatCompletionStream(model, systemPrompt, userPrompt, temperature, maxTokens, call.onToken));
+    }
+
+    private CompletableFuture<String> processQueryByType(List<SummaryMatch> matches, String query, QueryAnalysis analysis,
+                                                         QueryCall call) {
         String contextData = formatMatchesForAnalysis(matches);
         String systemPrompt = getSystemPromptForQueryType(analysis.getQueryType());
         
         String userPrompt = buildDetailedPrompt(matches, query, analysis);
         
-        try {
-            String response = openRouterClient.chatCompletionWithModel(
-                model,
-                systemPrompt,
-                userPrompt,
-                temperature,
-                maxTokens
-            );
-            
-            if (response != null && !response.trim().isEmpty()) {
-                log.debug("Generated response for query type {}: {} chars", 
-                    analysis.getQueryType(), response.length());
-                return response.trim();
-            }
-            
-            log.warn("Empty response from OpenRouter for query type: {}", analysis.getQueryType());
-            return null;
-            
-        } catch (Exception e) {
-            log.error("Error generating response: {}", e.getMessage(), e);
-            return null;
-        }
+        return complete(systemPrompt, userPrompt, call)
+            .thenApply(response -> {
+                if (response != null && !response.trim().isEmpty()) {
+                    log.debug("Generated response for query type {}: {} chars",
+                        analysis.getQueryType(), response.length());
+                    return response.trim();
+                }
+
+                log.warn("Empty response from OpenRouter for query type: {}", analysis.getQueryType());
+                return null;
+            })
+            .exceptionally(e -> {
+                log.error("Error generating response: {}", e.getMessage(), e);
+                return null;
+            });
     }
 
     private String getSystemPromptForQueryType(QueryType queryType) {
@@ -272,22 +368,18 @@ public class ChatbotServiceImpl implements ChatbotService {
     }
 
     private List<SummaryMatch> fetchRelevantData(String query, QueryAnalysis analysis) {
-        // Get initial matches based on vector similarity
+        // Get initial matches based on vector similarity, restricted to the employee and time period asked about
+        LocalDateTime[] timeRange = timeRange(analysis.getTimeframe());
         List<SummaryMatch> matches = vectorStorageService.similaritySearch(
             query,
-            10 // Default to 10 results
+            10, // Default to 10 results
+            analysis.getEmployeeId(),
+            timeRange != null ? timeRange[0] : null,
+            timeRange != null ? timeRange[1] : null
         );
 
         log.debug("Initial vector search returned {} matches", matches.size());
 
-        // Apply additional filters based on analysis
-        if (analysis.getEmployeeId() != null) {
-            matches = matches.stream()
-                .filter(m -> m.employeeId().equals(analysis.getEmployeeId()))
-                .collect(Collectors.toList());
-            log.debug("After employee filter: {} matches", matches.size());
-        }
-
         // Apply keyword filters if specified
         if (analysis.getFilterKeywords() != null && !analysis.getFilterKeywords().isEmpty()) {
             matches = filterSummariesByKeywords(matches, analysis.getFilterKeywords());
@@ -303,6 +395,39 @@ public class ChatbotServiceImpl implements ChatbotService {
         return matches;
     }
 
+    private static final Pattern RELATIVE_TIMEFRAME = Pattern.compile("(?:last|past|previous)\\s+(\\d+\\s+)?(hour|day|week|month)s?");
+
+    /**
+     * Translates the common relative timeframes of the query analysis into a time range, or null
+     * for none or any other timeframe, so that the search is not narrowed on a guess
+     */
+    private LocalDateTime[] timeRange(String timeframe) {
+        if (timeframe == null || timeframe.isBlank()) {
+            return null;
+        }
+        String normalized = timeframe.trim().toLowerCase();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime today = now.toLocalDate().atStartOfDay();
+        if (normalized.equals("today")) {
+            return new LocalDateTime[] {today, null};
+        }
+        if (normalized.equals("yesterday")) {
+            return new LocalDateTime[] {today.minusDays(1), today};
+        }
+        Matcher matcher = RELATIVE_TIMEFRAME.matcher(normalized);
+        if (!matcher.matches()) {
+            return null;
+        }
+        int amount = matcher.group(1) != null ? Integer.parseInt(matcher.group(1).trim()) : 1;
+        LocalDateTime from = switch (matcher.group(2)) {
+            case "hour" -> now.minusHours(amount);
+            case "day" -> now.minusDays(amount);
+            case "week" -> now.minusWeeks(amount);
+            default -> now.minusMonths(amount);
+        };
+        return new LocalDateTime[] {from, null};
+    }
+
     private String formatMatchesForAnalysis(List<SummaryMatch> matches) {
         StringBuilder builder = new StringBuilder();
         for (SummaryMatch match : matches) {
@@ -328,58 +453,53 @@ public class ChatbotServiceImpl implements ChatbotService {
             .collect(Collectors.toList());
     }
 
-    private ChatbotResponse handleNoMatches(String query, QueryAnalysis analysis) {
-        try {
-            String systemPrompt = """
-                You are an AI assistant helping with employee activity queries.
-                When no matching data is found, provide a clear and specific response about what was not found.
-                Focus on the specific elements from the query (employee, application, activity type, etc.).
-                """;
-
-            String userPrompt = String.format("""
-                Query: %s
-                
-                Analysis:
-                - Employee ID: %s
-                - Employee Name: %s
-                - Required Fields: %s
-                - Time Period: %s
-                
-                No matching data was found in the system.
-                Explain specifically what information was looked for but not found.
-                Format the response in a clear, direct way using the ### SUMMARY format.
-                """,
-                query,
-                analysis.getEmployeeId(),
-                analysis.getEmployeeName(),
-                analysis.getRequiredFields() != null ? String.join(", ", analysis.getRequiredFields()) : "none",
-                analysis.getTimeframe() != null ? analysis.getTimeframe() : "not specified"
-            );
-
-            String response = openRouterClient.chatCompletionWithModel(
-                model,
-                systemPrompt,
-                userPrompt,
-                temperature,
-                maxTokens
-            );
-
-            if (response != null && !response.trim().isEmpty()) {
+    private CompletableFuture<ChatbotResponse> handleNoMatches(String query, QueryAnalysis analysis, QueryCall call) {
+        String systemPrompt = """
+            You are an AI assistant helping with employee activity queries.
+            When no matching data is found, provide a clear and specific response about what was not found.
+            Focus on the specific elements from the query (employee, application, activity type, etc.).
+            """;
+
+        String userPrompt = String.format("""
+            Query: %s
+            
+            Analysis:
+            - Employee ID: %s
+            - Employee Name: %s
+            - Required Fields: %s
+            - Time Period: %s
+            
+            No matching data was found in the system.
+            Explain specifically what information was looked for but not found.
+            Format the response in a clear, direct way using the ### SUMMARY format.
+            """,
+            query,
+            analysis.getEmployeeId(),
+            analysis.getEmployeeName(),
+            analysis.getRequiredFields() != null ? String.join(", ", analysis.getRequiredFields()) : "none",
+            analysis.getTimeframe() != null ? analysis.getTimeframe() : "not specified"
+        );
+
+        return complete(systemPrompt, userPrompt, call)
+            .exceptionally(e -> {
+                log.error("Error generating no-match response: {}", e.getMessage(), e);
+                return null;
+            })
+            .thenApply(response -> {
+                if (response != null && !response.trim().isEmpty()) {
+                    return ChatbotResponse.builder()
+                        .success(true)
+                        .message(response.trim())
+                        .matches(List.of())
+                        .build();
+                }
+
+                // Ultimate fallback if everything fails
                 return ChatbotResponse.builder()
                     .success(true)
-                    .message(response.trim())
+                    .message(fallbackMessage)
                     .matches(List.of())
                     .build();
-            }
-        } catch (Exception e) {
-            log.error("Error generating no-match response: {}", e.getMessage(), e);
-        }
-
-        // Ultimate fallback if everything fails
-        return ChatbotResponse.builder()
-            .success(true)
-            .message(fallbackMessage)
-            .matches(List.of())
-            .build();
+            });
     }
 } 
\ No newline at end of file
@@ -1,26 +1,32 @@
 package com.worksync.ai.service.impl;
 
+import co.elastic.clients.elasticsearch._types.KnnQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
 import com.worksync.ai.client.OpenRouterClient;
 import com.worksync.ai.model.entity.SummaryVector;
 import com.worksync.ai.model.dto.SummaryMatch;
 import com.worksync.ai.model.dto.VectorStoreRequest;
 import com.worksync.ai.repository.SummaryVectorRepository;
 import com.worksync.ai.service.EmbeddingAndVectorStorageService;
+import com.worksync.ai.service.SummaryCacheService;
+import com.worksync.ai.vector.SummaryVectorIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 @Slf4j
 @Service
@@ -35,14 +41,33 @@ public class EmbeddingAndVectorStorageServiceImpl implements EmbeddingAndVectorS
     @Autowired
     private SummaryVectorRepository summaryVectorRepository;
 
+    @Autowired
+    private SummaryCacheService summaryCacheService;
+
+    @Autowired
+    private SummaryVectorIndex summaryVectorIndex;
+
+    // Candidates gathered from the HNSW graph per shard before the topK are picked; higher is more accurate and slower
+    @Value("${vector-search.num-candidates:100}")
+    private int numCandidates;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss");
+
     @Override
     @Transactional
     public void embedAndStore(VectorStoreRequest request) {
         log.debug("Generating embedding for summary from employee: {}", request.getEmployeeId());
 
         try {
-            // Generate embedding for the summary text using OpenRouter
-            float[] embedding = openRouterClient.generateEmbedding(request.getSummary());
+            // Reuse the embedding of a cached summary, otherwise generate it using OpenRouter
+            float[] embedding = summaryCacheService.findEmbedding(request.getFingerprint(), request.getSummary())
+                .orElse(null);
+            if (embedding == null) {
+                embedding = openRouterClient.generateEmbedding(request.getSummary());
+                if (embedding != null) {
+                    summaryCacheService.storeEmbedding(request.getFingerprint(), request.getSummary(), embedding);
+                }
+            }
             
             if (embedding != null) {
                 // Create and store the summary vector
@@ -53,15 +78,15 @@ public class EmbeddingAndVectorStorageServiceImpl implements EmbeddingAndVectorS
                     .timestamp(request.getTimestamp())
                     .build();
 
-                summaryVectorRepository.save(summaryVector);
+                summaryVectorIndex.add(summaryVectorRepository.save(summaryVector));
                 log.debug("Successfully stored summary vector for employee: {}", request.getEmployeeId());
             } else {
                 log.warn("Failed to generate embedding for employee {}, storing summary without embedding", request.getEmployeeId());
-                // Store summary without embedding as fallback
+                // Store summary without embedding as fallback; a missing vector is left out of the kNN graph
                 SummaryVector summaryVector = SummaryVector.builder()
                     .employeeId(request.getEmployeeId())
                     .summaryText(request.getSummary())
-                    .embedding(new float[0]) // Empty embedding
+                    .embedding(null)
                     .timestamp(request.getTimestamp())
                     .build();
 
@@ -77,7 +102,12 @@ public class EmbeddingAndVectorStorageServiceImpl implements EmbeddingAndVectorS
 
     @Override
     public List<SummaryMatch> similaritySearch(String query, int topK) {
-        log.debug("Performing similarity search for query with topK: {}", topK);
+        return similaritySearch(query, topK, null, null, null);
+    }
+
+    @Override
+    public List<SummaryMatch> similaritySearch(String query, int topK, String employeeId, LocalDateTime from, LocalDateTime to) {
+        log.debug("Performing similarity search for query with topK: {}, employee: {}, from: {}, to: {}", topK, employeeId, from, to);
 
         try {
             // Generate embedding for the query using OpenRouter
@@ -88,41 +118,12 @@ public class EmbeddingAndVectorStorageServiceImpl implements EmbeddingAndVectorS
                 return List.of(); // Return empty list if embedding fails
             }
 
-            // Retrieve all documents and calculate similarity in memory since we're using custom embeddings
-            List<SummaryVector> allVectors = StreamSupport.stream(summaryVectorRepository.findAll().spliterator(), false)
-                .collect(Collectors.toList());
-            log.debug("Retrieved {} total vectors for similarity search", allVectors.size());
-
-            // Calculate similarity for each vector and filter by threshold
-            List<SummaryMatch> matches = allVectors.stream()
-                .map(vector -> {
-                    try {
-                        if (vector.getEmbedding() == null || vector.getEmbedding().length == 0) {
-                            log.warn("Skipping document with null or empty embedding for employee: {}", vector.getEmployeeId());
-                            return null;
-                        }
-                        
-                        double similarity = calculateCosineSimilarity(queryEmbedding, vector.getEmbedding());
-                        log.debug("Similarity between query and employee {}: {}", vector.getEmployeeId(), similarity);
-                        
-                        // Only include matches above a reasonable threshold (adjust based on testing)
-                        if (similarity > 0.1) { // Lower threshold for better recall
-                            return new SummaryMatch(
-                                vector.getEmployeeId(),
-                                vector.getSummaryText(),
-                                vector.getTimestamp() != null ? vector.getTimestamp() : LocalDateTime.now(),
-                                similarity
-                            );
-                        }
-                        return null;
-                    } catch (Exception e) {
-                        log.warn("Skipping malformed document during similarity search: {}", e.getMessage());
-                        return null;
-                    }
-                })
-                .filter(match -> match != null) // Filter out null results
-                .sorted((a, b) -> Double.compare(b.similarity(), a.similarity())) // Sort by similarity desc
-                .limit(topK) // Limit to topK results
+            // Served from the in-process index when it is enabled and loaded
+            List<SummaryMatch> matches = summaryVectorIndex.search(queryEmbedding, topK, employeeId, from, to)
+                .orElseGet(() -> knnSearch(queryEmbedding, topK, employeeId, from, to))
+                .stream()
+                // Only include matches above a reasonable threshold (adjust based on testing)
+                .filter(match -> match.similarity() > 0.1) // Lower threshold for better recall
                 .collect(Collectors.toList());
 
             log.debug("Found {} valid matches above similarity threshold for query", matches.size());
@@ -134,6 +135,61 @@ public class EmbeddingAndVectorStorageServiceImpl implements EmbeddingAndVectorS
         }
     }
 
+    private List<SummaryMatch> knnSearch(float[] queryEmbedding, int topK, String employeeId, LocalDateTime from, LocalDateTime to) {
+        List<Float> queryVector = new ArrayList<>(queryEmbedding.length);
+        for (float value : queryEmbedding) {
+            queryVector.add(value);
+        }
+
+        // Pre-filters restrict the candidates the HNSW search visits, rather than the topK it returns
+        List<Query> filters = new ArrayList<>();
+        if (employeeId != null) {
+            filters.add(Query.of(q -> q.term(t -> t.field("employeeId").value(employeeId))));
+        }
+        if (from != null || to != null) {
+            filters.add(Query.of(q -> q.range(r -> {
+                r.field("timestamp");
+                if (from != null) {
+                    r.gte(JsonData.of(from.format(TIMESTAMP_FORMAT)));
+                }
+                if (to != null) {
+                    r.lt(JsonData.of(to.format(TIMESTAMP_FORMAT)));
+                }
+                return r;
+            })));
+        }
+
+        NativeQuery knnQuery = NativeQuery.builder()
+            .withKnnQuery(KnnQuery.of(k -> k
+                .field("embedding")
+                .queryVector(queryVector)
+                .k(topK)
+                .numCandidates(Math.max(topK, numCandidates))
+                .filter(filters)))
+            .withPageable(PageRequest.of(0, topK))
+            // The vectors are only needed for ranking, which Elasticsearch has done
+            .withSourceFilter(new FetchSourceFilterBuilder().withExcludes("embedding").build())
+            .build();
+
+        SearchHits<SummaryVector> hits = elasticsearchOperations.search(knnQuery, SummaryVector.class);
+        log.debug("kNN search returned {} hits", hits.getSearchHits().size());
+
+        return hits.getSearchHits().stream()
+            .map(hit -> {
+                SummaryVector vector = hit.getContent();
+                // Elasticsearch scores cosine similarity as (1 + cosine) / 2
+                double similarity = 2.0 * hit.getScore() - 1.0;
+                log.debug("Similarity between query and employee {}: {}", vector.getEmployeeId(), similarity);
+                return new SummaryMatch(
+                    vector.getEmployeeId(),
+                    vector.getSummaryText(),
+                    vector.getTimestamp() != null ? vector.getTimestamp() : LocalDateTime.now(),
+                    similarity
+                );
+            })
+            .collect(Collectors.toList());
+    }
+
     @Override
     @Transactional
     public void storeSummaryEmbedding(String employeeId, String summaryText) {
@@ -143,28 +199,4 @@ public class EmbeddingAndVectorStorageServiceImpl implements EmbeddingAndVectorS
             .timestamp(LocalDateTime.now())
             .build());
     }
-
-    /**
-     * Calculates cosine similarity between two embedding vectors
-     */
-    private double calculateCosineSimilarity(float[] embedding1, float[] embedding2) {
-        if (embedding1.length != embedding2.length) {
-            throw new IllegalArgumentException("Embedding dimensions do not match");
-        }
-
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-
-        for (int i = 0; i < embedding1.length; i++) {
-            dotProduct += embedding1[i] * embedding2[i];
-            norm1 += embedding1[i] * embedding1[i];
-            norm2 += embedding2[i] * embedding2[i];
-        }
-
-        norm1 = Math.sqrt(norm1);
-        norm2 = Math.sqrt(norm2);
-
-        return dotProduct / (norm1 * norm2);
-    }
-} 
\ No newline at end of file
+}
@@ -1,35 +1,42 @@
 package com.worksync.ai.service.impl;
 
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
 import com.worksync.ai.entity.EventAggregation;
 import com.worksync.ai.enums.EventType;
 import com.worksync.ai.model.AppUsageEvent;
 import com.worksync.ai.model.AlertEvent;
 import com.worksync.ai.model.SecurityEvent;
 import com.worksync.ai.model.AggregatedEventBundle;
+import com.worksync.ai.model.BaseEvent;
 import com.worksync.ai.model.dto.EventAggregationDTO;
 import com.worksync.ai.repository.EventAggregationRepository;
-import com.worksync.ai.repository.AlertEventRepository;
-import com.worksync.ai.repository.AppUsageEventRepository;
-import com.worksync.ai.repository.SecurityEventRepository;
 import com.worksync.ai.service.EventAggregationService;
+import com.worksync.ai.service.EventStreamService;
 import com.worksync.ai.service.LLMSummarizationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
-import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -45,13 +52,18 @@ public class EventAggregationServiceImpl implements EventAggregationService {
     private LLMSummarizationService summarizationService;
 
     @Autowired
-    private AppUsageEventRepository appUsageEventRepository;
+    private EventStreamService eventStreamService;
 
-    @Autowired
-    private SecurityEventRepository securityEventRepository;
+    @Value("${aggregation.query.max-employees:10000}")
+    private int maxEmployees;
 
-    @Autowired
-    private AlertEventRepository alertEventRepository;
+    @Value("${aggregation.query.max-terms-per-employee:500}")
+    private int maxTermsPerEmployee;
+
+    @Value("${aggregation.query.max-alert-descriptions:100}")
+    private int maxAlertDescriptions;
+
+    private static final DateTimeFormatter EVENT_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern(BaseEvent.TIMESTAMP_PATTERN);
 
     @Override
     @Transactional
@@ -170,88 +182,138 @@ public class EventAggregationServiceImpl implements EventAggregationService {
         });
     }
 
+    /**
+     * Runs a single size-0 search over the event index: terms on employeeId with sub-terms on
+     * appName (summing durationInSeconds), threatType and alertType (with the latest descriptions
+     * from top_hits). Only the buckets travel over the network.
+     */
     @Override
-    public Map<String, AggregatedEventBundle> fetchEventsForLastHour() {
-        log.debug("Fetching events for the last hour");
-        
-        // Calculate time range
-        Instant endTime = Instant.now();
-        Instant startTime = endTime.minusSeconds(3600); // 1 hour ago
-        
-        // Create criteria for time range
-        Criteria timeRangeCriteria = new Criteria("timestamp")
-            .greaterThanEqual(startTime)
-            .lessThanEqual(endTime);
-
-        // Fetch events by type
-        List<AppUsageEvent> appUsageEvents = fetchEvents(AppUsageEvent.class, timeRangeCriteria);
-        List<SecurityEvent> securityEvents = fetchEvents(SecurityEvent.class, timeRangeCriteria);
-        List<AlertEvent> alertEvents = fetchEvents(AlertEvent.class, timeRangeCriteria);
-
-        log.debug("Found {} app usage events, {} security events, and {} alert events",
-            appUsageEvents.size(), securityEvents.size(), alertEvents.size());
-
-        // Group events by employeeId
-        Map<String, AggregatedEventBundle> aggregatedEvents = new HashMap<>();
+    public int aggregateEventsInRange(LocalDateTime startTime, LocalDateTime endTime) {
+        Aggregation employeeName = Aggregation.of(a -> a
+            .topHits(h -> h.size(1).source(src -> src.filter(f -> f.includes("employeeName")))));
+        Aggregation apps = Aggregation.of(a -> a
+            .terms(t -> t.field("appName").size(maxTermsPerEmployee))
+            .aggregations("duration", Aggregation.of(sum -> sum.sum(s -> s.field("durationInSeconds")))));
+        Aggregation threats = Aggregation.of(a -> a
+            .terms(t -> t.field("threatType").size(maxTermsPerEmployee)));
+        Aggregation alerts = Aggregation.of(a -> a
+            .terms(t -> t.field("alertType").size(maxTermsPerEmployee))
+            .aggregations("descriptions", Aggregation.of(top -> top.topHits(h -> h
+                .size(maxAlertDescriptions)
+                .sort(sort -> sort.field(f -> f.field("timestamp").order(SortOrder.Desc)))
+                .source(src -> src.filter(f -> f.includes("description")))))));
+        Aggregation employees = Aggregation.of(a -> a
+            .terms(t -> t.field("employeeId").size(maxEmployees))
+            .aggregations("employeeName", employeeName)
+            .aggregations("apps", apps)
+            .aggregations("threats", threats)
+            .aggregations("alerts", alerts));
+
+        NativeQuery query = NativeQuery.builder()
+            .withQuery(q -> q.range(r -> r
+                .field("timestamp")
+                .gte(JsonData.of(startTime.format(EVENT_TIMESTAMP_FORMAT)))
+                .lt(JsonData.of(endTime.format(EVENT_TIMESTAMP_FORMAT)))))
+            .withAggregation("employees", employees)
+            .withMaxResults(0)
+            .build();
+
+        ElasticsearchAggregations aggregations =
+            (ElasticsearchAggregations) elasticsearchOperations.search(query, BaseEvent.class).getAggregations();
+        if (aggregations == null) {
+            return 0;
+        }
+        StringTermsAggregate employeeBuckets = aggregations.aggregationsAsMap().get("employees")
+            .aggregation().getAggregate().sterms();
+        if (employeeBuckets.sumOtherDocCount() != null && employeeBuckets.sumOtherDocCount() > 0) {
+            log.warn("More than {} employees had events between {} and {}, {} events were not aggregated",
+                maxEmployees, startTime, endTime, employeeBuckets.sumOtherDocCount());
+        }
 
-        // Process app usage events
-        appUsageEvents.forEach(event -> {
-            AggregatedEventBundle bundle = aggregatedEvents.computeIfAbsent(event.getEmployeeId(), employeeId -> 
-                new AggregatedEventBundle(employeeId, event.getEmployeeName())
-            );
-            bundle.getAppUsageEvents().add(event);
-            
-            // Collect additional properties
-            if (event.getPcId() != null) {
-                bundle.getPcIds().add(event.getPcId());
+        List<EventAggregation> results = new ArrayList<>();
+        for (StringTermsBucket bucket : employeeBuckets.buckets().array()) {
+            String employeeId = bucket.key().stringValue();
+            String name = topHitValues(bucket.aggregations().get("employeeName"), "employeeName").stream()
+                .findFirst()
+                .orElse(null);
+
+            Map<String, Long> appDurations = new HashMap<>();
+            bucket.aggregations().get("apps").sterms().buckets().array().forEach(app ->
+                appDurations.put(app.key().stringValue(), Math.round(app.aggregations().get("duration").sum().value())));
+            Map<String, Long> threatCounts = new HashMap<>();
+            bucket.aggregations().get("threats").sterms().buckets().array().forEach(threat ->
+                threatCounts.put(threat.key().stringValue(), threat.docCount()));
+            Map<String, List<String>> alertsByType = new HashMap<>();
+            bucket.aggregations().get("alerts").sterms().buckets().array().forEach(alert ->
+                alertsByType.put(alert.key().stringValue(), topHitValues(alert.aggregations().get("descriptions"), "description")));
+
+            if (!appDurations.isEmpty()) {
+                results.add(newAggregation(employeeId, name, EventType.APP_USAGE, "appDurations", appDurations, startTime, endTime));
             }
-            if (event.getCategory() != null) {
-                bundle.getCategories().add(event.getCategory());
+            if (!threatCounts.isEmpty()) {
+                results.add(newAggregation(employeeId, name, EventType.SECURITY, "threatCounts", threatCounts, startTime, endTime));
             }
-        });
-
-        // Process security events
-        securityEvents.forEach(event -> {
-            AggregatedEventBundle bundle = aggregatedEvents.computeIfAbsent(event.getEmployeeId(), employeeId -> 
-                new AggregatedEventBundle(employeeId, event.getEmployeeName())
-            );
-            bundle.getSecurityEvents().add(event);
-            
-            // Collect additional properties
-            if (event.getPcId() != null) {
-                bundle.getPcIds().add(event.getPcId());
-            }
-            if (event.getCategory() != null) {
-                bundle.getCategories().add(event.getCategory());
+            if (!alertsByType.isEmpty()) {
+                results.add(newAggregation(employeeId, name, EventType.ALERT, "alertsByType", alertsByType, startTime, endTime));
             }
-        });
+        }
 
-        // Process alert events
-        alertEvents.forEach(event -> {
-            AggregatedEventBundle bundle = aggregatedEvents.computeIfAbsent(event.getEmployeeId(), employeeId -> 
-                new AggregatedEventBundle(employeeId, event.getEmployeeName())
-            );
-            bundle.getAlertEvents().add(event);
-            
-            // Collect additional properties
-            if (event.getPcId() != null) {
-                bundle.getPcIds().add(event.getPcId());
-            }
-            if (event.getCategory() != null) {
-                bundle.getCategories().add(event.getCategory());
+        if (!results.isEmpty()) {
+            aggregationRepository.saveAll(results);
+        }
+        log.info("Stored {} aggregations for {} employees between {} and {}",
+            results.size(), employeeBuckets.buckets().array().size(), startTime, endTime);
+        return results.size();
+    }
+
+    private List<String> topHitValues(Aggregate aggregate, String field) {
+        List<String> values = new ArrayList<>();
+        for (Hit<JsonData> hit : aggregate.topHits().hits().hits()) {
+            if (hit.source() != null) {
+                Object value = hit.source().to(Map.class).get(field);
+                if (value != null) {
+                    values.add(value.toString());
+                }
             }
-        });
+        }
+        return values;
+    }
 
-        log.debug("Aggregated events for {} employees", aggregatedEvents.size());
-        return aggregatedEvents;
+    private EventAggregation newAggregation(String employeeId, String employeeName, EventType eventType,
+                                            String dataKey, Object data,
+                                            LocalDateTime startTime, LocalDateTime endTime) {
+        Map<String, Object> aggregatedData = new HashMap<>();
+        aggregatedData.put(dataKey, data);
+
+        EventAggregation aggregation = new EventAggregation();
+        aggregation.setId(EventAggregation.windowId(employeeId, eventType, startTime));
+        aggregation.setEmployeeId(employeeId);
+        aggregation.setEmployeeName(employeeName);
+        aggregation.setEventType(eventType);
+        aggregation.setStartTime(startTime);
+        aggregation.setEndTime(endTime);
+        aggregation.setAggregatedData(aggregatedData);
+        aggregation.setCreatedAt(LocalDateTime.now());
+        aggregation.setUpdatedAt(LocalDateTime.now());
+        return aggregation;
     }
 
-    private <T> List<T> fetchEvents(Class<T> eventType, Criteria timeRangeCriteria) {
-        CriteriaQuery query = new CriteriaQuery(timeRangeCriteria);
-        SearchHits<T> searchHits = elasticsearchOperations.search(query, eventType);
-        return searchHits.stream()
-            .map(hit -> hit.getContent())
-            .collect(Collectors.toList());
+    @Override
+    public Map<String, AggregatedEventBundle> fetchEventsForLastHour() {
+        log.debug("Fetching events for the last hour");
+
+        // Calculate time range
+        LocalDateTime endTime = LocalDateTime.now();
+        LocalDateTime startTime = endTime.minusHours(1);
+
+        // Stream the events employee by employee instead of one capped search per type
+        Map<String, AggregatedEventBundle> aggregatedEvents = new HashMap<>();
+        try (Stream<AggregatedEventBundle> bundles = eventStreamService.streamEmployeeBundles(startTime, endTime)) {
+            bundles.forEach(bundle -> aggregatedEvents.put(bundle.getEmployeeId(), bundle));
+        }
+
+        log.debug("Aggregated events for {} employees", aggregatedEvents.size());
+        return aggregatedEvents;
     }
 
     public void processEmployeeEvents(AggregatedEventBundle bundle) {
@@ -266,70 +328,71 @@ public class EventAggregationServiceImpl implements EventAggregationService {
     ) {
         log.debug("Fetching events between {} and {}", startTime, endTime);
 
-        // Fetch all events for the time range
-        List<AppUsageEvent> appUsageEvents = appUsageEventRepository.findByTimestampBetween(startTime, endTime);
-        List<SecurityEvent> securityEvents = securityEventRepository.findByTimestampBetween(startTime, endTime);
-        List<AlertEvent> alertEvents = alertEventRepository.findByTimestampBetween(startTime, endTime);
-
         // Create a map to store events by employee
         Map<String, List<EventAggregationDTO>> eventsByEmployee = new HashMap<>();
 
         // Process app usage events
-        appUsageEvents.forEach(event -> {
-            Map<String, Object> eventData = new HashMap<>();
-            eventData.put("appName", event.getAppName());
-            eventData.put("durationInSeconds", event.getDurationInSeconds());
-            eventData.put("pcId", event.getPcId());
-            eventData.put("category", event.getCategory());
-
-            EventAggregationDTO dto = new EventAggregationDTO(
-                event.getEmployeeId(),
-                event.getEmployeeName(),
-                EventType.APP_USAGE,
-                event.getTimestamp(),
-                eventData
-            );
-
-            eventsByEmployee.computeIfAbsent(event.getEmployeeId(), k -> new ArrayList<>()).add(dto);
-        });
+        try (Stream<AppUsageEvent> appUsageEvents = eventStreamService.streamEvents(AppUsageEvent.class, startTime, endTime)) {
+            appUsageEvents.forEach(event -> {
+                Map<String, Object> eventData = new HashMap<>();
+                eventData.put("appName", event.getAppName());
+                eventData.put("durationInSeconds", event.getDurationInSeconds());
+                eventData.put("pcId", event.getPcId());
+                eventData.put("category", event.getCategory());
+
+                EventAggregationDTO dto = new EventAggregationDTO(
+                    event.getEmployeeId(),
+                    event.getEmployeeName(),
+                    EventType.APP_USAGE,
+                    event.getTimestamp(),
+                    eventData
+                );
+
+                eventsByEmployee.computeIfAbsent(event.getEmployeeId(), k -> new ArrayList<>()).add(dto);
+            });
+        }
 
         // Process security events
-        securityEvents.forEach(event -> {
-            Map<String, Object> eventData = new HashMap<>();
-            eventData.put("threatType", event.getThreatType());
-            eventData.put("url", event.getUrl());
-            eventData.put("pcId", event.getPcId());
-            eventData.put("category", event.getCategory());
-
-            EventAggregationDTO dto = new EventAggregationDTO(
-                event.getEmployeeId(),
-                event.getEmployeeName(),
-                EventType.SECURITY,
-                event.getTimestamp(),
-                eventData
-            );
-
-            eventsByEmployee.computeIfAbsent(event.getEmployeeId(), k -> new ArrayList<>()).add(dto);
-        });
+        try (Stream<SecurityEvent> securityEvents = eventStreamService.streamEvents(SecurityEvent.class, startTime, endTime)) {
+            securityEvents.forEach(event -> {
+                Map<String, Object> eventData = new HashMap<>();
+                eventData.put("threatType", event.getThreatType());
+                eventData.put("url", event.getUrl());
+                eventData.put("pcId", event.getPcId());
+                eventData.put("category", event.getCategory());
+
+                EventAggregationDTO dto = new EventAggregationDTO(
+                    event.getEmployeeId(),
+                    event.getEmployeeName(),
+                    EventType.SECURITY,
+                    event.getTimestamp(),
+                    eventData
+                );
+
+                eventsByEmployee.computeIfAbsent(event.getEmployeeId(), k -> new ArrayList<>()).add(dto);
+            });
+        }
 
         // Process alert events
-        alertEvents.forEach(event -> {
-            Map<String, Object> eventData = new HashMap<>();
-            eventData.put("alertType", event.getAlertType());
-            eventData.put("severity", event.getSeverity());
-            eventData.put("pcId", event.getPcId());
-            eventData.put("category", event.getCategory());
-
-            EventAggregationDTO dto = new EventAggregationDTO(
-                event.getEmployeeId(),
-                event.getEmployeeName(),
-                EventType.ALERT,
-                event.getTimestamp(),
-                eventData
-            );
-
-            eventsByEmployee.computeIfAbsent(event.getEmployeeId(), k -> new ArrayList<>()).add(dto);
-        });
+        try (Stream<AlertEvent> alertEvents = eventStreamService.streamEvents(AlertEvent.class, startTime, endTime)) {
+            alertEvents.forEach(event -> {
+                Map<String, Object> eventData = new HashMap<>();
+                eventData.put("alertType", event.getAlertType());
+                eventData.put("severity", event.getSeverity());
+                eventData.put("pcId", event.getPcId());
+                eventData.put("category", event.getCategory());
+
+                EventAggregationDTO dto = new EventAggregationDTO(
+                    event.getEmployeeId(),
+                    event.getEmployeeName(),
+                    EventType.ALERT,
+                    event.getTimestamp(),
+                    eventData
+                );
+
+                eventsByEmployee.computeIfAbsent(event.getEmployeeId(), k -> new ArrayList<>()).add(dto);
+            });
+        }
 
         // Sort events by timestamp for each employee
         eventsByEmployee.forEach((employeeId, events) -> {
@@ -1,19 +1,34 @@
 package com.worksync.ai.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.worksync.ai.model.AppUsageEvent;
 import com.worksync.ai.model.SecurityEvent;
 import com.worksync.ai.model.AlertEvent;
+import com.worksync.ai.model.BaseEvent;
+import com.worksync.ai.model.dto.BulkPersistResult;
 import com.worksync.ai.repository.AppUsageEventRepository;
 import com.worksync.ai.repository.SecurityEventRepository;
 import com.worksync.ai.repository.AlertEventRepository;
 import com.worksync.ai.service.EventProcessingService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
 @Slf4j
 @Service
 public class EventProcessingServiceImpl implements EventProcessingService {
@@ -27,9 +42,14 @@ public class EventProcessingServiceImpl implements EventProcessingService {
     @Autowired
     private AlertEventRepository alertEventRepository;
 
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Override
     @Transactional
-    @Retryable(maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
     public void processAppUsageEvent(AppUsageEvent event) {
         try {
             log.debug("Processing AppUsageEvent: {}", event);
@@ -44,7 +64,6 @@ public class EventProcessingServiceImpl implements EventProcessingService {
 
     @Override
     @Transactional
-    @Retryable(maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
     public void processSecurityEvent(SecurityEvent event) {
         try {
             log.debug("Processing SecurityEvent: {}", event);
@@ -59,7 +78,6 @@ public class EventProcessingServiceImpl implements EventProcessingService {
 
     @Override
     @Transactional
-    @Retryable(maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
     public void processAlertEvent(AlertEvent event) {
         try {
             log.debug("Processing AlertEvent: {}", event);
@@ -72,6 +90,91 @@ public class EventProcessingServiceImpl implements EventProcessingService {
         }
     }
 
+    @Override
+    public BulkPersistResult<AppUsageEvent> processAppUsageEvents(List<AppUsageEvent> events) {
+        return bulkPersist(events, AppUsageEvent.class, "AppUsageEvent");
+    }
+
+    @Override
+    public BulkPersistResult<SecurityEvent> processSecurityEvents(List<SecurityEvent> events) {
+        return bulkPersist(events, SecurityEvent.class, "SecurityEvent");
+    }
+
+    @Override
+    public BulkPersistResult<AlertEvent> processAlertEvents(List<AlertEvent> events) {
+        return bulkPersist(events, AlertEvent.class, "AlertEvent");
+    }
+
+    /**
+     * Writes all events through one _bulk request. Events without an ID get one derived from
+     * their content up front, so that per-item failures can be mapped back and re-deliveries
+     * overwrite instead of duplicating.
+     */
+    private <T extends BaseEvent> BulkPersistResult<T> bulkPersist(List<T> events, Class<T> eventClass, String eventType) {
+        if (events == null || events.isEmpty()) {
+            return BulkPersistResult.empty();
+        }
+
+        List<T> validEvents = events.stream().filter(Objects::nonNull).toList();
+        List<IndexQuery> queries = new ArrayList<>(validEvents.size());
+        for (T event : validEvents) {
+            if (event.getEventId() == null || event.getEventId().isBlank()) {
+                event.setEventId(contentId(event));
+            }
+            queries.add(new IndexQueryBuilder()
+                .withId(event.getEventId())
+                .withObject(event)
+                .build());
+        }
+
+        try {
+            elasticsearchOperations.bulkIndex(queries, eventClass);
+            log.info("Successfully bulk indexed {} {} documents", validEvents.size(), eventType);
+            return new BulkPersistResult<>(validEvents, List.of(), Map.of());
+        } catch (BulkFailureException e) {
+            Map<String, String> failureReasons = new HashMap<>();
+            e.getFailedDocuments().forEach((id, details) -> failureReasons.put(id, details.errorMessage()));
+
+            List<T> persisted = new ArrayList<>();
+            List<T> failed = new ArrayList<>();
+            validEvents.forEach(event -> {
+                if (failureReasons.containsKey(event.getEventId())) {
+                    failed.add(event);
+                } else {
+                    persisted.add(event);
+                }
+            });
+
+            log.warn("Bulk indexing of {} {} documents finished with {} failures: {}",
+                validEvents.size(), eventType, failed.size(), failureReasons);
+            return new BulkPersistResult<>(persisted, failed, failureReasons);
+        } catch (Exception e) {
+            log.error("Bulk indexing of {} {} documents failed: {}", validEvents.size(), eventType, e.getMessage(), e);
+            Map<String, String> failureReasons = new HashMap<>();
+            validEvents.forEach(event -> failureReasons.put(event.getEventId(), e.getMessage()));
+            return new BulkPersistResult<>(List.of(), validEvents, failureReasons);
+        }
+    }
+
+    /**
+     * Name-based UUID of the event type and its JSON, so the same event gets the same ID each
+     * time it is delivered. Events that are identical in every field share an ID and are stored
+     * once.
+     */
+    private String contentId(BaseEvent event) {
+        event.setEventId(null);
+        try {
+            String content = objectMapper.writer()
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .writeValueAsString(event);
+            return UUID.nameUUIDFromBytes((event.getClass().getName() + content).getBytes(StandardCharsets.UTF_8)).toString();
+        } catch (JsonProcessingException e) {
+            log.warn("Could not derive an ID from {} content, assigning a random one: {}",
+                event.getClass().getSimpleName(), e.getMessage());
+            return UUID.randomUUID().toString();
+        }
+    }
+
     private void validateEvent(Object event) {
         if (event == null) {
             throw new IllegalArgumentException("Event cannot be null");
@@ -0,0 +1,313 @@
+package com.worksync.ai.service.impl;
+
+import co.elastic.clients.json.JsonData;
+import com.worksync.ai.model.AggregatedEventBundle;
+import com.worksync.ai.model.AlertEvent;
+import com.worksync.ai.model.AppUsageEvent;
+import com.worksync.ai.model.BaseEvent;
+import com.worksync.ai.model.SecurityEvent;
+import com.worksync.ai.service.EventStreamService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.ResourceNotFoundException;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@Slf4j
+@Service
+public class EventStreamServiceImpl implements EventStreamService {
+
+    private static final IndexCoordinates EVENT_INDEX = IndexCoordinates.of("worksync-events");
+
+    // All event types share one index; a type is told apart by a field only it has
+    private static final Map<Class<? extends BaseEvent>, String> TYPE_FIELDS = Map.of(
+        AppUsageEvent.class, "appName",
+        SecurityEvent.class, "threatType",
+        AlertEvent.class, "alertType"
+    );
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern(BaseEvent.TIMESTAMP_PATTERN);
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Value("${event-stream.page-size:1000}")
+    private int pageSize;
+
+    @Value("${event-stream.keep-alive:2m}")
+    private Duration keepAlive;
+
+    @Override
+    public <T extends BaseEvent> Stream<T> streamEvents(Class<T> eventClass, LocalDateTime startTime, LocalDateTime endTime) {
+        String typeField = TYPE_FIELDS.get(eventClass);
+        if (typeField == null) {
+            throw new IllegalArgumentException("Unsupported event type " + eventClass.getSimpleName());
+        }
+        PageIterator<T> pages = new PageIterator<>(eventClass, typeField, startTime, endTime);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(pages::close);
+    }
+
+    @Override
+    public Stream<AggregatedEventBundle> streamEmployeeBundles(LocalDateTime startTime, LocalDateTime endTime) {
+        Stream<AppUsageEvent> appUsageEvents = streamEvents(AppUsageEvent.class, startTime, endTime);
+        Stream<SecurityEvent> securityEvents = streamEvents(SecurityEvent.class, startTime, endTime);
+        Stream<AlertEvent> alertEvents = streamEvents(AlertEvent.class, startTime, endTime);
+
+        BundleIterator bundles = new BundleIterator(
+            startTime,
+            new PeekingIterator<>(appUsageEvents.iterator()),
+            new PeekingIterator<>(securityEvents.iterator()),
+            new PeekingIterator<>(alertEvents.iterator())
+        );
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(bundles, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(appUsageEvents::close)
+            .onClose(securityEvents::close)
+            .onClose(alertEvents::close);
+    }
+
+    /**
+     * Fetches one page per request under a point in time, continuing after the sort values of
+     * the last hit. The point in time is opened on the first fetch and closed when the last page
+     * has been read or the stream is closed.
+     *
+     * <p>A consumer slower than the keep-alive lets the point in time expire between two pages,
+     * for instance while the other streams of {@link #streamEmployeeBundles} run ahead. The
+     * iterator then opens a new one and resumes after the same sort values. Documents indexed in
+     * the meantime become visible, and events sharing the employee and timestamp of the last hit
+     * may be skipped or repeated, since the tiebreaker of the old point in time does not carry
+     * over.
+     */
+    private final class PageIterator<T extends BaseEvent> implements Iterator<T>, AutoCloseable {
+
+        private final Class<T> eventClass;
+        private final String typeField;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private Iterator<SearchHit<T>> page = List.<SearchHit<T>>of().iterator();
+        private List<Object> searchAfter;
+        private String pointInTimeId;
+        private boolean exhausted;
+        private long fetched;
+
+        private PageIterator(Class<T> eventClass, String typeField, LocalDateTime startTime, LocalDateTime endTime) {
+            this.eventClass = eventClass;
+            this.typeField = typeField;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !exhausted) {
+                fetchPage();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SearchHit<T> hit = page.next();
+            searchAfter = hit.getSortValues();
+            return hit.getContent();
+        }
+
+        private void fetchPage() {
+            if (pointInTimeId == null) {
+                pointInTimeId = elasticsearchOperations.openPointInTime(EVENT_INDEX, keepAlive, true);
+            }
+
+            SearchHits<T> hits;
+            try {
+                hits = search();
+            } catch (RuntimeException e) {
+                if (!isSearchContextMissing(e)) {
+                    throw e;
+                }
+                log.warn("Point in time of the {} stream expired after {} documents, reopening it", eventClass.getSimpleName(), fetched);
+                pointInTimeId = elasticsearchOperations.openPointInTime(EVENT_INDEX, keepAlive, true);
+                hits = search();
+            }
+            if (hits.getPointInTimeId() != null) {
+                pointInTimeId = hits.getPointInTimeId();
+            }
+            page = hits.getSearchHits().iterator();
+            fetched += hits.getSearchHits().size();
+            if (hits.getSearchHits().size() < pageSize) {
+                exhausted = true;
+                close();
+            }
+        }
+
+        private SearchHits<T> search() {
+            var builder = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b
+                    .filter(f -> f.range(r -> r
+                        .field("timestamp")
+                        .gte(JsonData.of(startTime.format(TIMESTAMP_FORMAT)))
+                        .lt(JsonData.of(endTime.format(TIMESTAMP_FORMAT)))))
+                    .filter(f -> f.exists(e -> e.field(typeField)))
+                    .filter(f -> f.exists(e -> e.field("employeeId")))))
+                .withSort(Sort.by(Sort.Direction.ASC, "employeeId", "timestamp"))
+                .withPageable(PageRequest.of(0, pageSize))
+                .withPointInTime(new Query.PointInTime(pointInTimeId, keepAlive))
+                .withTrackTotalHits(false);
+            if (searchAfter != null) {
+                builder.withSearchAfter(searchAfter);
+            }
+
+            return elasticsearchOperations.search(builder.build(), eventClass);
+        }
+
+        @Override
+        public void close() {
+            exhausted = true;
+            if (pointInTimeId != null) {
+                try {
+                    elasticsearchOperations.closePointInTime(pointInTimeId);
+                } catch (Exception e) {
+                    log.warn("Could not close point in time for {} stream: {}", eventClass.getSimpleName(), e.getMessage());
+                }
+                pointInTimeId = null;
+                log.debug("Streamed {} {} documents between {} and {}", fetched, eventClass.getSimpleName(), startTime, endTime);
+            }
+        }
+    }
+
+    /**
+     * An expired point in time fails the search with a 404, which Spring Data translates without
+     * the underlying search_context_missing_exception
+     */
+    private static boolean isSearchContextMissing(RuntimeException e) {
+        if (e instanceof ResourceNotFoundException) {
+            return true;
+        }
+        return e instanceof UncategorizedElasticsearchException uncategorized
+            && uncategorized.getResponseBody() != null
+            && uncategorized.getResponseBody().contains("search_context_missing_exception");
+    }
+
+    private static final class PeekingIterator<T> {
+
+        private final Iterator<T> iterator;
+        private T next;
+
+        private PeekingIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+        }
+
+        private T peek() {
+            if (next == null && iterator.hasNext()) {
+                next = iterator.next();
+            }
+            return next;
+        }
+
+        private T take() {
+            T current = peek();
+            next = null;
+            return current;
+        }
+    }
+
+    /**
+     * Merges the three per-type streams, all ordered by employeeId, into one bundle per employee
+     */
+    private static final class BundleIterator implements Iterator<AggregatedEventBundle> {
+
+        private final LocalDateTime windowStart;
+        private final PeekingIterator<AppUsageEvent> appUsageEvents;
+        private final PeekingIterator<SecurityEvent> securityEvents;
+        private final PeekingIterator<AlertEvent> alertEvents;
+
+        private BundleIterator(LocalDateTime windowStart,
+                               PeekingIterator<AppUsageEvent> appUsageEvents,
+                               PeekingIterator<SecurityEvent> securityEvents,
+                               PeekingIterator<AlertEvent> alertEvents) {
+            this.windowStart = windowStart;
+            this.appUsageEvents = appUsageEvents;
+            this.securityEvents = securityEvents;
+            this.alertEvents = alertEvents;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextEmployeeId() != null;
+        }
+
+        @Override
+        public AggregatedEventBundle next() {
+            String employeeId = nextEmployeeId();
+            if (employeeId == null) {
+                throw new NoSuchElementException();
+            }
+
+            AggregatedEventBundle bundle = new AggregatedEventBundle(employeeId, null);
+            bundle.setWindowStart(windowStart);
+            drain(appUsageEvents, employeeId, bundle, bundle.getAppUsageEvents()::add);
+            drain(securityEvents, employeeId, bundle, bundle.getSecurityEvents()::add);
+            drain(alertEvents, employeeId, bundle, bundle.getAlertEvents()::add);
+            return bundle;
+        }
+
+        private String nextEmployeeId() {
+            String min = null;
+            for (PeekingIterator<? extends BaseEvent> events : List.of(appUsageEvents, securityEvents, alertEvents)) {
+                BaseEvent head = events.peek();
+                if (head != null && (min == null || compareEmployeeIds(head.getEmployeeId(), min) < 0)) {
+                    min = head.getEmployeeId();
+                }
+            }
+            return min;
+        }
+
+        private <T extends BaseEvent> void drain(PeekingIterator<T> events, String employeeId,
+                                                 AggregatedEventBundle bundle, Consumer<T> sink) {
+            while (events.peek() != null && compareEmployeeIds(events.peek().getEmployeeId(), employeeId) == 0) {
+                T event = events.take();
+                if (bundle.getEmployeeName() == null) {
+                    bundle.setEmployeeName(event.getEmployeeName());
+                }
+                if (event.getPcId() != null) {
+                    bundle.getPcIds().add(event.getPcId());
+                }
+                if (event.getCategory() != null) {
+                    bundle.getCategories().add(event.getCategory());
+                }
+                sink.accept(event);
+            }
+        }
+
+        /**
+         * Keyword fields sort by UTF-8 bytes, which agrees with String order outside supplementary characters
+         */
+        private static int compareEmployeeIds(String left, String right) {
+            return left.compareTo(right);
+        }
+    }
+}
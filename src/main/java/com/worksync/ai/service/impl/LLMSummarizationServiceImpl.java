@@ -1,19 +1,27 @@
 package com.worksync.ai.service.impl;
 
-import com.worksync.ai.client.OpenRouterClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.worksync.ai.client.LlmClientException;
+import com.worksync.ai.client.LlmFutures;
+import com.worksync.ai.client.LlmRouter;
+import com.worksync.ai.client.LlmRouter.Completion;
 import com.worksync.ai.model.AggregatedEventBundle;
 import com.worksync.ai.model.AlertEvent;
 import com.worksync.ai.model.AppUsageEvent;
 import com.worksync.ai.model.SecurityEvent;
 import com.worksync.ai.service.LLMSummarizationService;
+import com.worksync.ai.service.SummaryCacheService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -21,7 +29,16 @@ import java.util.stream.Collectors;
 public class LLMSummarizationServiceImpl implements LLMSummarizationService {
 
     @Autowired
-    private OpenRouterClient openRouterClient;
+    private LlmRouter llmRouter;
+
+    @Autowired
+    private SummaryCacheService summaryCacheService;
+
+    @Autowired
+    private NarrativeCompactor narrativeCompactor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @Value("${spring.ai.openai.chat.model:openai/gpt-4}")
     private String model;
@@ -32,6 +49,20 @@ public class LLMSummarizationServiceImpl implements LLMSummarizationService {
     @Value("${spring.ai.openai.chat.options.max-tokens:1000}")
     private int maxTokens;
 
+    // Upper bound on the estimated tokens of the activity data in the prompt
+    @Value("${summarization.narrative.token-budget:6000}")
+    private int narrativeTokenBudget;
+
+    @Value("${summarization.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${summarization.batch.max-employees:4}")
+    private int batchMaxEmployees;
+
+    // Employees with larger activity data always get a request of their own
+    @Value("${summarization.batch.max-employee-tokens:1500}")
+    private int batchMaxEmployeeTokens;
+
     private static final String SYSTEM_PROMPT = 
         "You are an expert at creating comprehensive, detailed summaries of employee computer activity. " +
         "For each event, mention every property (including url, threatType, and all metadata fields) and explain what it means. " +
@@ -45,13 +76,38 @@ public class LLMSummarizationServiceImpl implements LLMSummarizationService {
         "Focus on being comprehensive and factual, mentioning every significant detail available in the data. " +
         "Do not include summary numbers or numerical references - focus on the actual content and activities.";
 
+    private static final String BATCH_SYSTEM_PROMPT_SUFFIX =
+        " You will be given the activity of several employees. Summarize each employee separately and " +
+        "respond only with a JSON object of the form {\"summaries\": [{\"employeeId\": \"...\", \"summary\": \"...\"}]} " +
+        "containing exactly one entry per employee, with no additional text.";
+
+    private static final String BATCH_USER_PROMPT = """
+        Create a comprehensive summary of the work activity of each of the following %d employees.
+        Each employee's data starts with a line giving their employeeId.
+        %s
+
+        For each employee, write a thorough, professional summary covering the applications used with
+        durations and categories, devices, timing, security events with URLs and threat types, alerts with
+        severity levels, priorities and any metadata. Never mix the activity of different employees.
+        Use the employeeId exactly as given.""";
+
     @Override
     public String generateSummary(AggregatedEventBundle bundle) {
         log.debug("Generating comprehensive summary for employee: {}", bundle.getEmployeeId());
 
-        // Build comprehensive activity data with ALL details
-        String activityData = buildComprehensiveActivityNarrative(bundle);
+        // Reuse the summary of an earlier window with the same activity
+        String fingerprint = summaryCacheService.fingerprint(bundle);
+        Optional<String> cachedSummary = summaryCacheService.findSummary(fingerprint);
+        if (cachedSummary.isPresent()) {
+            log.debug("Reusing cached summary for employee {}", bundle.getEmployeeId());
+            return cachedSummary.get();
+        }
+
+        // Build comprehensive activity data with ALL details, condensed if it does not fit the budget
+        return generateUncachedSummary(bundle, fingerprint, buildActivityData(bundle));
+    }
 
+    private String generateUncachedSummary(AggregatedEventBundle bundle, String fingerprint, String activityData) {
         // Build the user prompt with detailed instructions
         String userPrompt = String.format("""
             Create a comprehensive summary of %s's work activity based on the following detailed data:
@@ -61,7 +117,7 @@ public class LLMSummarizationServiceImpl implements LLMSummarizationService {
             Write a thorough, professional summary that includes:
             - ALL applications used with specific durations and categories
             - Device/PC information and identifiers
-            - Timestamp details and session timing
+            - Session timing within the reporting window
             - Complete security event information including URLs, threat types, and descriptions
             - Full alert details with types, severity levels, and descriptions
             - Priority levels of events and their significance
@@ -77,30 +133,172 @@ public class LLMSummarizationServiceImpl implements LLMSummarizationService {
             activityData
         );
 
-        // Generate summary using OpenRouter with GPT-4
+        // Generate summary with GPT-4 through the router, which may answer from Ollama instead
         try {
-            String summary = openRouterClient.chatCompletionWithModel(
+            // Waits interruptibly, so a cancelled pipeline task also aborts the request
+            Completion completion = LlmFutures.await(llmRouter.completeAsync(
                 model,
                 SYSTEM_PROMPT,
                 userPrompt,
                 temperature,
                 maxTokens
-            );
+            ));
+            String summary = completion.content();
             
             if (summary != null && !summary.trim().isEmpty()) {
-                log.debug("Generated comprehensive summary for employee {}: {} chars", 
-                    bundle.getEmployeeId(), summary.length());
+                log.debug("Generated comprehensive summary for employee {} with {}: {} chars", 
+                    bundle.getEmployeeId(), completion.backend(), summary.length());
+                // The fingerprint names the requested model, so answers of the fallback backend are not reused
+                if (completion.primary()) {
+                    summaryCacheService.storeSummary(fingerprint, bundle.getEmployeeId(), summary.trim());
+                }
                 return summary.trim();
             } else {
                 log.warn("OpenRouter returned empty response for employee {}", bundle.getEmployeeId());
                 return generateComprehensiveFallbackSummary(bundle);
             }
         } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new LlmClientException("Summary generation was interrupted", e);
+            }
             log.error("Error generating AI summary for employee {}: {}", bundle.getEmployeeId(), e.getMessage(), e);
             return generateComprehensiveFallbackSummary(bundle);
         }
     }
 
+    @Override
+    public Map<String, String> generateSummaries(List<AggregatedEventBundle> bundles) {
+        Map<String, String> summaries = new LinkedHashMap<>();
+        List<BatchItem> pending = new ArrayList<>();
+        for (AggregatedEventBundle bundle : bundles) {
+            String fingerprint = summaryCacheService.fingerprint(bundle);
+            Optional<String> cachedSummary = summaryCacheService.findSummary(fingerprint);
+            if (cachedSummary.isPresent()) {
+                summaries.put(bundle.getEmployeeId(), cachedSummary.get());
+                continue;
+            }
+            String activityData = buildActivityData(bundle);
+            if (!batchEnabled || NarrativeCompactor.estimateTokens(activityData) > batchMaxEmployeeTokens) {
+                summaries.put(bundle.getEmployeeId(), generateUncachedSummary(bundle, fingerprint, activityData));
+            } else {
+                pending.add(new BatchItem(bundle, fingerprint, activityData));
+            }
+        }
+
+        // Pack the small narratives into prompts of at most the configured size
+        List<BatchItem> batch = new ArrayList<>();
+        int batchTokens = 0;
+        for (BatchItem item : pending) {
+            int itemTokens = NarrativeCompactor.estimateTokens(item.activityData());
+            if (!batch.isEmpty() && (batch.size() >= batchMaxEmployees || batchTokens + itemTokens > narrativeTokenBudget)) {
+                summaries.putAll(generateBatch(batch));
+                batch = new ArrayList<>();
+                batchTokens = 0;
+            }
+            batch.add(item);
+            batchTokens += itemTokens;
+        }
+        if (!batch.isEmpty()) {
+            summaries.putAll(generateBatch(batch));
+        }
+        return summaries;
+    }
+
+    private record BatchItem(AggregatedEventBundle bundle, String fingerprint, String activityData) {}
+
+    /**
+     * Summarizes several employees with one request. Employees missing from the response, or all
+     * of them if the response is not the requested JSON, are summarized with single requests.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, String> generateBatch(List<BatchItem> batch) {
+        if (batch.size() == 1) {
+            BatchItem item = batch.get(0);
+            return Map.of(item.bundle().getEmployeeId(), generateUncachedSummary(item.bundle(), item.fingerprint(), item.activityData()));
+        }
+
+        StringBuilder employees = new StringBuilder();
+        for (BatchItem item : batch) {
+            AggregatedEventBundle bundle = item.bundle();
+            employees.append("\n### employeeId: ").append(bundle.getEmployeeId())
+                .append(" (").append(bundle.getEmployeeName() != null ? bundle.getEmployeeName() : "Employee " + bundle.getEmployeeId())
+                .append(")\n")
+                .append(item.activityData());
+        }
+        String userPrompt = String.format(BATCH_USER_PROMPT, batch.size(), employees);
+
+        Map<String, String> summaries = new LinkedHashMap<>();
+        boolean cacheable = false;
+        try {
+            Completion completion = LlmFutures.await(llmRouter.completeAsync(
+                model,
+                SYSTEM_PROMPT + BATCH_SYSTEM_PROMPT_SUFFIX,
+                userPrompt,
+                temperature,
+                maxTokens * batch.size()
+            ));
+            String response = completion.content();
+            cacheable = completion.primary();
+
+            if (response != null && !response.trim().isEmpty()) {
+                Map<String, Object> responseMap = objectMapper.readValue(extractJsonFromResponse(response), Map.class);
+                for (Map<String, Object> entry : (List<Map<String, Object>>) responseMap.get("summaries")) {
+                    Object employeeId = entry.get("employeeId");
+                    Object summary = entry.get("summary");
+                    if (employeeId != null && summary instanceof String text && !text.isBlank()) {
+                        summaries.put(employeeId.toString(), text.trim());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new LlmClientException("Summary generation was interrupted", e);
+            }
+            log.warn("Could not use batched summary response for {} employees, summarizing them one by one: {}",
+                batch.size(), e.getMessage());
+            summaries.clear();
+        }
+
+        Map<String, String> result = new LinkedHashMap<>();
+        for (BatchItem item : batch) {
+            String employeeId = item.bundle().getEmployeeId();
+            String summary = summaries.get(employeeId);
+            if (summary != null) {
+                if (cacheable) {
+                    summaryCacheService.storeSummary(item.fingerprint(), employeeId, summary);
+                }
+                result.put(employeeId, summary);
+            } else {
+                result.put(employeeId, generateUncachedSummary(item.bundle(), item.fingerprint(), item.activityData()));
+            }
+        }
+        log.debug("Batched summary request covered {} of {} employees", summaries.size(), batch.size());
+        return result;
+    }
+
+    private String extractJsonFromResponse(String response) {
+        // Find the first '{' and last '}'
+        int start = response.indexOf('{');
+        int end = response.lastIndexOf('}');
+
+        if (start >= 0 && end >= 0 && end > start) {
+            return response.substring(start, end + 1);
+        }
+
+        throw new IllegalArgumentException("No valid JSON found in response");
+    }
+
+    private String buildActivityData(AggregatedEventBundle bundle) {
+        String activityData = buildComprehensiveActivityNarrative(bundle);
+        int estimatedTokens = NarrativeCompactor.estimateTokens(activityData);
+        if (estimatedTokens > narrativeTokenBudget) {
+            activityData = narrativeCompactor.compact(bundle, narrativeTokenBudget);
+            log.debug("Condensed activity data of employee {} from about {} to {} tokens", bundle.getEmployeeId(),
+                estimatedTokens, NarrativeCompactor.estimateTokens(activityData));
+        }
+        return activityData;
+    }
+
     private String buildComprehensiveActivityNarrative(AggregatedEventBundle bundle) {
         StringBuilder narrative = new StringBuilder();
         
@@ -116,6 +314,9 @@ public class LLMSummarizationServiceImpl implements LLMSummarizationService {
         if (bundle.getCategories() != null && !bundle.getCategories().isEmpty()) {
             narrative.append("Activity Categories: ").append(String.join(", ", bundle.getCategories())).append("\n");
         }
+        if (bundle.getWindowStart() != null) {
+            narrative.append("Times are given in minutes since the start of the reporting window.\n");
+        }
         
         // Comprehensive Application Usage Analysis
         if (bundle.getAppUsageEvents() != null && !bundle.getAppUsageEvents().isEmpty()) {
@@ -140,7 +341,7 @@ public class LLMSummarizationServiceImpl implements LLMSummarizationService {
                     narrative.append("  - Session Details:\n");
                     narrative.append("    * Duration: ").append(formatDuration(Duration.ofSeconds(event.getDurationInSeconds()))).append("\n");
                     if (event.getTimestamp() != null) {
-                        narrative.append("    * Timestamp: ").append(event.getTimestamp()).append("\n");
+                        narrative.append("    * Time: ").append(bundle.relativeTime(event.getTimestamp())).append("\n");
                     }
                     if (event.getPcId() != null) {
                         narrative.append("    * Device ID: ").append(event.getPcId()).append("\n");
@@ -165,11 +366,8 @@ public class LLMSummarizationServiceImpl implements LLMSummarizationService {
             
             bundle.getSecurityEvents().forEach(event -> {
                 narrative.append("\nSecurity Event:\n");
-                if (event.getEventId() != null) {
-                    narrative.append("  - Event ID: ").append(event.getEventId()).append(" (unique identifier for this event)\n");
-                }
                 if (event.getTimestamp() != null) {
-                    narrative.append("  - Timestamp: ").append(event.getTimestamp()).append(" (when the event occurred)\n");
+                    narrative.append("  - Time: ").append(bundle.relativeTime(event.getTimestamp())).append(" (when the event occurred)\n");
                 }
                 if (event.getUrl() != null) {
                     narrative.append("  - URL: ").append(event.getUrl()).append(" (the exact website or resource accessed)\n");
@@ -219,11 +417,8 @@ public class LLMSummarizationServiceImpl implements LLMSummarizationService {
                 
                 events.forEach(event -> {
                     narrative.append("  - Alert Details:\n");
-                    if (event.getEventId() != null) {
-                        narrative.append("    * Event ID: ").append(event.getEventId()).append("\n");
-                    }
                     if (event.getTimestamp() != null) {
-                        narrative.append("    * Timestamp: ").append(event.getTimestamp()).append("\n");
+                        narrative.append("    * Time: ").append(bundle.relativeTime(event.getTimestamp())).append("\n");
                     }
                     if (event.getSeverity() != null) {
                         narrative.append("    * Severity: ").append(event.getSeverity()).append("\n");
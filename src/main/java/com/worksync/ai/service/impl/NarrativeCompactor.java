@@ -0,0 +1,279 @@
+package com.worksync.ai.service.impl;
+
+import com.worksync.ai.model.AggregatedEventBundle;
+import com.worksync.ai.model.AlertEvent;
+import com.worksync.ai.model.AppUsageEvent;
+import com.worksync.ai.model.BaseEvent;
+import com.worksync.ai.model.SecurityEvent;
+import com.worksync.ai.model.enums.Priority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds a bounded activity narrative for bundles whose per-event narrative would exceed the
+ * token budget. Apps are reduced to one entry per app and security events to one per threat type,
+ * repeated alerts are merged with a count, and entries are then added in order of importance,
+ * alerts and threats before apps, until the budget is used up.
+ */
+@Component
+public class NarrativeCompactor {
+
+    // Close enough to BPE tokenizers for English text to size prompts without calling one
+    private static final int CHARS_PER_TOKEN = 4;
+
+    @Value("${summarization.narrative.max-urls-per-threat:10}")
+    private int maxUrlsPerThreat;
+
+    /**
+     * Estimates the number of tokens a model would count for the text
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : estimateTokens(text.length());
+    }
+
+    private static int estimateTokens(int chars) {
+        return (chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public String compact(AggregatedEventBundle bundle, int tokenBudget) {
+        StringBuilder narrative = new StringBuilder();
+        narrative.append("=== EMPLOYEE WORK SESSION ANALYSIS (condensed) ===\n");
+        narrative.append("Employee: ").append(bundle.getEmployeeName() != null ? bundle.getEmployeeName() : bundle.getEmployeeId()).append("\n");
+        narrative.append("Employee ID: ").append(bundle.getEmployeeId()).append("\n");
+        if (bundle.getPcIds() != null && !bundle.getPcIds().isEmpty()) {
+            narrative.append("Device(s)/PC ID(s): ").append(joinSorted(bundle.getPcIds())).append("\n");
+        }
+        if (bundle.getCategories() != null && !bundle.getCategories().isEmpty()) {
+            narrative.append("Activity Categories: ").append(joinSorted(bundle.getCategories())).append("\n");
+        }
+        if (bundle.getWindowStart() != null) {
+            narrative.append("Times are given in minutes since the start of the reporting window.\n");
+        }
+
+        List<Section> sections = List.of(
+            new Section("\n=== ALERTS AND INCIDENTS (repeated alerts merged) ===\n", alertEntries(bundle)),
+            new Section("\n=== SECURITY EVENTS BY THREAT TYPE ===\n", threatEntries(bundle)),
+            new Section("\n=== APPLICATION USAGE BY APPLICATION ===\n", appEntries(bundle))
+        );
+
+        int omitted = 0;
+        for (Section section : sections) {
+            if (section.entries().isEmpty()) {
+                continue;
+            }
+            if (omitted > 0 || estimateTokens(narrative.length() + section.header().length()) > tokenBudget) {
+                omitted += section.entries().size();
+                continue;
+            }
+            narrative.append(section.header());
+            for (String entry : section.entries()) {
+                if (omitted > 0 || estimateTokens(narrative.length() + entry.length()) > tokenBudget) {
+                    omitted++;
+                } else {
+                    narrative.append(entry);
+                }
+            }
+        }
+        if (omitted > 0) {
+            narrative.append("\n(").append(omitted).append(" less significant entries omitted to fit the prompt size limit)\n");
+        }
+        return narrative.toString();
+    }
+
+    private record Section(String header, List<String> entries) {}
+
+    /**
+     * One entry per distinct alert, most severe and most frequent first
+     */
+    private List<String> alertEntries(AggregatedEventBundle bundle) {
+        List<AlertEvent> events = bundle.getAlertEvents();
+        if (events == null || events.isEmpty()) {
+            return List.of();
+        }
+        Map<List<String>, List<AlertEvent>> groups = events.stream()
+            .collect(Collectors.groupingBy(
+                event -> List.of(trimmed(event.getAlertType()), trimmed(event.getSeverity()), trimmed(event.getDescription())),
+                LinkedHashMap::new,
+                Collectors.toList()));
+
+        return groups.entrySet().stream()
+            .sorted(Comparator.<Map.Entry<List<String>, List<AlertEvent>>>comparingInt(group -> priorityRank(group.getValue())).reversed()
+                .thenComparing(group -> group.getValue().size(), Comparator.reverseOrder()))
+            .map(group -> {
+                List<String> key = group.getKey();
+                List<AlertEvent> alerts = group.getValue();
+                StringBuilder entry = new StringBuilder();
+                entry.append("\nAlert Type: ").append(key.get(0)).append("\n");
+                entry.append("  - Occurrences: ").append(alerts.size()).append("\n");
+                appendIfPresent(entry, "  - Severity: ", key.get(1));
+                appendIfPresent(entry, "  - Description: ", key.get(2));
+                appendTimeRange(entry, bundle, alerts);
+                appendDistinct(entry, "  - Device IDs: ", alerts, BaseEvent::getPcId);
+                appendDistinct(entry, "  - Priority Levels: ", alerts, event -> event.getPriority() != null ? event.getPriority().name() : null);
+                return entry.toString();
+            })
+            .toList();
+    }
+
+    /**
+     * One entry per threat type with its distinct URLs, most severe and most frequent first
+     */
+    private List<String> threatEntries(AggregatedEventBundle bundle) {
+        List<SecurityEvent> events = bundle.getSecurityEvents();
+        if (events == null || events.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<SecurityEvent>> groups = events.stream()
+            .collect(Collectors.groupingBy(event -> trimmed(event.getThreatType()), LinkedHashMap::new, Collectors.toList()));
+
+        return groups.entrySet().stream()
+            .sorted(Comparator.<Map.Entry<String, List<SecurityEvent>>>comparingInt(group -> priorityRank(group.getValue())).reversed()
+                .thenComparing(group -> group.getValue().size(), Comparator.reverseOrder()))
+            .map(group -> {
+                List<SecurityEvent> threats = group.getValue();
+                StringBuilder entry = new StringBuilder();
+                entry.append("\nThreat Type: ").append(group.getKey()).append("\n");
+                entry.append("  - Occurrences: ").append(threats.size()).append("\n");
+                appendTimeRange(entry, bundle, threats);
+
+                Map<String, Long> urlCounts = threats.stream()
+                    .filter(event -> event.getUrl() != null && !event.getUrl().isBlank())
+                    .collect(Collectors.groupingBy(SecurityEvent::getUrl, Collectors.counting()));
+                if (!urlCounts.isEmpty()) {
+                    entry.append("  - URLs: ");
+                    entry.append(urlCounts.entrySet().stream()
+                        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                        .limit(Math.max(1, maxUrlsPerThreat))
+                        .map(url -> url.getValue() > 1 ? url.getKey() + " (" + url.getValue() + " times)" : url.getKey())
+                        .collect(Collectors.joining(", ")));
+                    if (urlCounts.size() > maxUrlsPerThreat) {
+                        entry.append(" and ").append(urlCounts.size() - maxUrlsPerThreat).append(" more");
+                    }
+                    entry.append("\n");
+                }
+                appendDistinct(entry, "  - Device IDs: ", threats, BaseEvent::getPcId);
+                appendDistinct(entry, "  - Categories: ", threats, BaseEvent::getCategory);
+                appendDistinct(entry, "  - Priority Levels: ", threats, event -> event.getPriority() != null ? event.getPriority().name() : null);
+                appendDistinct(entry, "  - Block Reasons: ", threats, event -> metadataValue(event, "blockReason"));
+                appendDistinct(entry, "  - Detection Engines: ", threats, event -> metadataValue(event, "detectionEngine"));
+                appendDistinct(entry, "  - Geo Locations: ", threats, event -> metadataValue(event, "geoLocation"));
+                return entry.toString();
+            })
+            .toList();
+    }
+
+    /**
+     * One entry per application, longest total usage first
+     */
+    private List<String> appEntries(AggregatedEventBundle bundle) {
+        List<AppUsageEvent> events = bundle.getAppUsageEvents();
+        if (events == null || events.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<AppUsageEvent>> groups = events.stream()
+            .filter(event -> event.getAppName() != null && !event.getAppName().trim().isEmpty())
+            .collect(Collectors.groupingBy(event -> event.getAppName().trim()));
+
+        return groups.entrySet().stream()
+            .sorted(Comparator.<Map.Entry<String, List<AppUsageEvent>>>comparingLong(group -> totalSeconds(group.getValue())).reversed())
+            .map(group -> {
+                List<AppUsageEvent> sessions = group.getValue();
+                StringBuilder entry = new StringBuilder();
+                entry.append("\nApplication: ").append(group.getKey()).append("\n");
+                entry.append("  - Total Usage Time: ").append(formatDuration(Duration.ofSeconds(totalSeconds(sessions)))).append("\n");
+                entry.append("  - Number of Sessions: ").append(sessions.size()).append("\n");
+                appendTimeRange(entry, bundle, sessions);
+                appendDistinct(entry, "  - Device IDs: ", sessions, BaseEvent::getPcId);
+                appendDistinct(entry, "  - Categories: ", sessions, BaseEvent::getCategory);
+                appendDistinct(entry, "  - Priority Levels: ", sessions, event -> event.getPriority() != null ? event.getPriority().name() : null);
+                return entry.toString();
+            })
+            .toList();
+    }
+
+    private long totalSeconds(List<AppUsageEvent> sessions) {
+        return sessions.stream().mapToLong(AppUsageEvent::getDurationInSeconds).sum();
+    }
+
+    private int priorityRank(List<? extends BaseEvent> events) {
+        return events.stream()
+            .map(BaseEvent::getPriority)
+            .filter(Objects::nonNull)
+            .mapToInt(Priority::ordinal)
+            .max()
+            .orElse(-1);
+    }
+
+    private void appendTimeRange(StringBuilder entry, AggregatedEventBundle bundle, List<? extends BaseEvent> events) {
+        List<LocalDateTime> timestamps = events.stream()
+            .map(BaseEvent::getTimestamp)
+            .filter(Objects::nonNull)
+            .sorted()
+            .toList();
+        if (timestamps.isEmpty()) {
+            return;
+        }
+        String first = bundle.relativeTime(timestamps.get(0));
+        String last = bundle.relativeTime(timestamps.get(timestamps.size() - 1));
+        entry.append(first.equals(last) ? "  - Time: " + first : "  - Between: " + first + " and " + last).append("\n");
+    }
+
+    private <T> void appendDistinct(StringBuilder entry, String label, List<T> events, Function<T, String> value) {
+        TreeSet<String> values = events.stream()
+            .map(value)
+            .filter(v -> v != null && !v.isBlank())
+            .collect(Collectors.toCollection(TreeSet::new));
+        if (!values.isEmpty()) {
+            entry.append(label).append(String.join(", ", values)).append("\n");
+        }
+    }
+
+    private void appendIfPresent(StringBuilder entry, String label, String value) {
+        if (!value.isEmpty()) {
+            entry.append(label).append(value).append("\n");
+        }
+    }
+
+    private String metadataValue(BaseEvent event, String key) {
+        Object value = event.getMetadata() != null ? event.getMetadata().get(key) : null;
+        return value != null ? value.toString() : null;
+    }
+
+    private String trimmed(String value) {
+        return value != null ? value.trim() : "";
+    }
+
+    private String joinSorted(Iterable<String> values) {
+        TreeSet<String> sorted = new TreeSet<>();
+        values.forEach(value -> {
+            if (value != null) {
+                sorted.add(value);
+            }
+        });
+        return String.join(", ", sorted);
+    }
+
+    private String formatDuration(Duration duration) {
+        long hours = duration.toHours();
+        long minutes = duration.toMinutesPart();
+
+        if (hours > 0) {
+            return String.format("%dh %dm", hours, minutes);
+        } else if (minutes > 0) {
+            return String.format("%dm", minutes);
+        } else {
+            return "< 1m";
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package com.worksync.ai.service.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.worksync.ai.client.OpenRouterClient;
+import com.worksync.ai.client.LlmFutures;
+import com.worksync.ai.client.LlmRouter;
 import com.worksync.ai.model.dto.QueryAnalysis;
 import com.worksync.ai.model.enums.QueryType;
 import com.worksync.ai.service.QueryAnalyzerService;
@@ -13,13 +14,14 @@ import org.springframework.stereotype.Service;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
 public class QueryAnalyzerServiceImpl implements QueryAnalyzerService {
 
     @Autowired
-    private OpenRouterClient openRouterClient;
+    private LlmRouter llmRouter;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -106,47 +108,55 @@ public class QueryAnalyzerServiceImpl implements QueryAnalyzerService {
 
     @Override
     public QueryAnalysis analyzeQuery(String query) {
-        try {
-            String analysisPrompt = String.format(QUERY_ANALYSIS_PROMPT, query);
-            String analysisResponse = openRouterClient.chatCompletionWithModel(
-                model,
-                "You are a query analysis expert. Provide only the JSON response, no additional text.",
-                analysisPrompt,
-                temperature,
-                maxTokens
-            );
-
-            if (analysisResponse == null || analysisResponse.trim().isEmpty()) {
-                log.warn("Received empty analysis response for query: {}", query);
-                return getDefaultAnalysis(query);
-            }
+        return analyzeQueryAsync(query).join();
+    }
 
-            try {
-                // Extract JSON from the response
-                String jsonResponse = extractJsonFromResponse(analysisResponse);
-                
-                // Parse the JSON response
-                Map<String, Object> analysisMap = objectMapper.readValue(jsonResponse, Map.class);
-
-                return QueryAnalysis.builder()
-                    .queryType(QueryType.valueOf((String) analysisMap.get("queryType")))
-                    .filterKeywords((List<String>) analysisMap.get("filterKeywords"))
-                    .requiresAggregation((Boolean) analysisMap.get("requiresAggregation"))
-                    .timeframe((String) analysisMap.get("timeframe"))
-                    .employeeId((String) analysisMap.get("employeeId"))
-                    .employeeName((String) analysisMap.get("employeeName"))
-                    .requiredFields((List<String>) analysisMap.get("requiredFields"))
-                    .extractionCriteria((Map<String, Object>) analysisMap.get("extractionCriteria"))
-                    .build();
-
-            } catch (Exception e) {
-                log.error("Error parsing analysis response: {}", e.getMessage());
-                log.debug("Raw response: {}", analysisResponse);
+    @Override
+    public CompletableFuture<QueryAnalysis> analyzeQueryAsync(String query) {
+        String analysisPrompt = String.format(QUERY_ANALYSIS_PROMPT, query);
+        CompletableFuture<String> request = llmRouter.chatCompletionAsync(
+            model,
+            "You are a query analysis expert. Provide only the JSON response, no additional text.",
+            analysisPrompt,
+            temperature,
+            maxTokens
+        );
+        return LlmFutures.cancelling(request
+            .thenApply(analysisResponse -> parseAnalysis(query, analysisResponse))
+            .exceptionally(e -> {
+                log.error("Error analyzing query: {}", e.getMessage(), e);
                 return getDefaultAnalysis(query);
-            }
+            }), request);
+    }
+
+    @SuppressWarnings("unchecked")
+    private QueryAnalysis parseAnalysis(String query, String analysisResponse) {
+        if (analysisResponse == null || analysisResponse.trim().isEmpty()) {
+            log.warn("Received empty analysis response for query: {}", query);
+            return getDefaultAnalysis(query);
+        }
+
+        try {
+            // Extract JSON from the response
+            String jsonResponse = extractJsonFromResponse(analysisResponse);
+
+            // Parse the JSON response
+            Map<String, Object> analysisMap = objectMapper.readValue(jsonResponse, Map.class);
+
+            return QueryAnalysis.builder()
+                .queryType(QueryType.valueOf((String) analysisMap.get("queryType")))
+                .filterKeywords((List<String>) analysisMap.get("filterKeywords"))
+                .requiresAggregation((Boolean) analysisMap.get("requiresAggregation"))
+                .timeframe((String) analysisMap.get("timeframe"))
+                .employeeId((String) analysisMap.get("employeeId"))
+                .employeeName((String) analysisMap.get("employeeName"))
+                .requiredFields((List<String>) analysisMap.get("requiredFields"))
+                .extractionCriteria((Map<String, Object>) analysisMap.get("extractionCriteria"))
+                .build();
 
         } catch (Exception e) {
-            log.error("Error analyzing query: {}", e.getMessage(), e);
+            log.error("Error parsing analysis response: {}", e.getMessage());
+            log.debug("Raw response: {}", analysisResponse);
             return getDefaultAnalysis(query);
         }
     }
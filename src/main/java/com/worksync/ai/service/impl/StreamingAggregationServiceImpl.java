@@ -0,0 +1,267 @@
+package com.worksync.ai.service.impl;
+
+import com.worksync.ai.config.AggregationConfig.StreamingAggregationProperties;
+import com.worksync.ai.entity.EventAggregation;
+import com.worksync.ai.enums.EventType;
+import com.worksync.ai.model.AlertEvent;
+import com.worksync.ai.model.AppUsageEvent;
+import com.worksync.ai.model.BaseEvent;
+import com.worksync.ai.model.SecurityEvent;
+import com.worksync.ai.repository.EventAggregationRepository;
+import com.worksync.ai.service.StreamingAggregationService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Tumbling-window aggregator fed with events once they are persisted. Windows are keyed by
+ * employee and window start, derived from the event timestamp, and updated atomically per key.
+ * A window is flushed once its end plus the allowed lateness has passed; since aggregation IDs
+ * are derived from the window, events arriving after a flush are merged into the stored
+ * aggregation on the next one.
+ * <p>
+ * Each window remembers the IDs of the events it has counted and skips them when they come
+ * again, as they do when a poll is redelivered because its offsets were not committed. The IDs
+ * are only held while the window is in memory, so an event redelivered after its window has been
+ * flushed, such as after a restart, is counted again.
+ */
+@Slf4j
+@Service
+public class StreamingAggregationServiceImpl implements StreamingAggregationService {
+
+    @Autowired
+    private EventAggregationRepository aggregationRepository;
+
+    @Autowired
+    private StreamingAggregationProperties aggregationProperties;
+
+    private final Map<WindowKey, EmployeeWindow> windows = new ConcurrentHashMap<>();
+
+    private record WindowKey(String employeeId, LocalDateTime windowStart) {}
+
+    /**
+     * Counters of one employee for one window. Only mutated inside {@link ConcurrentHashMap#compute}
+     * for its key, and only read after it has been removed from the map.
+     */
+    private static final class EmployeeWindow {
+        private final Set<String> eventIds = new HashSet<>();
+        private String employeeName;
+        private final Map<String, Long> appDurations = new HashMap<>();
+        private final Map<String, Long> threatCounts = new HashMap<>();
+        private final Map<String, List<String>> alertsByType = new HashMap<>();
+
+        private void add(BaseEvent event) {
+            if (event.getEventId() != null && !eventIds.add(event.getEventId())) {
+                return;
+            }
+            if (event.getEmployeeName() != null) {
+                employeeName = event.getEmployeeName();
+            }
+            if (event instanceof AppUsageEvent appUsageEvent) {
+                appDurations.merge(appUsageEvent.getAppName(), appUsageEvent.getDurationInSeconds(), Long::sum);
+            } else if (event instanceof SecurityEvent securityEvent) {
+                threatCounts.merge(securityEvent.getThreatType(), 1L, Long::sum);
+            } else if (event instanceof AlertEvent alertEvent) {
+                alertsByType.computeIfAbsent(alertEvent.getAlertType(), type -> new ArrayList<>())
+                    .add(alertEvent.getDescription());
+            }
+        }
+
+        private EmployeeWindow absorb(EmployeeWindow other) {
+            if (employeeName == null) {
+                employeeName = other.employeeName;
+            }
+            eventIds.addAll(other.eventIds);
+            other.appDurations.forEach((app, duration) -> appDurations.merge(app, duration, Long::sum));
+            other.threatCounts.forEach((threat, count) -> threatCounts.merge(threat, count, Long::sum));
+            other.alertsByType.forEach((type, descriptions) ->
+                alertsByType.computeIfAbsent(type, t -> new ArrayList<>()).addAll(descriptions));
+            return this;
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return aggregationProperties.isEnabled();
+    }
+
+    @Override
+    public void record(List<? extends BaseEvent> events) {
+        if (!isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (BaseEvent event : events) {
+            if (event == null || event.getEmployeeId() == null) {
+                continue;
+            }
+            LocalDateTime timestamp = event.getTimestamp() != null ? event.getTimestamp() : now;
+            windows.compute(new WindowKey(event.getEmployeeId(), windowStart(timestamp)), (key, window) -> {
+                EmployeeWindow current = window != null ? window : new EmployeeWindow();
+                current.add(event);
+                return current;
+            });
+        }
+    }
+
+    @Override
+    public int flushClosedWindows() {
+        LocalDateTime closedBefore = LocalDateTime.now()
+            .minus(windowLength())
+            .minusSeconds(aggregationProperties.getAllowedLatenessSeconds());
+        return flush(key -> key.windowStart().isBefore(closedBefore) || key.windowStart().isEqual(closedBefore));
+    }
+
+    @Override
+    public int openWindows() {
+        return windows.size();
+    }
+
+    /**
+     * Writes the windows that are still open so a restart does not lose them. Events of these
+     * windows consumed after the restart are merged into what is written here.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (isEnabled() && !windows.isEmpty()) {
+            int written = flush(key -> true);
+            log.info("Flushed {} aggregations from open windows on shutdown", written);
+        }
+    }
+
+    /**
+     * Removes the matching windows and writes them. If the write fails the windows are put back,
+     * merged with anything recorded for them in the meantime, and retried on the next flush.
+     */
+    private int flush(Predicate<WindowKey> closed) {
+        Map<WindowKey, EmployeeWindow> removed = new HashMap<>();
+        List<EventAggregation> aggregations = new ArrayList<>();
+        for (WindowKey key : List.copyOf(windows.keySet())) {
+            if (!closed.test(key)) {
+                continue;
+            }
+            EmployeeWindow window = windows.remove(key);
+            if (window != null) {
+                removed.put(key, window);
+                aggregations.addAll(toAggregations(key, window));
+            }
+        }
+        if (aggregations.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            Map<String, EventAggregation> existing = new HashMap<>();
+            aggregationRepository.findAllById(aggregations.stream().map(EventAggregation::getId).toList())
+                .forEach(aggregation -> existing.put(aggregation.getId(), aggregation));
+            aggregations.forEach(aggregation -> {
+                EventAggregation stored = existing.get(aggregation.getId());
+                if (stored != null) {
+                    merge(aggregation, stored);
+                }
+            });
+
+            aggregationRepository.saveAll(aggregations);
+            log.info("Flushed {} streaming aggregations, {} merged with stored windows", aggregations.size(), existing.size());
+            return aggregations.size();
+        } catch (Exception e) {
+            log.error("Error flushing {} streaming aggregations, keeping their windows: {}", aggregations.size(), e.getMessage(), e);
+            removed.forEach((key, window) -> windows.merge(key, window, EmployeeWindow::absorb));
+            return 0;
+        }
+    }
+
+    private List<EventAggregation> toAggregations(WindowKey key, EmployeeWindow window) {
+        List<EventAggregation> aggregations = new ArrayList<>(3);
+        if (!window.appDurations.isEmpty()) {
+            aggregations.add(newAggregation(key, window, EventType.APP_USAGE, "appDurations", window.appDurations));
+        }
+        if (!window.threatCounts.isEmpty()) {
+            aggregations.add(newAggregation(key, window, EventType.SECURITY, "threatCounts", window.threatCounts));
+        }
+        if (!window.alertsByType.isEmpty()) {
+            aggregations.add(newAggregation(key, window, EventType.ALERT, "alertsByType", window.alertsByType));
+        }
+        return aggregations;
+    }
+
+    private EventAggregation newAggregation(WindowKey key, EmployeeWindow window, EventType eventType,
+                                            String dataKey, Map<String, ?> data) {
+        Map<String, Object> aggregatedData = new HashMap<>();
+        aggregatedData.put(dataKey, new HashMap<>(data));
+
+        LocalDateTime now = LocalDateTime.now();
+        EventAggregation aggregation = new EventAggregation();
+        aggregation.setId(EventAggregation.windowId(key.employeeId(), eventType, key.windowStart()));
+        aggregation.setEmployeeId(key.employeeId());
+        aggregation.setEmployeeName(window.employeeName);
+        aggregation.setEventType(eventType);
+        aggregation.setStartTime(key.windowStart());
+        aggregation.setEndTime(key.windowStart().plus(windowLength()));
+        aggregation.setAggregatedData(aggregatedData);
+        aggregation.setCreatedAt(now);
+        aggregation.setUpdatedAt(now);
+        return aggregation;
+    }
+
+    /**
+     * Adds the counters of an aggregation already stored for the same window
+     */
+    @SuppressWarnings("unchecked")
+    private void merge(EventAggregation aggregation, EventAggregation stored) {
+        aggregation.setCreatedAt(stored.getCreatedAt());
+        if (aggregation.getEmployeeName() == null) {
+            aggregation.setEmployeeName(stored.getEmployeeName());
+        }
+        if (stored.getAggregatedData() == null) {
+            return;
+        }
+
+        aggregation.getAggregatedData().replaceAll((dataKey, value) -> {
+            Object storedValue = stored.getAggregatedData().get(dataKey);
+            if (!(storedValue instanceof Map<?, ?> storedMap)) {
+                return value;
+            }
+            Map<String, Object> merged = new HashMap<>((Map<String, Object>) value);
+            storedMap.forEach((name, count) -> merged.merge(String.valueOf(name), count, this::mergeValues));
+            return merged;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object mergeValues(Object current, Object stored) {
+        if (current instanceof Number currentCount && stored instanceof Number storedCount) {
+            return currentCount.longValue() + storedCount.longValue();
+        }
+        if (current instanceof List<?> currentList && stored instanceof List<?> storedList) {
+            List<Object> merged = new ArrayList<>((List<Object>) storedList);
+            merged.addAll(currentList);
+            return merged;
+        }
+        return current;
+    }
+
+    private LocalDateTime windowStart(LocalDateTime timestamp) {
+        LocalDateTime day = timestamp.truncatedTo(ChronoUnit.DAYS);
+        long minuteOfDay = ChronoUnit.MINUTES.between(day, timestamp);
+        int windowMinutes = Math.max(1, aggregationProperties.getWindowMinutes());
+        return day.plusMinutes(minuteOfDay / windowMinutes * windowMinutes);
+    }
+
+    private Duration windowLength() {
+        return Duration.ofMinutes(Math.max(1, aggregationProperties.getWindowMinutes()));
+    }
+}
@@ -0,0 +1,177 @@
+package com.worksync.ai.service.impl;
+
+import com.worksync.ai.entity.SummaryCacheEntry;
+import com.worksync.ai.model.AggregatedEventBundle;
+import com.worksync.ai.model.BaseEvent;
+import com.worksync.ai.repository.SummaryCacheRepository;
+import com.worksync.ai.service.SummaryCacheService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fingerprints bundles by the content the summary prompt is built from. The prompt leaves out
+ * event IDs and gives times as minutes into the window, so the same activity at the same point of
+ * different windows gets the same fingerprint; app usage is compared at minute resolution, which is
+ * all the prompt shows of it. Events are sorted so the order they were read in does not matter.
+ */
+@Slf4j
+@Service
+public class SummaryCacheServiceImpl implements SummaryCacheService {
+
+    @Autowired
+    private SummaryCacheRepository summaryCacheRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${summary-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${summary-cache.ttl:7d}")
+    private Duration ttl;
+
+    // Bump to invalidate all entries, e.g. after changing the summary prompt
+    @Value("${summary-cache.version:1}")
+    private int version;
+
+    @Value("${spring.ai.openai.chat.model:openai/gpt-4}")
+    private String model;
+
+    @Override
+    public String fingerprint(AggregatedEventBundle bundle) {
+        if (!enabled) {
+            return null;
+        }
+
+        StringBuilder canonical = new StringBuilder()
+            .append("v").append(version).append('\n')
+            .append(model).append('\n')
+            .append(bundle.getEmployeeId()).append('\n')
+            .append(Objects.toString(bundle.getEmployeeName(), "")).append('\n')
+            .append(sorted(bundle.getPcIds())).append('\n')
+            .append(sorted(bundle.getCategories())).append('\n');
+        appendEvents(canonical, bundle, "app", bundle.getAppUsageEvents(), event ->
+            event.getAppName() + "|" + event.getDurationInSeconds() / 60);
+        appendEvents(canonical, bundle, "security", bundle.getSecurityEvents(), event ->
+            event.getUrl() + "|" + event.getThreatType());
+        appendEvents(canonical, bundle, "alert", bundle.getAlertEvents(), event ->
+            event.getAlertType() + "|" + event.getSeverity());
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JDK ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Optional<String> findSummary(String fingerprint) {
+        Optional<String> summary = find(fingerprint).map(SummaryCacheEntry::getSummaryText);
+        if (fingerprint != null) {
+            meterRegistry.counter("summary.cache.lookups", "result", summary.isPresent() ? "hit" : "miss").increment();
+        }
+        return summary;
+    }
+
+    @Override
+    public void storeSummary(String fingerprint, String employeeId, String summary) {
+        if (fingerprint == null) {
+            return;
+        }
+        SummaryCacheEntry entry = new SummaryCacheEntry();
+        entry.setId(fingerprint);
+        entry.setEmployeeId(employeeId);
+        entry.setModel(model);
+        entry.setSummaryText(summary);
+        entry.setCreatedAt(LocalDateTime.now());
+        save(entry);
+    }
+
+    @Override
+    public Optional<float[]> findEmbedding(String fingerprint, String summary) {
+        return find(fingerprint)
+            .filter(entry -> entry.getEmbedding() != null && entry.getEmbedding().length > 0)
+            .filter(entry -> entry.getSummaryText().equals(summary))
+            .map(SummaryCacheEntry::getEmbedding);
+    }
+
+    @Override
+    public void storeEmbedding(String fingerprint, String summary, float[] embedding) {
+        find(fingerprint)
+            .filter(entry -> entry.getSummaryText().equals(summary))
+            .ifPresent(entry -> {
+                entry.setEmbedding(embedding);
+                save(entry);
+            });
+    }
+
+    private Optional<SummaryCacheEntry> find(String fingerprint) {
+        if (fingerprint == null) {
+            return Optional.empty();
+        }
+        try {
+            return summaryCacheRepository.findById(fingerprint)
+                .filter(entry -> entry.getSummaryText() != null)
+                .filter(entry -> entry.getCreatedAt() != null
+                    && entry.getCreatedAt().plus(ttl).isAfter(LocalDateTime.now()));
+        } catch (Exception e) {
+            // A cache that cannot be read only costs the call it would have saved
+            log.warn("Error reading summary cache entry {}: {}", fingerprint, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void save(SummaryCacheEntry entry) {
+        try {
+            summaryCacheRepository.save(entry);
+        } catch (Exception e) {
+            log.warn("Error writing summary cache entry for employee {}: {}", entry.getEmployeeId(), e.getMessage());
+        }
+    }
+
+    private <T extends BaseEvent> void appendEvents(StringBuilder canonical, AggregatedEventBundle bundle, String type,
+                                                    List<T> events, Function<T, String> typeFields) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        events.stream()
+            .map(event -> type + "|" + typeFields.apply(event)
+                + "|" + bundle.relativeTime(event.getTimestamp())
+                + "|" + event.getPcId()
+                + "|" + event.getCategory()
+                + "|" + event.getPriority()
+                + "|" + event.getDescription()
+                + "|" + metadata(event.getMetadata()))
+            .sorted()
+            .forEach(line -> canonical.append(line).append('\n'));
+    }
+
+    private String metadata(Map<String, Object> metadata) {
+        return metadata == null || metadata.isEmpty() ? "" : new TreeMap<>(metadata).toString();
+    }
+
+    private String sorted(Collection<String> values) {
+        return values == null ? "" : values.stream().filter(Objects::nonNull).sorted().collect(Collectors.joining(","));
+    }
+}
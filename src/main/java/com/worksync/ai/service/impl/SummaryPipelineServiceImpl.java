@@ -1,29 +1,52 @@
 package com.worksync.ai.service.impl;
 
+import com.worksync.ai.config.SummaryPipelineConfig.SummaryPipelineProperties;
+import com.worksync.ai.entity.SummaryRun;
+import com.worksync.ai.entity.SummaryRunEntry;
+import com.worksync.ai.enums.SummaryRunStatus;
 import com.worksync.ai.model.AggregatedEventBundle;
-import com.worksync.ai.model.AppUsageEvent;
-import com.worksync.ai.model.dto.EventAggregationDTO;
 import com.worksync.ai.model.dto.SummaryRequest;
 import com.worksync.ai.model.dto.VectorStoreRequest;
-import com.worksync.ai.model.AlertEvent;
-import com.worksync.ai.model.SecurityEvent;
-import com.worksync.ai.service.EventAggregationService;
+import com.worksync.ai.repository.SummaryRunEntryRepository;
+import com.worksync.ai.repository.SummaryRunRepository;
+import com.worksync.ai.service.EventStreamService;
 import com.worksync.ai.service.LLMSummarizationService;
+import com.worksync.ai.service.SummaryCacheService;
 import com.worksync.ai.service.EmbeddingAndVectorStorageService;
 import com.worksync.ai.service.SummaryPipelineService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -32,8 +55,14 @@ public class SummaryPipelineServiceImpl implements SummaryPipelineService {
     @Value("${summary.generation.enabled:true}")
     private boolean summaryGenerationEnabled;
 
+    @Value("${summarization.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${summarization.batch.max-employees:4}")
+    private int batchMaxEmployees;
+
     @Autowired
-    private EventAggregationService eventAggregationService;
+    private EventStreamService eventStreamService;
 
     @Autowired
     private LLMSummarizationService llmSummarizationService;
@@ -41,77 +70,385 @@ public class SummaryPipelineServiceImpl implements SummaryPipelineService {
     @Autowired
     private EmbeddingAndVectorStorageService embeddingAndVectorStorageService;
 
+    @Autowired
+    private SummaryCacheService summaryCacheService;
+
+    @Autowired
+    private SummaryPipelineProperties pipelineProperties;
+
+    @Autowired
+    @Qualifier("summaryPipelineExecutor")
+    private ExecutorService summaryPipelineExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SummaryRunRepository summaryRunRepository;
+
+    @Autowired
+    private SummaryRunEntryRepository summaryRunEntryRepository;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private Timer taskTimer;
+    private Timer runTimer;
+
+    /**
+     * State of one window within a run: its ledger record, the employees the ledger says to skip,
+     * and the outcome counts of this pass
+     */
+    private static final class WindowRun {
+        private final SummaryRun run;
+        private final Set<String> finishedEmployees = new HashSet<>();
+        private final Map<String, Integer> failedAttempts = new HashMap<>();
+        private final List<Future<?>> pending = new ArrayList<>();
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private int submitted;
+        private int resumed;
+        private int cancelled;
+        private boolean exhausted;
+
+        private WindowRun(SummaryRun run) {
+            this.run = run;
+        }
+    }
+
+    /**
+     * Progress shared by all windows of one run
+     */
+    private static final class RunProgress {
+        private final AtomicInteger completed = new AtomicInteger();
+        private volatile boolean deadlineReached;
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("summary.pipeline.in.flight", inFlight, AtomicInteger::get)
+            .description("Employee summaries currently being generated")
+            .register(meterRegistry);
+        taskTimer = Timer.builder("summary.pipeline.task.duration")
+            .description("Time to summarize and embed one employee, or one batch of employees sharing requests")
+            .register(meterRegistry);
+        runTimer = Timer.builder("summary.pipeline.run.duration")
+            .description("Wall-clock time of one summary run")
+            .register(meterRegistry);
+    }
+
     /**
      * Runs hourly to generate and store summaries of employee activities
      * Scheduled to run at the start of every hour
      */
     @Override
     @Scheduled(cron = "0 0 * * * *") // Run at the start of every hour
-    @Transactional
     public void runHourlySummary() {
         if (!summaryGenerationEnabled) {
             log.info("Summary generation is disabled. Skipping scheduled execution.");
             return;
         }
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Previous summary run is still in progress. Skipping scheduled execution.");
+            return;
+        }
 
-        // Use current date but format it to match Elasticsearch
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startTime = now.minusHours(1);
-        LocalDateTime endTime = now;
-        
-        log.info("Starting hourly summary generation for period: {} to {}", startTime, endTime);
-        
         try {
-            // Fetch events grouped by employee
-            Map<String, List<EventAggregationDTO>> employeeEvents = eventAggregationService
-                .getEventsByTimeRangeGroupedByEmployee(startTime, endTime);
+            runTimer.record(() -> summarizeWindows(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS)));
+        } catch (Exception e) {
+            log.error("Error during hourly summary generation: {}", e.getMessage(), e);
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
 
-            log.info("Retrieved events for {} employees", employeeEvents.size());
-            log.info("Retrieved events for {} employees", employeeEvents
-            );
+    /**
+     * Picks up windows left unfinished by a crash or shutdown instead of waiting for the next hour
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        if (pipelineProperties.isResumeOnStartup()) {
+            runHourlySummary();
+        }
+    }
+
+    /**
+     * Summarizes the hour that just ended together with every earlier hour within the backfill
+     * horizon that the ledger does not record as completed. All windows share one pool of
+     * permits, so employees of missed hours are summarized alongside the current one without
+     * exceeding the configured concurrency. The current hour is started first, then missed hours
+     * from the most recent back.
+     */
+    private void summarizeWindows(LocalDateTime currentWindowEnd) {
+        List<SummaryRun> runs = pendingRuns(currentWindowEnd);
+        if (runs.isEmpty()) {
+            log.info("All summary windows up to {} are completed", currentWindowEnd);
+            return;
+        }
+        log.info("Starting summary generation for {} windows, from {} back to {}",
+            runs.size(), runs.get(0).getWindowStart(), runs.get(runs.size() - 1).getWindowStart());
+
+        int concurrency = Math.max(1, pipelineProperties.getConcurrency());
+        long deadline = System.nanoTime() + pipelineProperties.getDeadline().toNanos();
+        Semaphore permits = new Semaphore(concurrency);
+        RunProgress progress = new RunProgress();
+        List<WindowRun> windowRuns = new ArrayList<>();
+
+        try {
+            for (SummaryRun run : runs) {
+                WindowRun windowRun = openWindow(run);
+                windowRuns.add(windowRun);
+                if (!submitWindow(windowRun, deadline, permits, progress)) {
+                    break;
+                }
+            }
+
+            if (!permits.tryAcquire(concurrency, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                progress.deadlineReached = true;
+                windowRuns.forEach(this::cancelPending);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.deadlineReached = true;
+            windowRuns.forEach(this::cancelPending);
+        } finally {
+            windowRuns.forEach(this::closeWindow);
+        }
+    }
+
+    /**
+     * Streams the employees of one window into the pipeline, skipping those the ledger records as
+     * done. With batched summarization, consecutive employees are grouped into one task so their
+     * summaries can share requests. Returns false once the deadline has passed.
+     */
+    private boolean submitWindow(WindowRun windowRun, long deadline, Semaphore permits, RunProgress progress)
+            throws InterruptedException {
+        LocalDateTime startTime = windowRun.run.getWindowStart();
+        LocalDateTime endTime = windowRun.run.getWindowEnd();
+        int batchSize = batchEnabled ? Math.max(1, batchMaxEmployees) : 1;
+        List<AggregatedEventBundle> batch = new ArrayList<>(batchSize);
+
+        try (Stream<AggregatedEventBundle> bundles = eventStreamService.streamEmployeeBundles(startTime, endTime)) {
+            Iterator<AggregatedEventBundle> iterator = bundles.iterator();
+            while (iterator.hasNext()) {
+                AggregatedEventBundle bundle = iterator.next();
+                if (windowRun.finishedEmployees.contains(bundle.getEmployeeId())) {
+                    windowRun.resumed++;
+                    continue;
+                }
+                batch.add(bundle);
+                if (batch.size() >= batchSize) {
+                    if (!submitBatch(windowRun, batch, deadline, permits, progress)) {
+                        return false;
+                    }
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty() && !submitBatch(windowRun, batch, deadline, permits, progress)) {
+            return false;
+        }
+        windowRun.exhausted = true;
+        return true;
+    }
 
-            // Process each employee's events
-            employeeEvents.forEach((employeeId, events) -> {
+    private boolean submitBatch(WindowRun windowRun, List<AggregatedEventBundle> batch, long deadline,
+                                Semaphore permits, RunProgress progress) throws InterruptedException {
+        if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            log.warn("Summary run reached its deadline in window {} after starting {} employees, skipping the rest",
+                windowRun.run.getWindowStart(), windowRun.submitted);
+            meterRegistry.counter("summary.pipeline.employees", "outcome", "skipped").increment(batch.size());
+            return false;
+        }
+        windowRun.pending.removeIf(Future::isDone);
+        windowRun.pending.add(summaryPipelineExecutor.submit(() -> summarize(windowRun, batch, permits, progress)));
+        windowRun.submitted += batch.size();
+        return true;
+    }
+
+    private void summarize(WindowRun windowRun, List<AggregatedEventBundle> batch, Semaphore permits, RunProgress progress) {
+        inFlight.addAndGet(batch.size());
+        long start = System.nanoTime();
+        try {
+            Map<String, String> summaries;
+            try {
+                summaries = batch.size() == 1
+                    ? Map.of(batch.get(0).getEmployeeId(), llmSummarizationService.generateSummary(batch.get(0)))
+                    : llmSummarizationService.generateSummaries(batch);
+            } catch (Exception e) {
+                log.error("Error generating summaries for {} employees: {}", batch.size(), e.getMessage());
+                batch.forEach(bundle -> recordFailure(windowRun, bundle.getEmployeeId(), e, progress));
+                return;
+            }
+
+            for (AggregatedEventBundle bundle : batch) {
                 try {
-                    processSingleEmployeeSummary(employeeId, events, startTime, endTime);
+                    storeSummary(bundle, summaries.get(bundle.getEmployeeId()), windowRun.run.getWindowEnd());
+                    windowRun.succeeded.incrementAndGet();
+                    meterRegistry.counter("summary.pipeline.employees", "outcome", "succeeded").increment();
+                    recordEntry(windowRun, bundle.getEmployeeId(), SummaryRunStatus.COMPLETED, null);
                 } catch (Exception e) {
-                    log.error("Error processing summary for employee {}: {}", employeeId, e.getMessage(), e);
+                    recordFailure(windowRun, bundle.getEmployeeId(), e, progress);
                 }
-            });
+            }
+        } finally {
+            taskTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            inFlight.addAndGet(-batch.size());
+            permits.release();
 
-            log.info("Successfully completed hourly summary generation");
-            
-        } catch (Exception e) {
-            log.error("Error during hourly summary generation: {}", e.getMessage(), e);
-            throw e; // Rethrowing to ensure transaction rollback
+            int completedBefore = progress.completed.getAndAdd(batch.size());
+            int interval = Math.max(1, pipelineProperties.getProgressLogInterval());
+            if (completedBefore / interval != (completedBefore + batch.size()) / interval) {
+                log.info("Summary run progress: {} employees done, {} in flight", completedBefore + batch.size(), inFlight.get());
+            }
+        }
+    }
+
+    private void recordFailure(WindowRun windowRun, String employeeId, Exception error, RunProgress progress) {
+        // Work interrupted by the deadline is counted as cancelled, not failed
+        if (!progress.deadlineReached) {
+            windowRun.failed.incrementAndGet();
+            meterRegistry.counter("summary.pipeline.employees", "outcome", "failed").increment();
+            recordEntry(windowRun, employeeId, SummaryRunStatus.INCOMPLETE, error.getMessage());
         }
     }
 
     /**
-     * Processes summary generation for a single employee
+     * Ledger records of the current window and of the missed windows within the backfill horizon,
+     * newest first. Windows without a record have never been started; those older than the
+     * oldest record in the ledger are not backfilled.
      */
-    private void processSingleEmployeeSummary(String employeeId, 
-                                            List<EventAggregationDTO> events,
-                                            LocalDateTime startTime,
-                                            LocalDateTime endTime) {
-        log.debug("Processing summary for employee {} with {} events", employeeId, events.size());
+    private List<SummaryRun> pendingRuns(LocalDateTime currentWindowEnd) {
+        // Hours before the first recorded run predate the ledger, so on a first deploy nothing counts as missed
+        LocalDateTime ledgerStart = summaryRunRepository.findFirstByOrderByWindowStartAsc()
+            .map(SummaryRun::getWindowStart)
+            .orElse(currentWindowEnd);
+
+        Map<String, LocalDateTime> windowStarts = new LinkedHashMap<>();
+        for (int hoursBack = 1; hoursBack <= 1 + Math.max(0, pipelineProperties.getBackfillHours()); hoursBack++) {
+            LocalDateTime windowStart = currentWindowEnd.minusHours(hoursBack);
+            if (hoursBack > 1 && windowStart.isBefore(ledgerStart)) {
+                break;
+            }
+            windowStarts.put(SummaryRun.runId(windowStart), windowStart);
+        }
 
+        Map<String, SummaryRun> stored = new HashMap<>();
+        summaryRunRepository.findAllById(windowStarts.keySet()).forEach(run -> stored.put(run.getId(), run));
+
+        List<SummaryRun> runs = new ArrayList<>();
+        windowStarts.forEach((runId, windowStart) -> {
+            SummaryRun run = stored.get(runId);
+            if (run == null) {
+                run = new SummaryRun();
+                run.setId(runId);
+                run.setWindowStart(windowStart);
+                run.setWindowEnd(windowStart.plusHours(1));
+            }
+            if (run.getStatus() != SummaryRunStatus.COMPLETED) {
+                runs.add(run);
+            }
+        });
+        return runs;
+    }
+
+    /**
+     * Marks the window as running and loads the employees an earlier attempt already finished,
+     * either successfully or by running out of attempts
+     */
+    private WindowRun openWindow(SummaryRun run) {
+        WindowRun windowRun = new WindowRun(run);
+        if (run.getStatus() != null) {
+            try (Stream<SummaryRunEntry> entries = summaryRunEntryRepository.findByRunId(run.getId())) {
+                entries.forEach(entry -> {
+                    if (entry.getStatus() == SummaryRunStatus.COMPLETED
+                            || entry.getAttempts() >= pipelineProperties.getMaxEmployeeAttempts()) {
+                        windowRun.finishedEmployees.add(entry.getEmployeeId());
+                    } else {
+                        windowRun.failedAttempts.put(entry.getEmployeeId(), entry.getAttempts());
+                    }
+                });
+            }
+            log.info("Resuming summary window {} ({} earlier attempts), {} employees already done",
+                run.getWindowStart(), run.getAttempts(), windowRun.finishedEmployees.size());
+        }
+
+        run.setStatus(SummaryRunStatus.RUNNING);
+        run.setAttempts(run.getAttempts() + 1);
+        run.setStartedAt(LocalDateTime.now());
+        run.setFinishedAt(null);
+        summaryRunRepository.save(run);
+        return windowRun;
+    }
+
+    private void cancelPending(WindowRun windowRun) {
+        for (Future<?> future : windowRun.pending) {
+            if (future.cancel(true)) {
+                windowRun.cancelled++;
+            }
+        }
+        meterRegistry.counter("summary.pipeline.employees", "outcome", "cancelled").increment(windowRun.cancelled);
+    }
+
+    /**
+     * Completes the window only if every employee was reached and none failed in this pass;
+     * otherwise it stays incomplete and is resumed by a later run within the backfill horizon
+     */
+    private void closeWindow(WindowRun windowRun) {
+        SummaryRun run = windowRun.run;
+        boolean completed = windowRun.exhausted && windowRun.failed.get() == 0 && windowRun.cancelled == 0;
+        run.setStatus(completed ? SummaryRunStatus.COMPLETED : SummaryRunStatus.INCOMPLETE);
+        run.setSucceededEmployees(run.getSucceededEmployees() + windowRun.succeeded.get());
+        run.setFailedEmployees(windowRun.failed.get());
+        run.setFinishedAt(LocalDateTime.now());
         try {
-            // Convert EventAggregationDTO list to AggregatedEventBundle
-            AggregatedEventBundle bundle = convertToEventBundle(events);
-            bundle.setEmployeeId(employeeId);
+            summaryRunRepository.save(run);
+        } catch (Exception e) {
+            log.error("Error recording summary window {} as {}: {}", run.getWindowStart(), run.getStatus(), e.getMessage());
+        }
+        log.info("Summary window {} {}: {} employees started, {} succeeded, {} failed, {} cancelled, {} already done",
+            run.getWindowStart(), run.getStatus(), windowRun.submitted, windowRun.succeeded.get(),
+            windowRun.failed.get(), windowRun.cancelled, windowRun.resumed);
+    }
 
-            // Generate text summary using LLM
-            String summary = llmSummarizationService.generateSummary(bundle);
+    private void recordEntry(WindowRun windowRun, String employeeId, SummaryRunStatus status, String error) {
+        SummaryRunEntry entry = new SummaryRunEntry();
+        entry.setId(SummaryRunEntry.entryId(windowRun.run.getId(), employeeId));
+        entry.setRunId(windowRun.run.getId());
+        entry.setEmployeeId(employeeId);
+        entry.setStatus(status);
+        entry.setAttempts(windowRun.failedAttempts.getOrDefault(employeeId, 0) + 1);
+        entry.setLastError(error);
+        entry.setUpdatedAt(LocalDateTime.now());
+        try {
+            summaryRunEntryRepository.save(entry);
+        } catch (Exception e) {
+            // The employee is summarized again if the window is resumed, which only costs a duplicate call
+            log.warn("Error recording summary of employee {} in window {}: {}",
+                employeeId, windowRun.run.getWindowStart(), e.getMessage());
+        }
+    }
 
-            log.debug("Generated summary for employee {}: {}", employeeId, summary);
+    /**
+     * Embeds the summary of a single employee and stores it in the vector store
+     */
+    private void storeSummary(AggregatedEventBundle bundle, String summary, LocalDateTime endTime) {
+        String employeeId = bundle.getEmployeeId();
+        if (summary == null) {
+            throw new IllegalStateException("No summary was generated for employee " + employeeId);
+        }
+        log.debug("Generated summary for employee {} from {} events: {}", employeeId,
+            bundle.getAppUsageEvents().size() + bundle.getSecurityEvents().size() + bundle.getAlertEvents().size(), summary);
 
+        try {
             // Generate embedding and store in vector store
             embeddingAndVectorStorageService.embedAndStore(
                 VectorStoreRequest.builder()
                     .employeeId(employeeId)
                     .summary(summary)
                     .timestamp(endTime)
+                    .fingerprint(summaryCacheService.fingerprint(bundle))
                     .build()
             );
 
@@ -121,111 +458,4 @@ public class SummaryPipelineServiceImpl implements SummaryPipelineService {
             throw e;
         }
     }
-
-    /**
-     * Converts a list of EventAggregationDTO to AggregatedEventBundle
-     */
-    private AggregatedEventBundle convertToEventBundle(List<EventAggregationDTO> events) {
-        if (events.isEmpty()) {
-            return new AggregatedEventBundle();
-        }
-
-        // Get employee info from the first event
-        EventAggregationDTO firstEvent = events.get(0);
-        AggregatedEventBundle bundle = new AggregatedEventBundle(
-            firstEvent.employeeId(), 
-            firstEvent.employeeName()
-        );
-
-        events.forEach(event -> {
-            switch (event.eventType()) {
-                case APP_USAGE -> {
-                    AppUsageEvent appUsageEvent = new AppUsageEvent();
-                    appUsageEvent.setEmployeeId(event.employeeId());
-                    appUsageEvent.setEmployeeName(event.employeeName());
-                    appUsageEvent.setTimestamp(event.timestamp());
-                    
-                    // Set AppUsageEvent specific properties
-                    appUsageEvent.setAppName((String) event.eventData().get("appName"));
-                    
-                    // Handle potential null or wrong type for durationInSeconds
-                    Object duration = event.eventData().get("durationInSeconds");
-                    if (duration != null) {
-                        if (duration instanceof Long) {
-                            appUsageEvent.setDurationInSeconds((Long) duration);
-                        } else if (duration instanceof Integer) {
-                            appUsageEvent.setDurationInSeconds(((Integer) duration).longValue());
-                        }
-                    }
-                    
-                    // Collect additional properties
-                    String pcId = (String) event.eventData().get("pcId");
-                    if (pcId != null) {
-                        bundle.getPcIds().add(pcId);
-                        appUsageEvent.setPcId(pcId);
-                    }
-                    
-                    String category = (String) event.eventData().get("category");
-                    if (category != null) {
-                        bundle.getCategories().add(category);
-                        appUsageEvent.setCategory(category);
-                    }
-                    
-                    bundle.getAppUsageEvents().add(appUsageEvent);
-                }
-                case SECURITY -> {
-                    SecurityEvent securityEvent = new SecurityEvent();
-                    securityEvent.setEmployeeId(event.employeeId());
-                    securityEvent.setEmployeeName(event.employeeName());
-                    securityEvent.setTimestamp(event.timestamp());
-                    
-                    // Set SecurityEvent specific properties
-                    securityEvent.setThreatType((String) event.eventData().get("threatType"));
-                    securityEvent.setUrl((String) event.eventData().get("url"));
-                    
-                    // Collect additional properties
-                    String pcId = (String) event.eventData().get("pcId");
-                    if (pcId != null) {
-                        bundle.getPcIds().add(pcId);
-                        securityEvent.setPcId(pcId);
-                    }
-                    
-                    String category = (String) event.eventData().get("category");
-                    if (category != null) {
-                        bundle.getCategories().add(category);
-                        securityEvent.setCategory(category);
-                    }
-                    
-                    bundle.getSecurityEvents().add(securityEvent);
-                }
-                case ALERT -> {
-                    AlertEvent alertEvent = new AlertEvent();
-                    alertEvent.setEmployeeId(event.employeeId());
-                    alertEvent.setEmployeeName(event.employeeName());
-                    alertEvent.setTimestamp(event.timestamp());
-                    
-                    // Set AlertEvent specific properties
-                    alertEvent.setAlertType((String) event.eventData().get("alertType"));
-                    alertEvent.setSeverity((String) event.eventData().get("severity"));
-                    
-                    // Collect additional properties
-                    String pcId = (String) event.eventData().get("pcId");
-                    if (pcId != null) {
-                        bundle.getPcIds().add(pcId);
-                        alertEvent.setPcId(pcId);
-                    }
-                    
-                    String category = (String) event.eventData().get("category");
-                    if (category != null) {
-                        bundle.getCategories().add(category);
-                        alertEvent.setCategory(category);
-                    }
-                    
-                    bundle.getAlertEvents().add(alertEvent);
-                }
-            }
-        });
-
-        return bundle;
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package com.worksync.ai.vector;
+
+import java.util.Arrays;
+
+/**
+ * Vectors at full precision in a {@link VectorArena}, outside the Java heap. The heap holds only
+ * the arena slot of each node; vectors are read from the mapped file into a scratch array each
+ * time they are scored. A vector whose key the arena already holds, from an earlier run, is not
+ * written again.
+ */
+final class ArenaVectorStore implements VectorStore {
+
+    private final VectorArena arena;
+    private final int dimensions;
+    private int[] slots = new int[1024];
+    private int size;
+    // Only used by similarity, which runs while inserting under the write lock of the index
+    private final float[] left;
+    private final float[] right;
+
+    ArenaVectorStore(VectorArena arena, int dimensions) {
+        this.arena = arena;
+        this.dimensions = dimensions;
+        this.left = new float[dimensions];
+        this.right = new float[dimensions];
+    }
+
+    @Override
+    public void add(String key, float[] normalized) {
+        arena.append(key, normalized);
+        int slot = arena.slot(key);
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+        slots[size++] = slot;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Scorer scorer(float[] normalizedQuery) {
+        float[] vector = new float[dimensions];
+        return node -> {
+            arena.read(slots[node], vector);
+            return VectorMath.dot(normalizedQuery, vector);
+        };
+    }
+
+    @Override
+    public float similarity(int a, int b) {
+        arena.read(slots[a], left);
+        arena.read(slots[b], right);
+        return VectorMath.dot(left, right);
+    }
+
+    @Override
+    public float[] vector(int node) {
+        float[] vector = new float[dimensions];
+        arena.read(slots[node], vector);
+        return vector;
+    }
+
+    @Override
+    public int bytesPerVector() {
+        return dimensions * Float.BYTES;
+    }
+}
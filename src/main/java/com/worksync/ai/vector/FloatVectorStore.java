@@ -0,0 +1,47 @@
+package com.worksync.ai.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vectors at full precision, four bytes per dimension
+ */
+final class FloatVectorStore implements VectorStore {
+
+    private final int dimensions;
+    private final List<float[]> vectors = new ArrayList<>();
+
+    FloatVectorStore(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public void add(String key, float[] normalized) {
+        vectors.add(normalized);
+    }
+
+    @Override
+    public int size() {
+        return vectors.size();
+    }
+
+    @Override
+    public Scorer scorer(float[] normalizedQuery) {
+        return node -> VectorMath.dot(normalizedQuery, vectors.get(node));
+    }
+
+    @Override
+    public float similarity(int a, int b) {
+        return VectorMath.dot(vectors.get(a), vectors.get(b));
+    }
+
+    @Override
+    public float[] vector(int node) {
+        return vectors.get(node).clone();
+    }
+
+    @Override
+    public int bytesPerVector() {
+        return dimensions * Float.BYTES;
+    }
+}
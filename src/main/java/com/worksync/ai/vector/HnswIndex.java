@@ -0,0 +1,429 @@
+package com.worksync.ai.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Hierarchical navigable small world graph over unit vectors, ranked by cosine similarity
+ * (Malkov and Yashunin, 2016). Each vector gets a random top layer drawn from an exponential
+ * distribution; searches descend greedily through the sparse upper layers and explore the bottom
+ * layer with a beam of {@code ef} candidates. Neighbours are picked with the paper's diversity
+ * heuristic, which keeps the graph navigable across clusters.
+ *
+ * <p>Vectors are kept by a {@link VectorStore}: at full precision on the heap or in a
+ * {@link VectorArena}, or quantized, in which case the graph is built and searched on the quantized
+ * vectors and similarities are approximate.
+ *
+ * <p>Vectors are only ever added. Adds are serialized; searches run concurrently with each other.
+ */
+public class HnswIndex {
+
+    public record Neighbor(String key, float similarity) {}
+
+    private record Candidate(int node, float distance) {}
+
+    private static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(Candidate::distance);
+    private static final Comparator<Candidate> FARTHEST_FIRST = NEAREST_FIRST.reversed();
+
+    private final int dimensions;
+    private final int m;
+    private final int maxLinks0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final VectorStore vectors;
+    private final List<String> keys = new ArrayList<>();
+    // Per node and layer: the neighbour count followed by the neighbours
+    private final List<int[][]> links = new ArrayList<>();
+    private final Map<String, Integer> nodesByKey = new HashMap<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<VisitedNodes> visitedNodes = ThreadLocal.withInitial(VisitedNodes::new);
+
+    /**
+     * @param m Neighbours per node on the upper layers, twice as many on the bottom layer
+     * @param efConstruction Beam width used to find the neighbours of an added vector
+     */
+    public HnswIndex(int dimensions, int m, int efConstruction, long seed) {
+        this(dimensions, m, efConstruction, seed, new FloatVectorStore(dimensions));
+    }
+
+    HnswIndex(int dimensions, int m, int efConstruction, long seed, VectorStore vectors) {
+        if (m < 2) {
+            throw new IllegalArgumentException("M must be at least 2");
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxLinks0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+        this.vectors = vectors;
+    }
+
+    public int bytesPerVector() {
+        return vectors.bytesPerVector();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vectors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String key) {
+        lock.readLock().lock();
+        try {
+            return nodesByKey.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The stored, normalized vector, reconstructed when quantized, or null if the key is
+     *         not indexed
+     */
+    public float[] vector(String key) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesByKey.get(key);
+            return node != null ? vectors.vector(node) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a vector under a key
+     *
+     * @return false if the key is already indexed, in which case the vector is ignored
+     */
+    public boolean add(String key, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        float[] normalized = VectorMath.normalize(vector);
+        if (normalized == null) {
+            throw new IllegalArgumentException("Cannot index the zero vector, it has no direction");
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (nodesByKey.containsKey(key)) {
+                return false;
+            }
+            int node = vectors.size();
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            int[][] nodeLinks = new int[level + 1][];
+            for (int layer = 0; layer <= level; layer++) {
+                nodeLinks[layer] = new int[maxLinks(layer) + 1];
+            }
+            vectors.add(key, normalized);
+            keys.add(key);
+            links.add(nodeLinks);
+            nodesByKey.put(key, node);
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return true;
+            }
+
+            VectorStore.Scorer scorer = vectors.scorer(normalized);
+            int current = descend(scorer, level);
+            for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+                List<Candidate> candidates = searchLayer(scorer, current, efConstruction, layer, null);
+                int[] selected = selectNeighbors(candidates, m);
+                nodeLinks[layer][0] = selected.length;
+                System.arraycopy(selected, 0, nodeLinks[layer], 1, selected.length);
+                for (int neighbor : selected) {
+                    connect(neighbor, node, layer);
+                }
+                current = candidates.get(0).node();
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate k nearest neighbours, most similar first
+     *
+     * @param ef Beam width of the bottom-layer search; larger is more accurate and slower
+     * @param filter Keys eligible as results, or null for all. The graph is still traversed
+     *               through ineligible nodes, so selective filters make the search explore more.
+     */
+    public List<Neighbor> search(float[] query, int k, int ef, Predicate<String> filter) {
+        float[] normalized = VectorMath.normalize(query);
+        if (normalized == null || k <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            VectorStore.Scorer scorer = vectors.scorer(normalized);
+            int current = descend(scorer, 0);
+            List<Candidate> results = searchLayer(scorer, current, Math.max(ef, k), 0, filter);
+            return neighbors(results, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact k nearest neighbours among all vectors, most similar first
+     */
+    public List<Neighbor> exactSearch(float[] query, int k) {
+        float[] normalized = VectorMath.normalize(query);
+        if (normalized == null || k <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            VectorStore.Scorer scorer = vectors.scorer(normalized);
+            PriorityQueue<Candidate> results = new PriorityQueue<>(FARTHEST_FIRST);
+            for (int node = 0; node < vectors.size(); node++) {
+                offer(results, new Candidate(node, distance(scorer, node)), k);
+            }
+            return neighbors(results, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact k nearest neighbours among the given keys, for filters selecting few enough vectors
+     * that scanning them beats traversing the graph
+     */
+    public List<Neighbor> exactSearch(float[] query, int k, Collection<String> candidateKeys) {
+        float[] normalized = VectorMath.normalize(query);
+        if (normalized == null || k <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            VectorStore.Scorer scorer = vectors.scorer(normalized);
+            PriorityQueue<Candidate> results = new PriorityQueue<>(FARTHEST_FIRST);
+            for (String key : candidateKeys) {
+                Integer node = nodesByKey.get(key);
+                if (node != null) {
+                    offer(results, new Candidate(node, distance(scorer, node)), k);
+                }
+            }
+            return neighbors(results, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void offer(PriorityQueue<Candidate> farthestFirst, Candidate candidate, int k) {
+        if (farthestFirst.size() < k || candidate.distance() < farthestFirst.peek().distance()) {
+            farthestFirst.add(candidate);
+            if (farthestFirst.size() > k) {
+                farthestFirst.poll();
+            }
+        }
+    }
+
+    private List<Neighbor> neighbors(PriorityQueue<Candidate> farthestFirst, int k) {
+        List<Candidate> sorted = new ArrayList<>(farthestFirst);
+        sorted.sort(NEAREST_FIRST);
+        return neighbors(sorted, k);
+    }
+
+    private List<Neighbor> neighbors(List<Candidate> sorted, int k) {
+        List<Neighbor> neighbors = new ArrayList<>(Math.min(k, sorted.size()));
+        for (int i = 0; i < sorted.size() && i < k; i++) {
+            Candidate candidate = sorted.get(i);
+            neighbors.add(new Neighbor(keys.get(candidate.node()), 1 - candidate.distance()));
+        }
+        return neighbors;
+    }
+
+    /**
+     * Greedy search from the entry point down to the layer above the target layer
+     */
+    private int descend(VectorStore.Scorer query, int targetLayer) {
+        int current = entryPoint;
+        float currentDistance = distance(query, current);
+        for (int layer = maxLevel; layer > targetLayer; layer--) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                int[] neighbors = links.get(current)[layer];
+                for (int i = 1; i <= neighbors[0]; i++) {
+                    float distance = distance(query, neighbors[i]);
+                    if (distance < currentDistance) {
+                        current = neighbors[i];
+                        currentDistance = distance;
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search of one layer
+     *
+     * @return Up to ef accepted nodes, nearest first
+     */
+    private List<Candidate> searchLayer(VectorStore.Scorer query, int entry, int ef, int layer, Predicate<String> filter) {
+        VisitedNodes visited = visitedNodes.get().reset(vectors.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(FARTHEST_FIRST);
+
+        Candidate start = new Candidate(entry, distance(query, entry));
+        visited.visit(entry);
+        candidates.add(start);
+        if (filter == null || filter.test(keys.get(entry))) {
+            results.add(start);
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.distance() > results.peek().distance()) {
+                break;
+            }
+            int[] neighbors = links.get(closest.node())[layer];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (!visited.visit(neighbor)) {
+                    continue;
+                }
+                float distance = distance(query, neighbor);
+                if (results.size() < ef || distance < results.peek().distance()) {
+                    Candidate candidate = new Candidate(neighbor, distance);
+                    candidates.add(candidate);
+                    if (filter == null || filter.test(keys.get(neighbor))) {
+                        results.add(candidate);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(NEAREST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * Keeps a candidate only if it is closer to the new node than to every neighbour kept so far,
+     * then fills the remaining slots with the nearest of the pruned candidates
+     */
+    private int[] selectNeighbors(List<Candidate> nearestFirst, int max) {
+        int[] selected = new int[max];
+        int count = 0;
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : nearestFirst) {
+            if (count >= max) {
+                break;
+            }
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (1 - vectors.similarity(candidate.node(), selected[i]) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = candidate.node();
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (int i = 0; i < pruned.size() && count < max; i++) {
+            selected[count++] = pruned.get(i).node();
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private void connect(int node, int neighbor, int layer) {
+        int[] nodeLinks = links.get(node)[layer];
+        int count = nodeLinks[0];
+        if (count < maxLinks(layer)) {
+            nodeLinks[count + 1] = neighbor;
+            nodeLinks[0] = count + 1;
+            return;
+        }
+
+        // Full: re-select among the current neighbours and the new one
+        List<Candidate> candidates = new ArrayList<>(count + 1);
+        for (int i = 1; i <= count; i++) {
+            candidates.add(new Candidate(nodeLinks[i], 1 - vectors.similarity(node, nodeLinks[i])));
+        }
+        candidates.add(new Candidate(neighbor, 1 - vectors.similarity(node, neighbor)));
+        candidates.sort(NEAREST_FIRST);
+        int[] selected = selectNeighbors(candidates, maxLinks(layer));
+        nodeLinks[0] = selected.length;
+        System.arraycopy(selected, 0, nodeLinks, 1, selected.length);
+    }
+
+    private int maxLinks(int layer) {
+        return layer == 0 ? maxLinks0 : m;
+    }
+
+    private static float distance(VectorStore.Scorer query, int node) {
+        return 1 - query.similarity(node);
+    }
+
+    /**
+     * Visited marks reused across the searches of a thread; a new generation clears them
+     */
+    private static final class VisitedNodes {
+
+        private int[] marks = new int[0];
+        private int generation;
+
+        private VisitedNodes reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+            return this;
+        }
+
+        /**
+         * @return false if the node was already visited
+         */
+        private boolean visit(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.worksync.ai.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Vectors quantized to one signed byte per dimension. Each vector is scaled by its own largest
+ * component, so no training is needed and vectors can be added at any time. Queries stay at full
+ * precision and are compared with the codes directly.
+ */
+final class Int8VectorStore implements VectorStore {
+
+    private final int dimensions;
+    private final List<byte[]> codes = new ArrayList<>();
+    private float[] scales = new float[1024];
+
+    Int8VectorStore(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public void add(String key, float[] normalized) {
+        float max = 0f;
+        for (float value : normalized) {
+            max = Math.max(max, Math.abs(value));
+        }
+        float scale = max / 127f;
+        byte[] code = new byte[normalized.length];
+        for (int i = 0; i < normalized.length; i++) {
+            code[i] = (byte) Math.round(normalized[i] / scale);
+        }
+        if (codes.size() == scales.length) {
+            scales = Arrays.copyOf(scales, scales.length * 2);
+        }
+        scales[codes.size()] = scale;
+        codes.add(code);
+    }
+
+    @Override
+    public int size() {
+        return codes.size();
+    }
+
+    @Override
+    public Scorer scorer(float[] normalizedQuery) {
+        return node -> VectorMath.dot(normalizedQuery, codes.get(node)) * scales[node];
+    }
+
+    @Override
+    public float similarity(int a, int b) {
+        return VectorMath.dot(codes.get(a), codes.get(b)) * scales[a] * scales[b];
+    }
+
+    @Override
+    public float[] vector(int node) {
+        byte[] code = codes.get(node);
+        float[] vector = new float[code.length];
+        for (int i = 0; i < code.length; i++) {
+            vector[i] = code[i] * scales[node];
+        }
+        return vector;
+    }
+
+    @Override
+    public int bytesPerVector() {
+        return dimensions + Float.BYTES;
+    }
+}
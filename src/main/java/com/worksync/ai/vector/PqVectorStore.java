@@ -0,0 +1,50 @@
+package com.worksync.ai.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vectors encoded by a trained {@link ProductQuantizer}, one byte per subspace. A search builds the
+ * query's similarity table once and scores each node with one lookup per subspace.
+ */
+final class PqVectorStore implements VectorStore {
+
+    private final ProductQuantizer quantizer;
+    private final List<byte[]> codes = new ArrayList<>();
+
+    PqVectorStore(ProductQuantizer quantizer) {
+        this.quantizer = quantizer;
+    }
+
+    @Override
+    public void add(String key, float[] normalized) {
+        codes.add(quantizer.encode(normalized));
+    }
+
+    @Override
+    public int size() {
+        return codes.size();
+    }
+
+    @Override
+    public Scorer scorer(float[] normalizedQuery) {
+        float[] table = quantizer.table(normalizedQuery);
+        return node -> quantizer.score(table, codes.get(node));
+    }
+
+    @Override
+    public float similarity(int a, int b) {
+        // Only used while inserting; reconstructing both sides keeps the codebooks the only table
+        return VectorMath.dot(quantizer.decode(codes.get(a)), quantizer.decode(codes.get(b)));
+    }
+
+    @Override
+    public float[] vector(int node) {
+        return quantizer.decode(codes.get(node));
+    }
+
+    @Override
+    public int bytesPerVector() {
+        return quantizer.subspaces();
+    }
+}
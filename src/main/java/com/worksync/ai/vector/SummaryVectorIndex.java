@@ -0,0 +1,469 @@
+package com.worksync.ai.vector;
+
+import com.worksync.ai.config.VectorIndexConfig.Quantization;
+import com.worksync.ai.config.VectorIndexConfig.VectorIndexProperties;
+import com.worksync.ai.model.dto.SummaryMatch;
+import com.worksync.ai.model.entity.SummaryVector;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * In-process HNSW index of the stored summary embeddings, answering similarity searches without
+ * a round trip to Elasticsearch. Loaded from the summary vector index once the application is
+ * ready and kept current by {@link #add} as summaries are stored. Until loading has finished,
+ * searches are left to Elasticsearch.
+ *
+ * <p>Without the {@link VectorArena}, holds every embedding on the heap, about 6 KB per summary at
+ * 1536 dimensions. With the arena enabled, the normalized vectors live off-heap in memory-mapped
+ * files and the graph reads them from there, so the heap holds only the graph links. Exact scans
+ * stream through the arena, and at startup only summaries missing from it are read from
+ * Elasticsearch with their embeddings.
+ *
+ * <p>With the arena enabled, the index can hold quantized vectors instead: int8 codes at a quarter
+ * of the size, or product quantization codes at 1 byte per subspace. Product quantization is
+ * trained on the first summaries loaded, on a thread of its own; summaries added meanwhile are
+ * held back until the index exists. Searches then fetch more candidates and re-rank them at full
+ * precision from the arena.
+ */
+@Slf4j
+@Component
+public class SummaryVectorIndex {
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    private final VectorIndexProperties properties;
+    private final boolean quantized;
+    private final VectorArena arena;
+    // Null until product quantization is trained; vectors added meanwhile wait in untrained
+    private volatile HnswIndex index;
+    private final List<Untrained> untrained = new ArrayList<>();
+    private final ExecutorService trainer;
+    private CompletableFuture<Void> training;
+    private final Map<String, SummaryVector> summaries = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> keysByEmployee = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public SummaryVectorIndex(VectorIndexProperties properties) {
+        this.properties = properties;
+        String quantization = properties.getQuantization().getType().toLowerCase();
+        boolean quantizing = quantization.equals("int8") || quantization.equals("pq");
+        if (quantizing && properties.isEnabled() && !properties.getArena().isEnabled()) {
+            throw new IllegalArgumentException("Vector quantization needs the vector arena, which keeps the full-precision vectors results are re-ranked with");
+        }
+        this.arena = properties.isEnabled() && properties.getArena().isEnabled() ? openArena(properties) : null;
+        if (quantizing && arena == null) {
+            if (properties.isEnabled()) {
+                log.warn("Without the vector arena quantized results cannot be re-ranked, indexing full-precision vectors instead");
+            }
+            quantization = "none";
+        }
+        this.quantized = !quantization.equals("none");
+        this.index = switch (quantization) {
+            case "none" -> newIndex(arena != null
+                ? new ArenaVectorStore(arena, properties.getDimensions())
+                : new FloatVectorStore(properties.getDimensions()));
+            case "int8" -> newIndex(new Int8VectorStore(properties.getDimensions()));
+            case "pq" -> null;
+            default -> throw new IllegalArgumentException("Unknown vector quantization: " + quantization);
+        };
+        this.trainer = index == null ? Executors.newSingleThreadExecutor(new CustomizableThreadFactory("pq-training-")) : null;
+    }
+
+    private HnswIndex newIndex(VectorStore store) {
+        return new HnswIndex(properties.getDimensions(), properties.getM(), properties.getEfConstruction(), 42L, store);
+    }
+
+    private record Untrained(SummaryVector metadata, float[] embedding) {}
+
+    private static VectorArena openArena(VectorIndexProperties properties) {
+        Path directory = Path.of(properties.getArena().getDirectory());
+        try {
+            VectorArena arena = new VectorArena(directory, properties.getDimensions(), properties.getArena().getVectorsPerChunk());
+            log.info("Opened vector arena at {} with {} vectors", directory.toAbsolutePath(), arena.size());
+            return arena;
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Could not open the vector arena at {}, keeping vectors on the heap only: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (trainer != null) {
+            trainer.shutdownNow();
+        }
+        if (arena != null) {
+            try {
+                arena.close();
+            } catch (IOException e) {
+                log.warn("Could not close the vector arena: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Result of comparing the index with exact search over the same vectors
+     *
+     * @param recall Share of the exact top k also returned by the index
+     * @param reranked Whether candidates were re-ranked at full precision from the arena
+     */
+    public record RecallReport(int vectors, int queries, int k, int efSearch, double recall,
+                               double indexMillis, double exactMillis, String quantization,
+                               int bytesPerVector, boolean reranked) {}
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public boolean isReady() {
+        return properties.isEnabled() && ready && index != null;
+    }
+
+    public int size() {
+        HnswIndex current = index;
+        return current != null ? current.size() : 0;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long started = System.nanoTime();
+        NativeQueryBuilder query = NativeQuery.builder()
+            .withQuery(q -> q.exists(e -> e.field("embedding")))
+            .withPageable(PageRequest.of(0, properties.getLoadPageSize()));
+        if (arena != null) {
+            // Vectors already in the arena are not read again; the rest are fetched by id below
+            query.withSourceFilter(new FetchSourceFilterBuilder().withExcludes("embedding").build());
+        }
+        int fromArena = 0;
+        List<String> missing = new ArrayList<>();
+        try (SearchHitsIterator<SummaryVector> hits = elasticsearchOperations.searchForStream(query.build(), SummaryVector.class)) {
+            while (hits.hasNext()) {
+                SummaryVector summary = hits.next().getContent();
+                float[] stored = arena != null && summary.getId() != null ? arena.get(summary.getId()) : null;
+                if (arena == null) {
+                    add(summary);
+                } else if (stored != null) {
+                    summary.setEmbedding(stored);
+                    add(summary);
+                    fromArena++;
+                } else if (summary.getId() != null) {
+                    missing.add(summary.getId());
+                    if (missing.size() >= properties.getLoadPageSize()) {
+                        addById(missing);
+                        missing.clear();
+                    }
+                }
+            }
+            addById(missing);
+            if (index == null) {
+                // Trains on the summaries there are if they did not fill the training sample, and
+                // waits for the training to finish either way
+                startTraining().join();
+            }
+            ready = true;
+            log.info("Loaded {} summary vectors into the in-process index in {} ms, {} of them from the arena",
+                size(), (System.nanoTime() - started) / 1_000_000, fromArena);
+        } catch (Exception e) {
+            log.error("Could not load the in-process vector index, similarity searches stay on Elasticsearch: {}",
+                e.getMessage(), e);
+        }
+    }
+
+    private void addById(List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        NativeQuery query = NativeQuery.builder()
+            .withIds(ids)
+            .withPageable(PageRequest.of(0, ids.size()))
+            .build();
+        for (SearchHit<SummaryVector> hit : elasticsearchOperations.search(query, SummaryVector.class)) {
+            add(hit.getContent());
+        }
+    }
+
+    /**
+     * Indexes a stored summary; summaries without an embedding or already indexed are skipped
+     */
+    public void add(SummaryVector summaryVector) {
+        if (!properties.isEnabled() || summaryVector.getId() == null) {
+            return;
+        }
+        float[] embedding = summaryVector.getEmbedding();
+        if (embedding == null || embedding.length != properties.getDimensions()) {
+            return;
+        }
+        // Keep the metadata only; the index holds its own normalized copy of the vector
+        SummaryVector metadata = SummaryVector.builder()
+            .id(summaryVector.getId())
+            .employeeId(summaryVector.getEmployeeId())
+            .summaryText(summaryVector.getSummaryText())
+            .timestamp(summaryVector.getTimestamp())
+            .build();
+        summaries.put(metadata.getId(), metadata);
+        HnswIndex current = index;
+        if (current == null) {
+            if (awaitTraining(metadata, embedding)) {
+                return;
+            }
+            current = index;
+        }
+        indexVector(current, metadata, embedding);
+    }
+
+    private void indexVector(HnswIndex target, SummaryVector metadata, float[] embedding) {
+        try {
+            if (target.add(metadata.getId(), embedding)) {
+                if (metadata.getEmployeeId() != null) {
+                    keysByEmployee.computeIfAbsent(metadata.getEmployeeId(), id -> ConcurrentHashMap.newKeySet()).add(metadata.getId());
+                }
+                if (arena != null && quantized) {
+                    // Unquantized vectors went to the arena through the index's store
+                    arena.append(metadata.getId(), VectorMath.normalize(embedding));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            summaries.remove(metadata.getId());
+            log.warn("Skipping summary vector {}: {}", metadata.getId(), e.getMessage());
+        } catch (UncheckedIOException e) {
+            log.warn("Could not store summary vector {} in the arena: {}", metadata.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Holds a vector back until product quantization is trained, and starts the training once
+     * enough vectors are held back
+     *
+     * @return false if the index was created meanwhile, so the vector can be indexed directly
+     */
+    private synchronized boolean awaitTraining(SummaryVector metadata, float[] embedding) {
+        if (index != null) {
+            return false;
+        }
+        untrained.add(new Untrained(metadata, embedding));
+        if (untrained.size() >= properties.getQuantization().getPqTrainingSample()) {
+            startTraining();
+        }
+        return true;
+    }
+
+    private synchronized CompletableFuture<Void> startTraining() {
+        if (training == null) {
+            training = CompletableFuture.runAsync(this::trainProductQuantizer, trainer);
+        }
+        return training;
+    }
+
+    /**
+     * Trains product quantization on the vectors held back and creates the index from them, then
+     * indexes the vectors held back during training before publishing the index. With fewer
+     * vectors than centroids, the index uses int8 codes instead. Runs on the trainer thread, so
+     * adds only wait for the monitor while the held-back vectors are handed over.
+     */
+    private void trainProductQuantizer() {
+        List<Untrained> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(untrained);
+            untrained.clear();
+        }
+        Quantization settings = properties.getQuantization();
+        List<float[]> sample = new ArrayList<>(pending.size());
+        for (Untrained vector : pending) {
+            float[] normalized = VectorMath.normalize(vector.embedding());
+            if (normalized != null) {
+                sample.add(normalized);
+            }
+        }
+        HnswIndex trained;
+        if (sample.size() < settings.getPqCentroids()) {
+            log.info("Only {} summary vectors to train product quantization on, indexing int8 codes instead", sample.size());
+            trained = newIndex(new Int8VectorStore(properties.getDimensions()));
+        } else {
+            try {
+                long started = System.nanoTime();
+                ProductQuantizer quantizer = ProductQuantizer.train(sample, settings.getPqSubspaces(), settings.getPqCentroids(),
+                    settings.getPqIterations(), 42L);
+                log.info("Trained product quantization with {} subspaces on {} summary vectors in {} ms",
+                    quantizer.subspaces(), sample.size(), (System.nanoTime() - started) / 1_000_000);
+                trained = newIndex(new PqVectorStore(quantizer));
+            } catch (IllegalArgumentException e) {
+                log.error("Could not train product quantization, indexing int8 codes instead: {}", e.getMessage());
+                trained = newIndex(new Int8VectorStore(properties.getDimensions()));
+            }
+        }
+
+        while (true) {
+            for (Untrained vector : pending) {
+                indexVector(trained, vector.metadata(), vector.embedding());
+            }
+            synchronized (this) {
+                if (untrained.isEmpty()) {
+                    index = trained;
+                    return;
+                }
+                pending = new ArrayList<>(untrained);
+                untrained.clear();
+            }
+        }
+    }
+
+    /**
+     * Searches the index, or returns empty while it is disabled or still loading
+     */
+    public Optional<List<SummaryMatch>> search(float[] queryEmbedding, int topK, String employeeId,
+                                               LocalDateTime from, LocalDateTime to) {
+        if (!isReady()) {
+            return Optional.empty();
+        }
+        Predicate<String> inTimeRange = key -> {
+            SummaryVector summary = summaries.get(key);
+            LocalDateTime timestamp = summary != null ? summary.getTimestamp() : null;
+            return (from == null || (timestamp != null && !timestamp.isBefore(from)))
+                && (to == null || (timestamp != null && timestamp.isBefore(to)));
+        };
+
+        HnswIndex current = index;
+        int candidates = candidates(topK);
+        List<HnswIndex.Neighbor> neighbors;
+        if (employeeId != null) {
+            // An employee has few summaries; scanning them is exact and cheaper than filtering the graph walk
+            List<String> keys = keysByEmployee.getOrDefault(employeeId, Set.of()).stream().filter(inTimeRange).toList();
+            neighbors = rerank(queryEmbedding, current.exactSearch(queryEmbedding, candidates, keys), topK);
+        } else if (arena != null && (from != null || to != null)) {
+            // A narrow time range starves the graph walk of eligible nodes; an exact scan is not affected
+            neighbors = exactScan(queryEmbedding, topK, inTimeRange);
+        } else {
+            neighbors = rerank(queryEmbedding, current.search(queryEmbedding, candidates, Math.max(properties.getEfSearch(), candidates),
+                from == null && to == null ? null : inTimeRange), topK);
+        }
+
+        List<SummaryMatch> matches = new ArrayList<>(neighbors.size());
+        for (HnswIndex.Neighbor neighbor : neighbors) {
+            SummaryVector summary = summaries.get(neighbor.key());
+            if (summary != null) {
+                matches.add(new SummaryMatch(
+                    summary.getEmployeeId(),
+                    summary.getSummaryText(),
+                    summary.getTimestamp() != null ? summary.getTimestamp() : LocalDateTime.now(),
+                    neighbor.similarity()
+                ));
+            }
+        }
+        return Optional.of(matches);
+    }
+
+    private int candidates(int k) {
+        return quantized ? k * Math.max(1, properties.getQuantization().getRerankFactor()) : k;
+    }
+
+    /**
+     * Re-scores candidates found on quantized vectors with their full-precision vectors from the
+     * arena, and keeps the best k
+     */
+    private List<HnswIndex.Neighbor> rerank(float[] query, List<HnswIndex.Neighbor> candidates, int k) {
+        float[] normalized = quantized ? VectorMath.normalize(query) : null;
+        if (normalized == null) {
+            return candidates.size() > k ? candidates.subList(0, k) : candidates;
+        }
+        List<HnswIndex.Neighbor> rescored = new ArrayList<>(candidates.size());
+        for (HnswIndex.Neighbor candidate : candidates) {
+            float[] vector = arena.get(candidate.key());
+            rescored.add(vector != null ? new HnswIndex.Neighbor(candidate.key(), VectorMath.dot(normalized, vector)) : candidate);
+        }
+        rescored.sort(Comparator.comparingDouble(HnswIndex.Neighbor::similarity).reversed());
+        return rescored.size() > k ? rescored.subList(0, k) : rescored;
+    }
+
+    private List<HnswIndex.Neighbor> exactScan(float[] query, int k, Predicate<String> filter) {
+        float[] normalized = VectorMath.normalize(query);
+        return normalized == null ? List.of() : arena.scan(normalized, k, filter);
+    }
+
+    /**
+     * Measures recall@k of the index against exact search, using stored vectors as queries
+     */
+    public RecallReport measureRecall(int queries, int k, int efSearch) {
+        HnswIndex current = index;
+        String quantization = properties.getQuantization().getType();
+        if (current == null) {
+            return new RecallReport(0, 0, k, efSearch, 1.0, 0, 0, quantization, 0, false);
+        }
+        int candidates = candidates(k);
+        List<String> keys = new ArrayList<>(summaries.keySet());
+        Collections.shuffle(keys, new Random(7));
+        List<String> sample = keys.subList(0, Math.min(queries, keys.size()));
+
+        long indexNanos = 0;
+        long exactNanos = 0;
+        int found = 0;
+        int expected = 0;
+        for (String key : sample) {
+            float[] query = arena != null && arena.contains(key) ? arena.get(key) : current.vector(key);
+            if (query == null) {
+                continue;
+            }
+            long started = System.nanoTime();
+            List<HnswIndex.Neighbor> approximate = rerank(query, current.search(query, candidates, Math.max(efSearch, candidates), null), k);
+            indexNanos += System.nanoTime() - started;
+
+            started = System.nanoTime();
+            List<HnswIndex.Neighbor> exact = arena != null ? exactScan(query, k, summaries::containsKey) : current.exactSearch(query, k);
+            exactNanos += System.nanoTime() - started;
+
+            Set<String> exactKeys = new HashSet<>();
+            exact.forEach(neighbor -> exactKeys.add(neighbor.key()));
+            found += (int) approximate.stream().filter(neighbor -> exactKeys.contains(neighbor.key())).count();
+            expected += exact.size();
+        }
+        int measured = sample.size();
+        return new RecallReport(
+            current.size(),
+            measured,
+            k,
+            efSearch,
+            expected == 0 ? 1.0 : (double) found / expected,
+            measured == 0 ? 0 : indexNanos / 1e6 / measured,
+            measured == 0 ? 0 : exactNanos / 1e6 / measured,
+            quantization,
+            current.bytesPerVector(),
+            candidates > k
+        );
+    }
+}
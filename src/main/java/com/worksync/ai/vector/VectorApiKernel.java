@@ -0,0 +1,41 @@
+package com.worksync.ai.vector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Dot product on the widest SIMD registers the CPU offers. Only referenced reflectively by
+ * {@link VectorMath}, so the application still starts when the incubator module is not added.
+ */
+final class VectorApiKernel implements VectorMath.Kernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        int i = 0;
+        int bound = SPECIES.loopBound(a.length);
+        // Two independent accumulators hide the latency of the fused multiply-add
+        FloatVector sum0 = FloatVector.zero(SPECIES);
+        FloatVector sum1 = FloatVector.zero(SPECIES);
+        int step = SPECIES.length();
+        for (; i + step < bound; i += 2 * step) {
+            sum0 = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, b, i), sum0);
+            sum1 = FloatVector.fromArray(SPECIES, a, i + step).fma(FloatVector.fromArray(SPECIES, b, i + step), sum1);
+        }
+        for (; i < bound; i += step) {
+            sum0 = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, b, i), sum0);
+        }
+        float sum = sum0.add(sum1).reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "Vector API, " + SPECIES.vectorBitSize() + "-bit";
+    }
+}
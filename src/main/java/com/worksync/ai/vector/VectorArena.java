@@ -0,0 +1,230 @@
+package com.worksync.ai.vector;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Append-only store of unit vectors in memory-mapped files, outside the Java heap. Vectors lie
+ * back to back in {@code vectors.f32}, mapped in fixed-size chunks, and their keys are kept in a
+ * parallel array, persisted one per line in {@code keys.txt}. Scans read the vectors in file order,
+ * so brute-force search streams through memory linearly, and the vectors survive restarts.
+ *
+ * <p>A vector is written before its key, and on opening only vectors with a key are counted, so a
+ * crash between the two leaves a slot that the next append overwrites. Appends are serialized;
+ * scans run concurrently with them and see the vectors appended before they started.
+ */
+public class VectorArena implements Closeable {
+
+    private static final int MAGIC = 0x57535641;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    private final int dimensions;
+    private final int vectorsPerChunk;
+    private final FileChannel channel;
+    private final BufferedWriter keyWriter;
+    private final List<FloatBuffer> chunks = new CopyOnWriteArrayList<>();
+    // Grown by copying; published to scans by the write of count that follows
+    private volatile String[] keys = new String[1024];
+    private final Map<String, Integer> slotsByKey = new HashMap<>();
+    private volatile int count;
+
+    public VectorArena(Path directory, int dimensions, int vectorsPerChunk) throws IOException {
+        if ((long) vectorsPerChunk * dimensions * Float.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A chunk of " + vectorsPerChunk + " vectors exceeds the 2 GB mapping limit");
+        }
+        this.dimensions = dimensions;
+        this.vectorsPerChunk = vectorsPerChunk;
+        Files.createDirectories(directory);
+        Path vectorFile = directory.resolve("vectors.f32");
+        Path keyFile = directory.resolve("keys.txt");
+
+        this.channel = FileChannel.open(vectorFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readOrWriteHeader(vectorFile);
+
+        List<String> storedKeys = Files.exists(keyFile) ? Files.readAllLines(keyFile, StandardCharsets.UTF_8) : List.of();
+        long storedVectors = Math.max(0, (channel.size() - HEADER_BYTES) / vectorBytes());
+        int usable = (int) Math.min(storedKeys.size(), storedVectors);
+        if (usable < storedKeys.size()) {
+            // Keys written without their vector cannot occur in normal operation; drop them
+            Files.write(keyFile, storedKeys.subList(0, usable), StandardCharsets.UTF_8);
+        }
+        keys = storedKeys.subList(0, usable).toArray(new String[Math.max(1024, usable * 2)]);
+        for (int slot = 0; slot < usable; slot++) {
+            slotsByKey.put(keys[slot], slot);
+        }
+        count = usable;
+        this.keyWriter = Files.newBufferedWriter(keyFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void readOrWriteHeader(Path vectorFile) throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) == 0) {
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, dimensions);
+            header.force();
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException(vectorFile + " is not a vector arena");
+        } else if (header.getInt(8) != dimensions) {
+            throw new IOException(vectorFile + " holds " + header.getInt(8) + "-dimension vectors, expected " + dimensions);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public synchronized boolean contains(String key) {
+        return slotsByKey.containsKey(key);
+    }
+
+    /**
+     * Appends a vector under a key
+     *
+     * @return false if the key is already stored, in which case the vector is ignored
+     */
+    public synchronized boolean append(String key, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        if (key.indexOf('\n') >= 0 || key.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Keys cannot contain line breaks");
+        }
+        if (slotsByKey.containsKey(key)) {
+            return false;
+        }
+        int slot = count;
+        try {
+            chunk(slot).put(offset(slot), vector);
+            keyWriter.write(key);
+            keyWriter.newLine();
+            keyWriter.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the vector arena", e);
+        }
+        if (slot == keys.length) {
+            keys = Arrays.copyOf(keys, slot * 2);
+        }
+        keys[slot] = key;
+        slotsByKey.put(key, slot);
+        count = slot + 1;
+        return true;
+    }
+
+    /**
+     * @return The slot holding the vector of a key, or -1 if the key is not stored
+     */
+    synchronized int slot(String key) {
+        Integer slot = slotsByKey.get(key);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * Copies the vector of a key into a new array, or returns null if the key is not stored
+     */
+    public float[] get(String key) {
+        Integer slot;
+        synchronized (this) {
+            slot = slotsByKey.get(key);
+        }
+        if (slot == null) {
+            return null;
+        }
+        float[] vector = new float[dimensions];
+        read(slot, vector);
+        return vector;
+    }
+
+    /**
+     * Exact k nearest neighbours by dot product, most similar first, reading every stored vector
+     * in order through one reused buffer
+     *
+     * @param filter Keys eligible as results, or null for all
+     */
+    public List<HnswIndex.Neighbor> scan(float[] normalizedQuery, int k, Predicate<String> filter) {
+        if (k <= 0) {
+            return List.of();
+        }
+        PriorityQueue<HnswIndex.Neighbor> results = new PriorityQueue<>(Comparator.comparingDouble(HnswIndex.Neighbor::similarity));
+        float[] vector = new float[dimensions];
+        int size = count;
+        String[] slotKeys = keys;
+        for (int slot = 0; slot < size; slot++) {
+            String key = slotKeys[slot];
+            if (filter != null && !filter.test(key)) {
+                continue;
+            }
+            read(slot, vector);
+            float similarity = VectorMath.dot(normalizedQuery, vector);
+            if (results.size() < k || similarity > results.peek().similarity()) {
+                results.add(new HnswIndex.Neighbor(key, similarity));
+                if (results.size() > k) {
+                    results.poll();
+                }
+            }
+        }
+        List<HnswIndex.Neighbor> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(HnswIndex.Neighbor::similarity).reversed());
+        return sorted;
+    }
+
+    /**
+     * Copies the vector in a slot below {@link #size()} into an array of its dimensions
+     */
+    void read(int slot, float[] into) {
+        chunk(slot).get(offset(slot), into);
+    }
+
+    private int offset(int slot) {
+        return (slot % vectorsPerChunk) * dimensions;
+    }
+
+    private FloatBuffer chunk(int slot) {
+        int index = slot / vectorsPerChunk;
+        if (index < chunks.size()) {
+            return chunks.get(index);
+        }
+        synchronized (this) {
+            // Mapping past the end of the file grows it
+            while (chunks.size() <= index) {
+                long position = HEADER_BYTES + (long) chunks.size() * vectorsPerChunk * vectorBytes();
+                try {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) vectorsPerChunk * vectorBytes());
+                    chunks.add(mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not map the vector arena", e);
+                }
+            }
+            return chunks.get(index);
+        }
+    }
+
+    private long vectorBytes() {
+        return (long) dimensions * Float.BYTES;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        keyWriter.close();
+        channel.close();
+    }
+}
@@ -0,0 +1,102 @@
+package com.worksync.ai.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Vector kernels of the in-process index. Stored vectors are unit length, so cosine similarity
+ * is their dot product and no norms are computed per comparison. The dot product runs on the
+ * Java Vector API when the JVM is started with {@code --add-modules jdk.incubator.vector}, and
+ * as a scalar loop otherwise.
+ */
+@Slf4j
+public final class VectorMath {
+
+    interface Kernel {
+        float dot(float[] a, float[] b);
+    }
+
+    private static final Kernel KERNEL = loadKernel();
+
+    private VectorMath() {
+    }
+
+    private static Kernel loadKernel() {
+        try {
+            Kernel kernel = (Kernel) Class.forName("com.worksync.ai.vector.VectorApiKernel")
+                .getDeclaredConstructor()
+                .newInstance();
+            // Fails here rather than on the first search if the module is missing
+            kernel.dot(new float[] {1f}, new float[] {1f});
+            log.info("Vector similarity kernel: {}", kernel);
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.info("Vector similarity kernel: scalar, start the JVM with --add-modules jdk.incubator.vector to use SIMD");
+            return new ScalarKernel();
+        }
+    }
+
+    public static float dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vector dimensions do not match: " + a.length + " and " + b.length);
+        }
+        return KERNEL.dot(a, b);
+    }
+
+    /**
+     * Dot product of a vector with int8 codes, left unscaled. Scalar loops, which the JIT compiler
+     * vectorizes on its own.
+     */
+    public static float dot(float[] a, byte[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vector dimensions do not match: " + a.length + " and " + b.length);
+        }
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    public static int dot(byte[] a, byte[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vector dimensions do not match: " + a.length + " and " + b.length);
+        }
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return A unit-length copy of the vector, or null for the zero vector
+     */
+    public static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        if (norm == 0 || Double.isNaN(norm)) {
+            return null;
+        }
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    static final class ScalarKernel implements Kernel {
+
+        @Override
+        public float dot(float[] a, float[] b) {
+            float sum = 0f;
+            for (int i = 0; i < a.length; i++) {
+                sum += a[i] * b[i];
+            }
+            return sum;
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.worksync.ai.vector;
+
+/**
+ * Node vectors of an {@link HnswIndex}, kept at full precision or as quantized codes. Nodes are
+ * numbered in the order their vectors were added. Accessed under the lock of the index.
+ */
+interface VectorStore {
+
+    /**
+     * Similarity of stored vectors to one query, prepared once per search
+     */
+    interface Scorer {
+        float similarity(int node);
+    }
+
+    /**
+     * Stores the vector of the next node
+     *
+     * @param key Key of the node, for stores that keep vectors addressed by key
+     */
+    void add(String key, float[] normalized);
+
+    int size();
+
+    Scorer scorer(float[] normalizedQuery);
+
+    float similarity(int a, int b);
+
+    /**
+     * @return A copy of the stored vector, reconstructed from its code when quantized
+     */
+    float[] vector(int node);
+
+    int bytesPerVector();
+}
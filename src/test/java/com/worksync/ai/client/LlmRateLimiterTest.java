@@ -0,0 +1,176 @@
+package com.worksync.ai.client;
+
+import com.worksync.ai.config.HttpClientConfig.HttpClientProperties;
+import com.worksync.ai.config.LlmRateLimitConfig.LlmRateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static com.worksync.ai.client.StubLlmServer.brokenOpenRouterStream;
+import static com.worksync.ai.client.StubLlmServer.error;
+import static com.worksync.ai.client.StubLlmServer.openRouterAnswer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmRateLimiterTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private LlmRateLimitProperties properties;
+    private StubLlmServer server;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmRateLimitProperties();
+        properties.setRequestsPerSecond(100);
+        properties.setBurst(100);
+        properties.setRetryBackoff(Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+        scheduler.shutdownNow();
+        httpClient.close();
+    }
+
+    @Test
+    void retriesA429AfterTheRetryAfterTheProviderSent() throws Exception {
+        server = new StubLlmServer(openRouterAnswer("hello"))
+            .thenReply(error(429).withHeader("Retry-After", "1"));
+        OpenRouterClient client = client();
+
+        String content = client.chatCompletionAsync("model", "system", "user", 0.2, 100).get(10, TimeUnit.SECONDS);
+
+        assertThat(content).isEqualTo("hello");
+        assertThat(server.requests()).isEqualTo(2);
+        assertThat(gapMillis(0, 1)).isGreaterThanOrEqualTo(950);
+    }
+
+    @Test
+    void holdsBackOtherRequestsWhileRateLimited() throws Exception {
+        server = new StubLlmServer(openRouterAnswer("hello"))
+            .thenReply(error(429).withHeader("Retry-After", "1"));
+        OpenRouterClient client = client();
+
+        client.chatCompletionAsync("model", "system", "first", 0.2, 100).get(10, TimeUnit.SECONDS);
+        long secondSubmittedAt = System.nanoTime();
+        CompletableFuture<String> second = client.chatCompletionAsync("model", "system", "second", 0.2, 100);
+
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("hello");
+        // The second request was submitted after the 429 had been answered, so it ran unpaused
+        assertThat(server.requestTimes().get(2) - secondSubmittedAt).isLessThan(TimeUnit.MILLISECONDS.toNanos(900));
+
+        server.thenReply(error(429).withHeader("Retry-After", "1"));
+        CompletableFuture<String> limited = client.chatCompletionAsync("model", "system", "third", 0.2, 100);
+        Thread.sleep(200);
+        CompletableFuture<String> queued = client.chatCompletionAsync("model", "system", "fourth", 0.2, 100);
+
+        assertThat(limited.get(10, TimeUnit.SECONDS)).isEqualTo("hello");
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isEqualTo("hello");
+        // Nothing reached the server until the Retry-After of the third request had passed
+        assertThat(gapMillis(3, 4)).isGreaterThanOrEqualTo(950);
+    }
+
+    @Test
+    void failsOnceTheRetriesAreUsedUp() throws Exception {
+        properties.setMaxRetries(2);
+        server = new StubLlmServer(error(503));
+        OpenRouterClient client = client();
+
+        CompletableFuture<String> result = client.chatCompletionAsync("model", "system", "user", 0.2, 100);
+
+        assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .cause()
+            .isInstanceOfSatisfying(LlmClientException.class, e -> assertThat(e.getStatusCode()).isEqualTo(503));
+        assertThat(server.requests()).isEqualTo(3);
+    }
+
+    @Test
+    void doesNotRetryClientErrors() throws Exception {
+        server = new StubLlmServer(error(400));
+        OpenRouterClient client = client();
+
+        CompletableFuture<String> result = client.chatCompletionAsync("model", "system", "user", 0.2, 100);
+
+        assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(LlmClientException.class);
+        assertThat(server.requests()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotReplayAStreamThatBrokeOffAfterRelayingTokens() throws Exception {
+        server = new StubLlmServer(openRouterAnswer("hello"))
+            .thenReply(brokenOpenRouterStream("Hel", "lo"));
+        OpenRouterClient client = client();
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<String> result = client.chatCompletionStream("model", "system", "user", 0.2, 100, tokens::add);
+
+        assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .cause()
+            .isInstanceOfSatisfying(LlmClientException.class, e -> assertThat(e.isRetryable()).isFalse());
+        assertThat(tokens).containsExactly("Hel", "lo");
+        assertThat(server.requests()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesAStreamThatFailedBeforeRelayingTokens() throws Exception {
+        server = new StubLlmServer(brokenOpenRouterStream("hello"))
+            .thenReply(error(503))
+            .thenReply(brokenOpenRouterStream());
+        OpenRouterClient client = client();
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<String> result = client.chatCompletionStream("model", "system", "user", 0.2, 100, tokens::add);
+
+        // The default reply breaks off too, but only after relaying its token, so it is not retried
+        assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(LlmClientException.class);
+        assertThat(tokens).containsExactly("hello");
+        assertThat(server.requests()).isEqualTo(3);
+    }
+
+    @Test
+    void keepsRequestsInFlightWithinTheConcurrencyLimit() throws Exception {
+        properties.setInitialConcurrency(2);
+        properties.setMaxConcurrency(2);
+        server = new StubLlmServer(openRouterAnswer("hello").delayed(200));
+        OpenRouterClient client = client();
+
+        List<CompletableFuture<String>> results = IntStream.range(0, 6)
+            .mapToObj(i -> client.chatCompletionAsync("model", "system", "user " + i, 0.2, 100))
+            .toList();
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertThat(server.requests()).isEqualTo(6);
+        assertThat(server.maxInFlight()).isEqualTo(2);
+    }
+
+    private OpenRouterClient client() {
+        LlmRateLimiter rateLimiter = new LlmRateLimiter("openrouter", properties, scheduler, new SimpleMeterRegistry());
+        OpenRouterClient client = new OpenRouterClient(httpClient, new HttpClientProperties(), rateLimiter);
+        ReflectionTestUtils.setField(client, "baseUrl", server.baseUrl());
+        ReflectionTestUtils.setField(client, "apiKey", "test-key");
+        return client;
+    }
+
+    private long gapMillis(int from, int to) {
+        return TimeUnit.NANOSECONDS.toMillis(server.requestTimes().get(to) - server.requestTimes().get(from));
+    }
+}
@@ -0,0 +1,169 @@
+package com.worksync.ai.client;
+
+import com.worksync.ai.client.LlmRouter.Completion;
+import com.worksync.ai.config.HttpClientConfig.HttpClientProperties;
+import com.worksync.ai.config.LlmRateLimitConfig.LlmRateLimitProperties;
+import com.worksync.ai.config.LlmRouterConfig.LlmRouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.worksync.ai.client.StubLlmServer.error;
+import static com.worksync.ai.client.StubLlmServer.ollamaAnswer;
+import static com.worksync.ai.client.StubLlmServer.openRouterAnswer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmRouterTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LlmRouterProperties properties;
+    private StubLlmServer openRouter;
+    private StubLlmServer ollama;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmRouterProperties();
+        properties.getHedging().setEnabled(false);
+        properties.getHedging().setInitialDelay(Duration.ofMillis(100));
+        properties.getHedging().setMinDelay(Duration.ofMillis(50));
+        properties.getCircuitBreaker().setOpenDuration(Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (openRouter != null) {
+            openRouter.close();
+        }
+        if (ollama != null) {
+            ollama.close();
+        }
+        scheduler.shutdownNow();
+        httpClient.close();
+    }
+
+    @Test
+    void answersFromThePrimaryWhenItIsHealthy() throws Exception {
+        openRouter = new StubLlmServer(openRouterAnswer("from openrouter"));
+        ollama = new StubLlmServer(ollamaAnswer("from ollama"));
+
+        Completion completion = complete(router());
+
+        assertThat(completion).isEqualTo(new Completion("from openrouter", "openrouter", true));
+        assertThat(ollama.requests()).isZero();
+    }
+
+    @Test
+    void hedgesToTheSecondaryWhenThePrimaryIsSlow() throws Exception {
+        properties.getHedging().setEnabled(true);
+        openRouter = new StubLlmServer(openRouterAnswer("from openrouter").delayed(3_000));
+        ollama = new StubLlmServer(ollamaAnswer("from ollama"));
+        LlmRouter router = router();
+
+        long startedAt = System.nanoTime();
+        Completion completion = complete(router);
+
+        assertThat(completion).isEqualTo(new Completion("from ollama", "ollama", false));
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofSeconds(2));
+        // The hedge waited for the initial delay before sending the second request
+        assertThat(ollama.requestTimes().get(0) - openRouter.requestTimes().get(0))
+            .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(90));
+        assertThat(meterRegistry.counter("llm.router.hedged").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void doesNotHedgeWhenThePrimaryAnswersInTime() throws Exception {
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setInitialDelay(Duration.ofSeconds(2));
+        openRouter = new StubLlmServer(openRouterAnswer("from openrouter").delayed(100));
+        ollama = new StubLlmServer(ollamaAnswer("from ollama"));
+
+        Completion completion = complete(router());
+
+        assertThat(completion.backend()).isEqualTo("openrouter");
+        assertThat(ollama.requests()).isZero();
+    }
+
+    @Test
+    void failsOverWhenThePrimaryFails() throws Exception {
+        openRouter = new StubLlmServer(error(400));
+        ollama = new StubLlmServer(ollamaAnswer("from ollama"));
+
+        Completion completion = complete(router());
+
+        assertThat(completion).isEqualTo(new Completion("from ollama", "ollama", false));
+        assertThat(openRouter.requests()).isEqualTo(1);
+        assertThat(ollama.requests()).isEqualTo(1);
+    }
+
+    @Test
+    void skipsThePrimaryWhileItsCircuitIsOpen() throws Exception {
+        properties.getCircuitBreaker().setFailureThreshold(2);
+        openRouter = new StubLlmServer(error(400));
+        ollama = new StubLlmServer(ollamaAnswer("from ollama"));
+        LlmRouter router = router();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(complete(router).backend()).isEqualTo("ollama");
+        }
+
+        assertThat(openRouter.requests()).isEqualTo(2);
+        assertThat(ollama.requests()).isEqualTo(4);
+        assertThat(meterRegistry.get("llm.router.circuit_open").tag("backend", "openrouter").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void failsOnceEveryBackendHasFailed() throws Exception {
+        properties.getCircuitBreaker().setFailureThreshold(1);
+        openRouter = new StubLlmServer(error(400));
+        ollama = new StubLlmServer(error(500));
+        LlmRouter router = router();
+
+        assertThatThrownBy(() -> complete(router))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(LlmClientException.class);
+
+        // Both circuits are open now, so the next request fails without reaching either server
+        assertThatThrownBy(() -> complete(router))
+            .isInstanceOf(ExecutionException.class)
+            .cause()
+            .isInstanceOf(LlmClientException.class)
+            .hasMessageContaining("all circuits are open");
+        assertThat(openRouter.requests()).isEqualTo(1);
+        assertThat(ollama.requests()).isEqualTo(1);
+    }
+
+    private LlmRouter router() {
+        // The router's own behaviour is under test, so requests go straight to the stub
+        LlmRateLimitProperties rateLimit = new LlmRateLimitProperties();
+        rateLimit.setEnabled(false);
+        LlmRateLimiter rateLimiter = new LlmRateLimiter("openrouter", rateLimit, scheduler, meterRegistry);
+
+        HttpClientProperties httpClientProperties = new HttpClientProperties();
+        OpenRouterClient openRouterClient = new OpenRouterClient(httpClient, httpClientProperties, rateLimiter);
+        ReflectionTestUtils.setField(openRouterClient, "baseUrl", openRouter.baseUrl());
+        ReflectionTestUtils.setField(openRouterClient, "apiKey", "test-key");
+        OllamaClient ollamaClient = new OllamaClient(null, httpClient, httpClientProperties);
+        ReflectionTestUtils.setField(ollamaClient, "baseUrl", ollama.baseUrl());
+        ReflectionTestUtils.setField(ollamaClient, "defaultModel", "test-model");
+
+        return new LlmRouter(openRouterClient, ollamaClient, properties, scheduler, meterRegistry);
+    }
+
+    private static Completion complete(LlmRouter router) throws Exception {
+        CompletableFuture<Completion> completion = router.completeAsync("model", "system", "user", 0.2, 100);
+        return completion.get(10, TimeUnit.SECONDS);
+    }
+}
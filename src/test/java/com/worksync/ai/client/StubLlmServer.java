@@ -0,0 +1,143 @@
+package com.worksync.ai.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server standing in for a model provider. Replies are served in the order they were
+ * queued, then the default reply for every further request.
+ */
+final class StubLlmServer implements AutoCloseable {
+
+    /**
+     * A truncated reply drops the connection after sending its body, without ending the response
+     */
+    record Reply(int status, String body, Map<String, String> headers, long delayMillis, boolean truncated) {
+
+        Reply delayed(long millis) {
+            return new Reply(status, body, headers, millis, truncated);
+        }
+
+        Reply withHeader(String name, String value) {
+            return new Reply(status, body, Map.of(name, value), delayMillis, truncated);
+        }
+    }
+
+    static Reply openRouterAnswer(String content) {
+        return new Reply(200, "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"}}]}", Map.of(), 0, false);
+    }
+
+    /**
+     * An OpenRouter event stream that sends the tokens and then breaks off before {@code [DONE]}
+     */
+    static Reply brokenOpenRouterStream(String... tokens) {
+        StringBuilder body = new StringBuilder();
+        for (String token : tokens) {
+            body.append("data: {\"choices\":[{\"delta\":{\"content\":\"").append(token).append("\"}}]}\n\n");
+        }
+        return new Reply(200, body.toString(), Map.of(), 0, true);
+    }
+
+    static Reply ollamaAnswer(String content) {
+        return new Reply(200, "{\"response\":\"" + content + "\",\"done\":true}", Map.of(), 0, false);
+    }
+
+    static Reply error(int status) {
+        return new Reply(status, "{\"error\":\"stub error " + status + "\"}", Map.of(), 0, false);
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final Reply defaultReply;
+    private final List<Long> requestTimes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    StubLlmServer(Reply defaultReply) throws IOException {
+        this.defaultReply = defaultReply;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    StubLlmServer thenReply(Reply reply) {
+        replies.add(reply);
+        return this;
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    int requests() {
+        return requestTimes.size();
+    }
+
+    /**
+     * Arrival times of the requests, from {@link System#nanoTime()}
+     */
+    List<Long> requestTimes() {
+        return requestTimes;
+    }
+
+    int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestTimes.add(System.nanoTime());
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            exchange.getRequestBody().readAllBytes();
+            Reply reply = replies.poll();
+            if (reply == null) {
+                reply = defaultReply;
+            }
+            if (reply.delayMillis() > 0) {
+                Thread.sleep(reply.delayMillis());
+            }
+            byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            reply.headers().forEach(exchange.getResponseHeaders()::add);
+            if (reply.truncated()) {
+                exchange.sendResponseHeaders(reply.status(), 0);
+                exchange.getResponseBody().write(body);
+                exchange.getResponseBody().flush();
+                // A handler that fails without closing the exchange makes the server drop the connection
+                throw new IOException("Stub reply broken off");
+            }
+            try (exchange) {
+                exchange.sendResponseHeaders(reply.status(), body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } catch (InterruptedException e) {
+            exchange.close();
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
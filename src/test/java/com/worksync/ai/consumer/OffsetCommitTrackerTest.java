@@ -0,0 +1,149 @@
+package com.worksync.ai.consumer;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffsetCommitTrackerTest {
+
+    private static final String TOPIC = "app-usage-events";
+    private static final TopicPartition P0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition P1 = new TopicPartition(TOPIC, 1);
+
+    private final OffsetCommitTracker tracker = new OffsetCommitTracker();
+    private final List<String> acknowledged = new ArrayList<>();
+
+    @Test
+    void acknowledgesPollsOfAPartitionInPollOrder() {
+        AckTicket first = poll("first", P0, 0, 1);
+        AckTicket second = poll("second", P0, 2, 3);
+
+        second.complete(2);
+        assertThat(acknowledged).isEmpty();
+        assertThat(tracker.committedWatermarks()).isEmpty();
+
+        first.complete(2);
+        assertThat(acknowledged).containsExactly("first", "second");
+        assertThat(tracker.committedWatermarks()).containsEntry(P0, 4L);
+        assertThat(tracker.pendingPolls()).isEmpty();
+    }
+
+    @Test
+    void waitsUntilAPollHeadsEveryPartitionItCovers() {
+        AckTicket first = poll("first", P0, 0);
+        AckTicket spanning = poll(Map.of(P0, 1L, P1, 0L), "spanning");
+        AckTicket last = poll("last", P1, 1);
+
+        last.complete(1);
+        spanning.complete(2);
+        assertThat(acknowledged).isEmpty();
+        assertThat(tracker.pendingPolls()).containsEntry(P0, 2).containsEntry(P1, 2);
+
+        first.complete(1);
+        assertThat(acknowledged).containsExactly("first", "spanning", "last");
+        assertThat(tracker.committedWatermarks()).containsEntry(P0, 2L).containsEntry(P1, 2L);
+    }
+
+    @Test
+    void completesPollsOnlyOnceEveryEventIsPersisted() {
+        AckTicket ticket = poll("poll", P0, 0, 1, 2);
+
+        ticket.complete(1);
+        ticket.complete(1);
+        assertThat(acknowledged).isEmpty();
+
+        ticket.complete(1);
+        assertThat(acknowledged).containsExactly("poll");
+    }
+
+    @Test
+    void discardedPollStopsHoldingBackLaterOnes() {
+        AckTicket rejected = poll("rejected", P0, 0);
+        AckTicket next = poll("next", P0, 1);
+
+        next.complete(1);
+        tracker.discard(rejected);
+
+        assertThat(acknowledged).containsExactly("next");
+        assertThat(tracker.committedWatermarks()).containsEntry(P0, 2L);
+    }
+
+    @Test
+    void revokedPartitionNoLongerBlocksPollsAfterReassignment() {
+        AckTicket beforeRebalance = poll("before", P0, 0);
+
+        tracker.revoke(List.of(P0));
+        AckTicket afterRebalance = poll("after", P0, 0);
+        afterRebalance.complete(1);
+        beforeRebalance.complete(1);
+
+        assertThat(acknowledged).containsExactly("after");
+        assertThat(tracker.pendingPolls()).isEmpty();
+    }
+
+    @Test
+    void revokedPollKeepsItsPlaceOnRetainedPartitions() {
+        AckTicket spanning = poll(Map.of(P0, 1L, P1, 1L), "spanning");
+        AckTicket retained = poll("retained", P1, 1);
+
+        tracker.revoke(List.of(P0));
+        retained.complete(1);
+        assertThat(acknowledged).isEmpty();
+
+        spanning.complete(2);
+        assertThat(acknowledged).containsExactly("retained");
+        assertThat(tracker.committedWatermarks()).containsOnlyKeys(P1).containsEntry(P1, 2L);
+    }
+
+    private AckTicket poll(String name, TopicPartition partition, long... offsets) {
+        MessageBuilder<List<String>> message = MessageBuilder.withPayload(List.<String>of())
+            .setHeader(KafkaHeaders.ACKNOWLEDGMENT, acknowledgment(name));
+        List<String> topics = new ArrayList<>();
+        List<Integer> partitions = new ArrayList<>();
+        List<Long> recordOffsets = new ArrayList<>();
+        for (long offset : offsets) {
+            topics.add(partition.topic());
+            partitions.add(partition.partition());
+            recordOffsets.add(offset);
+        }
+        return register(message, topics, partitions, recordOffsets);
+    }
+
+    /**
+     * A poll with one record per partition, at the given offsets
+     */
+    private AckTicket poll(Map<TopicPartition, Long> offsets, String name) {
+        MessageBuilder<List<String>> message = MessageBuilder.withPayload(List.<String>of())
+            .setHeader(KafkaHeaders.ACKNOWLEDGMENT, acknowledgment(name));
+        List<String> topics = new ArrayList<>();
+        List<Integer> partitions = new ArrayList<>();
+        List<Long> recordOffsets = new ArrayList<>();
+        offsets.forEach((partition, offset) -> {
+            topics.add(partition.topic());
+            partitions.add(partition.partition());
+            recordOffsets.add(offset);
+        });
+        return register(message, topics, partitions, recordOffsets);
+    }
+
+    private AckTicket register(MessageBuilder<List<String>> message, List<String> topics,
+                               List<Integer> partitions, List<Long> offsets) {
+        return tracker.register(message
+            .setHeader(KafkaHeaders.RECEIVED_TOPIC, topics)
+            .setHeader(KafkaHeaders.RECEIVED_PARTITION, partitions)
+            .setHeader(KafkaHeaders.OFFSET, offsets)
+            .build(), topics.size());
+    }
+
+    private Acknowledgment acknowledgment(String name) {
+        return () -> acknowledged.add(name);
+    }
+}
@@ -0,0 +1,114 @@
+package com.worksync.ai.consumer;
+
+import com.worksync.ai.consumer.SpillLog.SpillBatch;
+import com.worksync.ai.consumer.SpillLog.SpillRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpillLogTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRecordsInAppendOrder() throws Exception {
+        try (SpillLog spillLog = open(16)) {
+            assertThat(spillLog.append(records(0, 5))).isEqualTo(5);
+
+            SpillBatch batch = spillLog.read(10);
+
+            assertThat(payloads(batch)).containsExactly("event-000", "event-001", "event-002", "event-003", "event-004");
+            assertThat(batch.records()).allMatch(record -> record.type() == 1);
+        }
+    }
+
+    @Test
+    void keepsRecordsUntilTheBatchIsCommitted() throws Exception {
+        try (SpillLog spillLog = open(16)) {
+            spillLog.append(records(0, 5));
+
+            SpillBatch uncommitted = spillLog.read(3);
+            assertThat(payloads(spillLog.read(3))).isEqualTo(payloads(uncommitted));
+            assertThat(spillLog.size()).isEqualTo(5);
+
+            spillLog.commit(uncommitted);
+            assertThat(spillLog.size()).isEqualTo(2);
+            assertThat(payloads(spillLog.read(10))).containsExactly("event-003", "event-004");
+        }
+    }
+
+    @Test
+    void replaysRecordsReadButNotCommittedBeforeACrash() throws Exception {
+        SpillLog crashed = open(16);
+        crashed.append(records(0, 6));
+        crashed.commit(crashed.read(2));
+        crashed.read(2);
+        // No close: the cursor only holds what was committed
+
+        try (SpillLog reopened = open(16)) {
+            assertThat(reopened.size()).isEqualTo(4);
+            assertThat(payloads(reopened.read(10))).containsExactly("event-002", "event-003", "event-004", "event-005");
+        }
+        crashed.close();
+    }
+
+    @Test
+    void readsAcrossSegmentsAndDeletesConsumedOnes() throws Exception {
+        try (SpillLog spillLog = open(16)) {
+            // 14-byte records, 18 per segment
+            spillLog.append(records(0, 40));
+            assertThat(segmentFiles()).hasSize(3);
+
+            SpillBatch batch = spillLog.read(32);
+            assertThat(payloads(batch)).isEqualTo(IntStream.range(0, 32).mapToObj(i -> String.format("event-%03d", i)).toList());
+            spillLog.commit(batch);
+
+            assertThat(segmentFiles()).hasSize(2);
+            assertThat(payloads(spillLog.read(100))).hasSize(8);
+        }
+    }
+
+    @Test
+    void stopsAppendingAtTheSegmentLimit() throws Exception {
+        try (SpillLog spillLog = open(2)) {
+            int appended = spillLog.append(records(0, 40));
+
+            assertThat(appended).isEqualTo(36);
+            assertThat(spillLog.size()).isEqualTo(36);
+            assertThat(spillLog.usageRatio()).isEqualTo(1.0);
+        }
+    }
+
+    private SpillLog open(int maxSegments) throws Exception {
+        return new SpillLog(directory, SEGMENT_SIZE, maxSegments, false);
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).toList();
+        }
+    }
+
+    private static List<SpillRecord> records(int from, int to) {
+        return IntStream.range(from, to)
+            .mapToObj(i -> new SpillRecord((byte) 1, String.format("event-%03d", i).getBytes(StandardCharsets.UTF_8)))
+            .toList();
+    }
+
+    private static List<String> payloads(SpillBatch batch) {
+        return batch.records().stream()
+            .map(record -> new String(record.payload(), StandardCharsets.UTF_8))
+            .toList();
+    }
+}
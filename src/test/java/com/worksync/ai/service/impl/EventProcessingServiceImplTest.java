@@ -0,0 +1,58 @@
+package com.worksync.ai.service.impl;
+
+import com.worksync.ai.model.AppUsageEvent;
+import com.worksync.ai.model.dto.BulkPersistResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class EventProcessingServiceImplTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 1, 1, 9, 30);
+
+    private final EventProcessingServiceImpl service = new EventProcessingServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "elasticsearchOperations", mock(ElasticsearchOperations.class));
+        ReflectionTestUtils.setField(service, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+    }
+
+    @Test
+    void givesARedeliveredEventWithoutAnIdTheSameId() {
+        BulkPersistResult<AppUsageEvent> first = service.processAppUsageEvents(List.of(event("editor", 60), event("browser", 60)));
+        // The same poll consumed again, deserialized into new objects
+        BulkPersistResult<AppUsageEvent> redelivered = service.processAppUsageEvents(List.of(event("editor", 60), event("browser", 60)));
+
+        List<String> ids = first.persisted().stream().map(AppUsageEvent::getEventId).toList();
+        assertThat(ids).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(redelivered.persisted()).extracting(AppUsageEvent::getEventId).isEqualTo(ids);
+    }
+
+    @Test
+    void keepsTheIdAnEventArrivedWith() {
+        AppUsageEvent event = event("editor", 60);
+        event.setEventId("e1");
+
+        BulkPersistResult<AppUsageEvent> result = service.processAppUsageEvents(List.of(event));
+
+        assertThat(result.persisted()).extracting(AppUsageEvent::getEventId).containsExactly("e1");
+    }
+
+    private static AppUsageEvent event(String appName, long durationInSeconds) {
+        AppUsageEvent event = new AppUsageEvent(appName, durationInSeconds);
+        event.setEmployeeId("emp-1");
+        event.setTimestamp(TIMESTAMP);
+        event.setMetadata(Map.of("source", "agent", "version", "2"));
+        return event;
+    }
+}
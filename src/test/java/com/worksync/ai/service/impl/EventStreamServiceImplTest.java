@@ -0,0 +1,124 @@
+package com.worksync.ai.service.impl;
+
+import com.worksync.ai.model.AppUsageEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.elasticsearch.ResourceNotFoundException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EventStreamServiceImplTest {
+
+    private static final Duration KEEP_ALIVE = Duration.ofSeconds(1);
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private final ElasticsearchOperations operations = mock(ElasticsearchOperations.class);
+    private final EventStreamServiceImpl service = new EventStreamServiceImpl();
+    private final List<AppUsageEvent> documents = new ArrayList<>();
+    // Last use of each open point in time, in nanoseconds
+    private final Map<String, Long> pointsInTime = new ConcurrentHashMap<>();
+    private final List<Query> queries = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "elasticsearchOperations", operations);
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        ReflectionTestUtils.setField(service, "keepAlive", KEEP_ALIVE);
+        for (int i = 0; i < 7; i++) {
+            AppUsageEvent event = new AppUsageEvent("app-" + i, 60);
+            event.setEventId("e" + i);
+            event.setEmployeeId("emp-1");
+            event.setTimestamp(START.plusMinutes(i));
+            documents.add(event);
+        }
+
+        when(operations.openPointInTime(any(IndexCoordinates.class), any(Duration.class), eq(true))).thenAnswer(invocation -> {
+            String id = "pit-" + (pointsInTime.size() + 1);
+            pointsInTime.put(id, System.nanoTime());
+            return id;
+        });
+        // Like Elasticsearch, a point in time not used within its keep-alive is gone
+        doAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            queries.add(query);
+            String id = query.getPointInTime().id();
+            if (System.nanoTime() - pointsInTime.get(id) > KEEP_ALIVE.toNanos()) {
+                throw new ResourceNotFoundException("all shards failed");
+            }
+            pointsInTime.put(id, System.nanoTime());
+            int from = query.getSearchAfter() == null ? 0 : (Integer) query.getSearchAfter().get(0) + 1;
+            return hits(id, from, Math.min(from + 2, documents.size()));
+        }).when(operations).search(any(Query.class), eq(AppUsageEvent.class));
+    }
+
+    @Test
+    void reopensAnExpiredPointInTimeForASlowConsumer() throws Exception {
+        List<String> consumed = new ArrayList<>();
+        try (Stream<AppUsageEvent> events = service.streamEvents(AppUsageEvent.class, START, START.plusHours(1))) {
+            for (AppUsageEvent event : (Iterable<AppUsageEvent>) events::iterator) {
+                consumed.add(event.getEventId());
+                if (consumed.size() == 4) {
+                    // Held up by the summary pipeline for longer than the keep-alive
+                    Thread.sleep(KEEP_ALIVE.toMillis() * 2);
+                }
+            }
+        }
+
+        assertThat(consumed).containsExactly("e0", "e1", "e2", "e3", "e4", "e5", "e6");
+        verify(operations, times(2)).openPointInTime(any(IndexCoordinates.class), any(Duration.class), eq(true));
+        // The page that failed was fetched again under the new point in time, after the same hit
+        Query retried = queries.get(3);
+        assertThat(retried.getPointInTime().id()).isEqualTo("pit-2");
+        assertThat(retried.getSearchAfter()).containsExactly(3);
+    }
+
+    @Test
+    void passesOnOtherSearchFailures() {
+        doAnswer(invocation -> {
+            throw new DataAccessResourceFailureException("connection refused");
+        }).when(operations).search(any(Query.class), eq(AppUsageEvent.class));
+
+        try (Stream<AppUsageEvent> events = service.streamEvents(AppUsageEvent.class, START, START.plusHours(1))) {
+            assertThatThrownBy(() -> events.findFirst()).isInstanceOf(DataAccessResourceFailureException.class);
+        }
+        verify(operations, times(1)).openPointInTime(any(IndexCoordinates.class), any(Duration.class), eq(true));
+    }
+
+    @SuppressWarnings("unchecked")
+    private SearchHits<AppUsageEvent> hits(String pointInTimeId, int from, int to) {
+        List<SearchHit<AppUsageEvent>> page = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            SearchHit<AppUsageEvent> hit = mock(SearchHit.class);
+            when(hit.getContent()).thenReturn(documents.get(i));
+            when(hit.getSortValues()).thenReturn(List.of(i));
+            page.add(hit);
+        }
+        SearchHits<AppUsageEvent> hits = mock(SearchHits.class);
+        when(hits.getSearchHits()).thenReturn(page);
+        when(hits.getPointInTimeId()).thenReturn(pointInTimeId);
+        return hits;
+    }
+}
@@ -0,0 +1,89 @@
+package com.worksync.ai.service.impl;
+
+import com.worksync.ai.config.AggregationConfig.StreamingAggregationProperties;
+import com.worksync.ai.entity.EventAggregation;
+import com.worksync.ai.enums.EventType;
+import com.worksync.ai.model.AppUsageEvent;
+import com.worksync.ai.model.BaseEvent;
+import com.worksync.ai.model.SecurityEvent;
+import com.worksync.ai.repository.EventAggregationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreamingAggregationServiceImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private final EventAggregationRepository repository = mock(EventAggregationRepository.class);
+    private final StreamingAggregationServiceImpl service = new StreamingAggregationServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        StreamingAggregationProperties properties = new StreamingAggregationProperties();
+        properties.setEnabled(true);
+        ReflectionTestUtils.setField(service, "aggregationRepository", repository);
+        ReflectionTestUtils.setField(service, "aggregationProperties", properties);
+        when(repository.findAllById(any())).thenReturn(List.of());
+    }
+
+    @Test
+    void doesNotCountRedeliveredEventsTwice() {
+        List<BaseEvent> batch = List.of(
+            appUsage("e1", "editor", 60),
+            appUsage("e2", "editor", 30),
+            appUsage("e3", "browser", 45),
+            security("e4", "phishing"));
+
+        service.record(batch);
+        // The poll is redelivered because its offsets were not committed, with one new event
+        service.record(batch);
+        service.record(List.of(appUsage("e5", "browser", 15)));
+        service.flushOnShutdown();
+
+        Map<EventType, EventAggregation> written = writtenAggregations();
+        assertThat(written.get(EventType.APP_USAGE).getAggregatedData())
+            .isEqualTo(Map.of("appDurations", Map.of("editor", 90L, "browser", 60L)));
+        assertThat(written.get(EventType.SECURITY).getAggregatedData())
+            .isEqualTo(Map.of("threatCounts", Map.of("phishing", 1L)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<EventType, EventAggregation> writtenAggregations() {
+        ArgumentCaptor<List<EventAggregation>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        assertThat(saved.getValue()).hasSize(2);
+        return Map.of(
+            saved.getValue().get(0).getEventType(), saved.getValue().get(0),
+            saved.getValue().get(1).getEventType(), saved.getValue().get(1));
+    }
+
+    private static AppUsageEvent appUsage(String eventId, String appName, long durationInSeconds) {
+        AppUsageEvent event = new AppUsageEvent(appName, durationInSeconds);
+        withEmployee(event, eventId);
+        return event;
+    }
+
+    private static SecurityEvent security(String eventId, String threatType) {
+        SecurityEvent event = new SecurityEvent("https://example.com", threatType);
+        withEmployee(event, eventId);
+        return event;
+    }
+
+    private static void withEmployee(BaseEvent event, String eventId) {
+        event.setEventId(eventId);
+        event.setEmployeeId("emp-1");
+        event.setTimestamp(START.plusMinutes(5));
+    }
+}
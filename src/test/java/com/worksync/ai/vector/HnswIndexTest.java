@@ -0,0 +1,194 @@
+package com.worksync.ai.vector;
+
+import com.worksync.ai.vector.HnswIndex.Neighbor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 64;
+    private static final int VECTORS = 2_000;
+    private static final int QUERIES = 50;
+    private static final int K = 10;
+
+    @Test
+    void approximateSearchRecallsTheExactNeighbours() {
+        Random random = new Random(42);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 200, 7);
+        for (int i = 0; i < VECTORS; i++) {
+            index.add("v" + i, randomVector(random));
+        }
+
+        assertThat(recall(index, index, random, 100)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void widerBeamDoesNotLowerRecall() {
+        Random random = new Random(1);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 50, 3);
+        for (int i = 0; i < VECTORS; i++) {
+            index.add("v" + i, randomVector(random));
+        }
+
+        double narrow = recall(index, index, new Random(9), K);
+        double wide = recall(index, index, new Random(9), 200);
+
+        assertThat(wide).isGreaterThanOrEqualTo(narrow);
+        assertThat(wide).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void exactSearchRanksByCosineSimilarity() {
+        HnswIndex index = new HnswIndex(2, 4, 10, 1);
+        index.add("east", new float[] {1f, 0f});
+        index.add("north-east", new float[] {3f, 3f});
+        index.add("north", new float[] {0f, 2f});
+        index.add("west", new float[] {-1f, 0f});
+
+        List<Neighbor> neighbors = index.exactSearch(new float[] {2f, 0.5f}, 3);
+
+        assertThat(neighbors).extracting(Neighbor::key).containsExactly("east", "north-east", "north");
+        assertThat(neighbors.get(0).similarity()).isGreaterThan(neighbors.get(1).similarity());
+    }
+
+    @Test
+    void searchOnlyReturnsKeysAcceptedByTheFilter() {
+        Random random = new Random(5);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 11);
+        for (int i = 0; i < 500; i++) {
+            index.add("v" + i, randomVector(random));
+        }
+
+        List<Neighbor> neighbors = index.search(randomVector(random), K, 100, key -> key.endsWith("7"));
+
+        assertThat(neighbors).hasSize(K).allMatch(neighbor -> neighbor.key().endsWith("7"));
+    }
+
+    @Test
+    void ignoresKeysThatAreAlreadyIndexed() {
+        HnswIndex index = new HnswIndex(2, 4, 10, 1);
+
+        assertThat(index.add("a", new float[] {1f, 0f})).isTrue();
+        assertThat(index.add("a", new float[] {0f, 1f})).isFalse();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.vector("a")).containsExactly(1f, 0f);
+    }
+
+    @Test
+    void arenaBackedIndexSearchesLikeTheHeapIndex(@TempDir Path directory) throws Exception {
+        Random random = new Random(3);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            vectors.add(randomVector(random));
+        }
+        HnswIndex heap = new HnswIndex(DIMENSIONS, 16, 100, 5);
+        vectors.forEach(vector -> heap.add("v" + heap.size(), vector));
+
+        try (VectorArena arena = new VectorArena(directory, DIMENSIONS, 128)) {
+            // Half the vectors are already in the arena, as after a restart
+            for (int i = 0; i < 250; i++) {
+                arena.append("v" + i, VectorMath.normalize(vectors.get(i)));
+            }
+            HnswIndex mapped = new HnswIndex(DIMENSIONS, 16, 100, 5, new ArenaVectorStore(arena, DIMENSIONS));
+            vectors.forEach(vector -> mapped.add("v" + mapped.size(), vector));
+
+            assertThat(arena.size()).isEqualTo(500);
+            for (int q = 0; q < 20; q++) {
+                float[] query = randomVector(random);
+                assertThat(mapped.search(query, K, 50, null)).isEqualTo(heap.search(query, K, 50, null));
+            }
+            assertThat(mapped.vector("v7")).containsExactly(heap.vector("v7"));
+        }
+    }
+
+    @Test
+    void int8IndexRecallsTheExactNeighboursAfterReranking() {
+        Random random = new Random(17);
+        List<float[]> vectors = randomVectors(random, VECTORS);
+        HnswIndex exact = new HnswIndex(DIMENSIONS, 16, 200, 7);
+        HnswIndex quantized = new HnswIndex(DIMENSIONS, 16, 200, 7, new Int8VectorStore(DIMENSIONS));
+        vectors.forEach(vector -> {
+            exact.add("v" + exact.size(), vector);
+            quantized.add("v" + quantized.size(), vector);
+        });
+
+        assertThat(quantized.bytesPerVector()).isEqualTo(DIMENSIONS + Float.BYTES);
+        assertThat(rerankedRecall(quantized, exact, new Random(23), 4)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void productQuantizedIndexRecallsTheExactNeighboursAfterReranking() {
+        Random random = new Random(19);
+        List<float[]> vectors = randomVectors(random, VECTORS);
+        HnswIndex exact = new HnswIndex(DIMENSIONS, 16, 200, 7);
+        vectors.forEach(vector -> exact.add("v" + exact.size(), vector));
+        ProductQuantizer quantizer = ProductQuantizer.train(vectors.stream().map(VectorMath::normalize).toList(), 16, 256, 8, 42L);
+        HnswIndex quantized = new HnswIndex(DIMENSIONS, 16, 200, 7, new PqVectorStore(quantizer));
+        vectors.forEach(vector -> quantized.add("v" + quantized.size(), vector));
+
+        double withoutReranking = rerankedRecall(quantized, exact, new Random(29), 1);
+        double withReranking = rerankedRecall(quantized, exact, new Random(29), 10);
+
+        assertThat(quantized.bytesPerVector()).isEqualTo(16);
+        assertThat(withReranking).isGreaterThan(withoutReranking).isGreaterThanOrEqualTo(0.9);
+    }
+
+    /**
+     * Recall of {@code index} against exact search of {@code truth}, fetching {@code factor} times
+     * k candidates and re-ranking them with the full-precision vectors of {@code truth}
+     */
+    private static double rerankedRecall(HnswIndex index, HnswIndex truth, Random random, int factor) {
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVector(random);
+            float[] normalized = VectorMath.normalize(query);
+            Set<String> expected = truth.exactSearch(query, K).stream().map(Neighbor::key).collect(Collectors.toSet());
+            found += (int) index.search(query, K * factor, 100, null).stream()
+                .map(candidate -> new Neighbor(candidate.key(), VectorMath.dot(normalized, truth.vector(candidate.key()))))
+                .sorted(Comparator.comparingDouble(Neighbor::similarity).reversed())
+                .limit(K)
+                .filter(n -> expected.contains(n.key()))
+                .count();
+        }
+        return (double) found / (QUERIES * K);
+    }
+
+    private static List<float[]> randomVectors(Random random, int count) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(randomVector(random));
+        }
+        return vectors;
+    }
+
+    /**
+     * Share of the exact top k of {@code truth} found by searching {@code index}, over random queries
+     */
+    static double recall(HnswIndex index, HnswIndex truth, Random random, int ef) {
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVector(random);
+            Set<String> expected = truth.exactSearch(query, K).stream().map(Neighbor::key).collect(Collectors.toSet());
+            found += (int) index.search(query, K, ef, null).stream().filter(n -> expected.contains(n.key())).count();
+        }
+        return (double) found / (QUERIES * K);
+    }
+
+    static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
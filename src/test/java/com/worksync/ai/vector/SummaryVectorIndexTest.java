@@ -0,0 +1,106 @@
+package com.worksync.ai.vector;
+
+import com.worksync.ai.config.VectorIndexConfig.VectorIndexProperties;
+import com.worksync.ai.model.entity.SummaryVector;
+import com.worksync.ai.vector.SummaryVectorIndex.RecallReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SummaryVectorIndexTest {
+
+    private static final int DIMENSIONS = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void trainsProductQuantizationWhileSummariesKeepBeingAdded() throws Exception {
+        SummaryVectorIndex index = new SummaryVectorIndex(properties("pq"));
+        try {
+            Random random = new Random(11);
+            // Training starts at the 1000th summary; the rest arrive while it runs
+            for (int i = 0; i < 1_500; i++) {
+                index.add(summary("s" + i, HnswIndexTest.randomVector(random)));
+            }
+            awaitSize(index, 1_500);
+
+            RecallReport report = index.measureRecall(50, 10, 100);
+
+            assertThat(report.quantization()).isEqualTo("pq");
+            assertThat(report.bytesPerVector()).isEqualTo(16);
+            assertThat(report.reranked()).isTrue();
+            assertThat(report.recall()).isGreaterThanOrEqualTo(0.9);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void indexesInt8CodesAndReranksThemFromTheArena() {
+        SummaryVectorIndex index = new SummaryVectorIndex(properties("int8"));
+        try {
+            Random random = new Random(13);
+            for (int i = 0; i < 1_000; i++) {
+                index.add(summary("s" + i, HnswIndexTest.randomVector(random)));
+            }
+
+            RecallReport report = index.measureRecall(50, 10, 100);
+
+            assertThat(index.size()).isEqualTo(1_000);
+            assertThat(report.bytesPerVector()).isEqualTo(DIMENSIONS + Float.BYTES);
+            assertThat(report.reranked()).isTrue();
+            assertThat(report.recall()).isGreaterThanOrEqualTo(0.95);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void rejectsQuantizationWithoutTheArena() {
+        VectorIndexProperties properties = properties("pq");
+        properties.getArena().setEnabled(false);
+
+        assertThatThrownBy(() -> new SummaryVectorIndex(properties))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("arena");
+    }
+
+    private VectorIndexProperties properties(String quantization) {
+        VectorIndexProperties properties = new VectorIndexProperties();
+        properties.setEnabled(true);
+        properties.setDimensions(DIMENSIONS);
+        properties.getArena().setEnabled(true);
+        properties.getArena().setDirectory(directory.toString());
+        properties.getArena().setVectorsPerChunk(256);
+        properties.getQuantization().setType(quantization);
+        properties.getQuantization().setPqSubspaces(16);
+        properties.getQuantization().setPqCentroids(256);
+        properties.getQuantization().setPqTrainingSample(1_000);
+        return properties;
+    }
+
+    private static SummaryVector summary(String id, float[] embedding) {
+        return SummaryVector.builder()
+            .id(id)
+            .employeeId("employee-" + id.hashCode() % 10)
+            .summaryText("Summary " + id)
+            .timestamp(LocalDateTime.of(2024, 1, 1, 0, 0))
+            .embedding(embedding)
+            .build();
+    }
+
+    private static void awaitSize(SummaryVectorIndex index, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (index.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(index.size()).isEqualTo(size);
+    }
+}
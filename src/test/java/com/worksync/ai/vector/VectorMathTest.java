@@ -0,0 +1,87 @@
+package com.worksync.ai.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VectorMathTest {
+
+    private final Random random = new Random(17);
+
+    @Test
+    void vectorApiKernelMatchesTheScalarKernel() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+            "jdk.incubator.vector is not added to this JVM");
+        VectorMath.Kernel simd = new VectorApiKernel();
+        VectorMath.Kernel scalar = new VectorMath.ScalarKernel();
+
+        // Every tail length around the register widths, plus the embedding size
+        for (int length = 0; length <= 70; length++) {
+            assertSameDot(simd, scalar, length);
+        }
+        assertSameDot(simd, scalar, 1536);
+    }
+
+    @Test
+    void int8DotProductsMatchTheFloatDotProduct() {
+        // Short enough that the float sums stay exact integers
+        byte[] a = randomCodes(512);
+        byte[] b = randomCodes(512);
+        float[] aAsFloats = toFloats(a);
+
+        assertThat(VectorMath.dot(a, b)).isEqualTo((int) VectorMath.dot(aAsFloats, toFloats(b)));
+        assertThat(VectorMath.dot(aAsFloats, b)).isEqualTo(VectorMath.dot(aAsFloats, toFloats(b)));
+    }
+
+    @Test
+    void normalizesToUnitLength() {
+        float[] normalized = VectorMath.normalize(randomVector(1536));
+
+        assertThat(VectorMath.dot(normalized, normalized)).isCloseTo(1f, within(1e-4f));
+        assertThat(VectorMath.normalize(new float[3])).isNull();
+    }
+
+    @Test
+    void rejectsVectorsOfDifferentDimensions() {
+        assertThatThrownBy(() -> VectorMath.dot(new float[2], new float[3]))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertSameDot(VectorMath.Kernel simd, VectorMath.Kernel scalar, int length) {
+        float[] a = randomVector(length);
+        float[] b = randomVector(length);
+        float expected = scalar.dot(a, b);
+        // Summation order differs, so allow for rounding relative to the magnitude of the terms
+        float tolerance = 1e-5f * Math.max(1, length);
+        assertThat(simd.dot(a, b)).as("length %d", length).isCloseTo(expected, within(tolerance));
+    }
+
+    private float[] randomVector(int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private byte[] randomCodes(int length) {
+        byte[] codes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            codes[i] = (byte) (random.nextInt(255) - 127);
+        }
+        return codes;
+    }
+
+    private static float[] toFloats(byte[] codes) {
+        float[] values = new float[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            values[i] = codes[i];
+        }
+        return values;
+    }
+}